@@ -88,13 +88,15 @@ public class LabelMapListener extends MouseInputAdapter {
 
     /**
      * If the country can be chosen, it reinforces it; otherwise it resets the
-     * cache.
+     * cache. The GUI is notified of the changes later, on the Event Dispatch
+     * Thread, so the cache is reset after each change.
      *
      * @param country
      */
     private void tryReinforce(String country) {
         if (cache.canBeChosen(country)) {
             game.reinforce(country);
+            resetCache();
             PlayAudio.play("src/resources/sounds/clickOn.wav");
             return;
         }
@@ -103,7 +105,8 @@ public class LabelMapListener extends MouseInputAdapter {
     }
 
     /**
-     * Sets the attacker/defender (if the chosen country is valid).
+     * Sets the attacker/defender (if the chosen country is valid). The GUI
+     * shows the dialog for the attack when it's notified of the defender.
      *
      * @param country
      */
@@ -111,6 +114,7 @@ public class LabelMapListener extends MouseInputAdapter {
         // The player has to choose a country as attacker and is clicking on a valid one
         if (cache.canBeChosenAsAttacker(country)) {
             game.setAttackerCountry(country);
+            resetCache();
             PlayAudio.play("src/resources/sounds/clickOn.wav");
             return;
         }
@@ -118,8 +122,8 @@ public class LabelMapListener extends MouseInputAdapter {
         // The player has to choose a country as defender and is clicking on a valid one
         if (cache.canBeChosen(country)) {
             game.setDefenderCountry(country);
+            resetCache();
             PlayAudio.play("src/resources/sounds/clickOn.wav");
-            gui.setAttackerDialogVisible(true);
             return;
         }
         // The country is not valid
@@ -137,6 +141,7 @@ public class LabelMapListener extends MouseInputAdapter {
         if (cache.canBeChosenAsFromCountry(country)) {
 
             game.setFromCountry(country);
+            resetCache();
             PlayAudio.play("src/resources/sounds/clickOn.wav");
             return;
         }
@@ -19,16 +19,18 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -37,19 +39,24 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import risiko.game.Game;
-import risiko.game.GameInvocationHandler;
 import risiko.game.GameProxy;
+import risiko.game.GuardedGame;
+import risiko.map.MapTopology;
 import services.FileManager;
+import services.MapPack;
 import services.Translator;
 import shared.AttackResultInfo;
 import shared.CountryInfo;
 import shared.PlayerInfo;
+import shared.StateDelta;
 
 /**
  * Main GUI.
  */
 public class GUI extends JFrame implements GameObserver {
 
+    private static final long serialVersionUID = 1L;
+
     private GameProxy game;
     private Map<Color, String> colorCountryNameMap;
     private final Map<String, JLabel> countryLabelMap;
@@ -59,6 +66,7 @@ public class GUI extends JFrame implements GameObserver {
     private LabelMapListener labelMapListener;
     private FadeOutLabel fadeOutLabel;
     private CardPanel cardPanel;
+    private List<PlayerInfo> playersOrder; // The players shown in the legend.
     private final int PREFERRED_WIDTH = 400;
     private final int PREFERRED_HEIGHT = 192;
     private final String LANG = "ITA";
@@ -116,9 +124,7 @@ public class GUI extends JFrame implements GameObserver {
         labelMap.addMouseMotionListener(labelMapListener);
 
         // Game
-        game = (GameProxy) Proxy.newProxyInstance(GameProxy.class.getClassLoader(),
-                new Class<?>[]{GameProxy.class},
-                new GameInvocationHandler(new Game(players, this)));
+        game = new GuardedGame(new Game(players, this));
         labelMapListener.setGame(game);
 
         // Dialogs
@@ -165,18 +171,12 @@ public class GUI extends JFrame implements GameObserver {
      * Creates an HashMap which maps a <code>java.awt.Color</code> to a country.
      */
     private void initColorCountryNameMap() {
-        List<Map<String, Object>> countriesColors = FileManager.getInstance().getCountriesColors();
+        MapPack pack = MapTopology.getDefault().getMapPack();
         colorCountryNameMap = new HashMap<>();
-        Color color;
-        int R, G, B;
-        String country;
-        for (Map<String, Object> row : countriesColors) {
-            country = (String) row.get("country");
-            R = (Integer) row.get("R");
-            G = (Integer) row.get("G");
-            B = (Integer) row.get("B");
-            color = new Color(R, G, B);
-            colorCountryNameMap.put(color, country);
+        for (int id = 0; id < pack.getCountriesCount(); id++) {
+            if (pack.getColor(id) != MapPack.NONE) {
+                colorCountryNameMap.put(new Color(pack.getColor(id)), pack.getCountryName(id));
+            }
         }
     }
 
@@ -187,14 +187,11 @@ public class GUI extends JFrame implements GameObserver {
      */
     private void initLabels() {
 
-        List<Map<String, Object>> labels = FileManager.getInstance().getLabelsProperties();
-        String country;
-        int x, y;
-        for (Map<String, Object> label : labels) {
-            country = (String) label.get("country");
-            x = (Integer) label.get("x");
-            y = (Integer) label.get("y");
-            createLabel(country, x, y);
+        MapPack pack = MapTopology.getDefault().getMapPack();
+        for (int id = 0; id < pack.getCountriesCount(); id++) {
+            if (pack.getLabelX(id) != MapPack.NONE) {
+                createLabel(pack.getCountryName(id), pack.getLabelX(id), pack.getLabelY(id));
+            }
         }
     }
 
@@ -552,7 +549,9 @@ public class GUI extends JFrame implements GameObserver {
 
     /**
      * Shows a fading image with the name of the current phase. Updates
-     * <code>textAreaInfo</code> accordingly.
+     * <code>textAreaInfo</code> accordingly. The buttons are shown if
+     * <code>player</code> is human: the notification comes on the Event
+     * Dispatch Thread, when the turn may have already moved on.
      *
      * @param player
      * @param phase
@@ -568,26 +567,27 @@ public class GUI extends JFrame implements GameObserver {
         updateTextAreaInfo(player, phase);
         labelMapListener.resetCache();
 
+        boolean human = !player.isArtificial();
         switch (phase) {
             case "PLAY_CARDS":
-                buttonNextPhase.setVisible(game.checkMyIdentity());
+                buttonNextPhase.setVisible(human);
                 buttonNextPhase.setText("Vai al rinforzo");
-                leaveGameButton.setVisible(game.checkMyIdentity());
+                leaveGameButton.setVisible(human);
                 break;
             case "REINFORCE":
                 buttonNextPhase.setText("Passa all'attacco");
-                buttonNextPhase.setVisible(game == null || game.checkMyIdentity());
-                leaveGameButton.setVisible(game == null || game.checkMyIdentity());
+                buttonNextPhase.setVisible(human);
+                leaveGameButton.setVisible(human);
                 break;
             case "FIGHT":
-                buttonNextPhase.setVisible(game.checkMyIdentity());
+                buttonNextPhase.setVisible(human);
                 buttonNextPhase.setText("Passa allo spostamento");
-                leaveGameButton.setVisible(game.checkMyIdentity());
+                leaveGameButton.setVisible(human);
                 break;
             case "MOVE":
-                buttonNextPhase.setVisible(game.checkMyIdentity());
+                buttonNextPhase.setVisible(human);
                 buttonNextPhase.setText("Passa il turno");
-                leaveGameButton.setVisible(game.checkMyIdentity());
+                leaveGameButton.setVisible(human);
         }
 
     }
@@ -652,7 +652,8 @@ public class GUI extends JFrame implements GameObserver {
 
     /**
      * Updates <code>textAreaInfo</code> as soon as the attacker has chosen
-     * which country to attack.
+     * which country to attack. If the attacker is human, shows
+     * <code>attackerDialog</code>, once its labels are set.
      *
      * @param fightingCountries
      * @param reattack
@@ -674,7 +675,7 @@ public class GUI extends JFrame implements GameObserver {
         attackerDialog.setFightingLabels(attacker.getName(), attacker.getPlayerColor(), defender.getName(), defender.getPlayerColor());
         diceDialog.setFightingLabels(attacker.getName(), attacker.getPlayerColor(), defender.getName(), defender.getPlayerColor());
 
-        if (reattack) {
+        if (!attacker.hasArtificialOwner()) {
             this.attackerDialog.setVisible(true);
         }
         repaint(textAreaInfo);
@@ -793,12 +794,46 @@ public class GUI extends JFrame implements GameObserver {
      */
     @Override
     public void updateOnArmiesChange(CountryInfo countryInfo) {
+        updateCountryLabel(countryInfo.getName(), countryInfo.getArmies(), countryInfo.getPlayerColor());
+    }
 
-        JLabel label = countryLabelMap.get(countryInfo.getName());
+    /**
+     * Updates the JLabels of the countries changed by a command and, if some
+     * players have been eliminated, the legend.
+     *
+     * @param delta
+     */
+    @Override
+    public void updateOnStateDelta(StateDelta delta) {
+        for (int i = 0; i < delta.getCountriesCount(); i++) {
+            updateCountryLabel(delta.getCountryName(i), delta.getArmies(i), delta.getOwnerColor(i));
+        }
+        List<PlayerInfo> remaining = new ArrayList<>(playersOrder);
+        for (int i = 0; i < delta.getPlayersCount(); i++) {
+            if (delta.isEliminated(i)) {
+                String name = delta.getPlayerName(i);
+                remaining.removeIf(player -> player.getName().equals(name));
+            }
+        }
+        if (remaining.size() < playersOrder.size()) {
+            updatePlayersOrder(remaining);
+        }
+    }
+
+    /**
+     * Shows <code>armies</code> and the color of the owner on the JLabel of
+     * the country.
+     *
+     * @param countryName
+     * @param armies
+     * @param playerColor
+     */
+    private void updateCountryLabel(String countryName, int armies, String playerColor) {
+        JLabel label = countryLabelMap.get(countryName);
         label.setForeground(Color.WHITE);
-        label.setText(Integer.toString(countryInfo.getArmies()));
+        label.setText(Integer.toString(armies));
         label.setHorizontalTextPosition(JLabel.CENTER);
-        label.setIcon(new ImageIcon("src/resources/images/labelCountry/" + countryInfo.getPlayerColor() + "label1.png"));
+        label.setIcon(new ImageIcon("src/resources/images/labelCountry/" + playerColor + "label1.png"));
 
         repaint(label);
     }
@@ -922,6 +957,17 @@ public class GUI extends JFrame implements GameObserver {
         }
     }
 
+    /**
+     * The GUI is notified on the Event Dispatch Thread, so the game never
+     * waits for its dialogs.
+     *
+     * @return
+     */
+    @Override
+    public Executor getNotificationExecutor() {
+        return EventQueue::invokeLater;
+    }
+
     /**
      * Updates the legend showing the names of the players.
      *
@@ -929,6 +975,7 @@ public class GUI extends JFrame implements GameObserver {
      */
     @Override
     public void updatePlayersOrder(List<PlayerInfo> players) {
+        playersOrder = players;
         JLabel[] labelPlayers = {labelPlayer1, labelPlayer2, labelPlayer3, labelPlayer4, labelPlayer5, labelPlayer6};
         for (int i = 0; i < labelPlayers.length; i++) {
             if (i < players.size()) {
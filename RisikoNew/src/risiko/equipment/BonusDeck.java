@@ -4,10 +4,11 @@ import exceptions.TrisNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import services.FileManager;
+import services.MapPack;
 
 /**
  * Class that represents the deck containing the bonus cards.
@@ -15,16 +16,38 @@ import services.FileManager;
 public class BonusDeck {
 
     private List<Card> cards;
-    private Map<Card[], Integer> tris;
+    private final Map<Card[], Integer> tris;
+    private final RandomStream random;
 
     /**
      * Creates a new BonusDeck.
      */
     public BonusDeck() {
+        this(buildTris(FileManager.getInstance().getMapPack()));
+    }
+
+    /**
+     * Creates a new BonusDeck that uses the tris table <code>tris</code>. The
+     * table isn't copied, so it can be shared by many decks.
+     *
+     * @param tris
+     */
+    public BonusDeck(Map<Card[], Integer> tris) {
+        this(tris, new RandomStream());
+    }
+
+    /**
+     * Creates a new BonusDeck that uses the tris table <code>tris</code> and
+     * shuffles the cards using the stream <code>random</code>.
+     *
+     * @param tris
+     * @param random
+     */
+    public BonusDeck(Map<Card[], Integer> tris, RandomStream random) {
         cards = new ArrayList<>();
-        tris = new HashMap<>();
+        this.tris = tris;
+        this.random = random;
         buildDeck();
-        buildTris();
     }
 
     /**
@@ -37,7 +60,7 @@ public class BonusDeck {
         for (Card card : Card.values()) {
             buildCards(card);
         }
-        Collections.shuffle(cards);
+        random.shuffle(cards);
     }
 
     /**
@@ -52,21 +75,25 @@ public class BonusDeck {
     }
 
     /**
-     * Builds a map with the playable tris and the corrisponing bonus.
+     * Builds a read-only map with the playable tris of the map pack
+     * <code>pack</code> and the corrisponing bonus.
      *
+     * @param pack
+     * @return
      */
-    private void buildTris() {
+    public static Map<Card[], Integer> buildTris(MapPack pack) {
 
-        List<Map<String, Object>> combinations = FileManager.getInstance().getTris();
+        Map<Card[], Integer> tris = new LinkedHashMap<>(); // In the order of the pack, so that the choices among equal tris are reproducible.
         String[] cardsNames;
         int bonus;
 
-        for (Map<String, Object> combo : combinations) {
-            cardsNames = (String[]) combo.get("cards");
-            bonus = (Integer) combo.get("bonus");
+        for (int i = 0; i < pack.getTrisCount(); i++) {
+            cardsNames = pack.getTrisCards(i);
+            bonus = pack.getTrisBonus(i);
             Card[] c = {getCardByName(cardsNames[0]), getCardByName(cardsNames[1]), getCardByName(cardsNames[2])};
             tris.put(c, bonus);
         }
+        return Collections.unmodifiableMap(tris);
     }
 
     /**
@@ -81,6 +108,24 @@ public class BonusDeck {
         return cards.remove(cards.size() - 1);
     }
 
+    /**
+     * Returns the cards left in the deck, the last one being the next drawn.
+     *
+     * @return a read-only list.
+     */
+    public List<Card> getCards() {
+        return Collections.unmodifiableList(cards);
+    }
+
+    /**
+     * Replaces the cards left in the deck, e.g. to restore a saved game.
+     *
+     * @param cards the cards, the last one being the next drawn.
+     */
+    public void setCards(List<Card> cards) {
+        this.cards = new ArrayList<>(cards);
+    }
+
     /**
      * Taking as input an array that contains the names of the cards, it returns
      * an array with the corresponing cards.
@@ -105,7 +150,7 @@ public class BonusDeck {
      * @param name
      * @return
      */
-    private Card getCardByName(String name) {
+    private static Card getCardByName(String name) {
         return Card.valueOf(Card.class, name);
     }
 
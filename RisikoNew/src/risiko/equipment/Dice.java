@@ -1,15 +1,36 @@
 package risiko.equipment;
 
 import java.util.Arrays;
-import java.util.Random;
 
 /**
  * Class that rapresents the 2 sets of dice. It can roll them and return their
  * values.
+ *
+ * The dice are kept in 2 buffers of 3 elements that are reused by every roll,
+ * sorted with a sorting network, so that rolling the dice and resolving a
+ * battle with <code>rollBattle</code> don't allocate any object.
  */
 public class Dice {
 
-    private int[] attackerDice, defenderDice;
+    public static final int MAX_DICE = 3;
+    private final int[] attackerDice, defenderDice; // Sorted in descending order, only the first nrA (nrD) are valid.
+    private int nrA, nrD;
+    private final RandomStream random;
+
+    public Dice() {
+        this(new RandomStream());
+    }
+
+    /**
+     * Creates the dice, rolled using the stream <code>random</code>.
+     *
+     * @param random
+     */
+    public Dice(RandomStream random) {
+        this.random = random;
+        this.attackerDice = new int[MAX_DICE];
+        this.defenderDice = new int[MAX_DICE];
+    }
 
     /**
      * Rolls the attacker's dice and the defeder's ones.
@@ -18,29 +39,82 @@ public class Dice {
      * @param nrD
      */
     public void rollAllDice(int nrA, int nrD) {
-        attackerDice = rollDice(nrA);
-        defenderDice = rollDice(nrD);
+        this.nrA = nrA;
+        this.nrD = nrD;
+        rollDice(attackerDice, nrA);
+        rollDice(defenderDice, nrD);
+    }
+
+    /**
+     * Rolls the dice and compares them in pairs, the highest ones first: the
+     * defender wins the ties.
+     *
+     * @param nrA
+     * @param nrD
+     * @return the armies lost by both sides, packed in an int (see
+     * <code>getAttackerLosses</code> and <code>getDefenderLosses</code>).
+     */
+    public int rollBattle(int nrA, int nrD) {
+        rollAllDice(nrA, nrD);
+        int fights = Math.min(nrA, nrD);
+        int lostA = 0;
+        for (int i = 0; i < fights; i++) {
+            if (attackerDice[i] <= defenderDice[i]) {
+                lostA++;
+            }
+        }
+        return lostA | (fights - lostA) << 16;
+    }
+
+    /**
+     * Returns the armies lost by the attacker from the result of
+     * <code>rollBattle</code>.
+     *
+     * @param losses
+     * @return
+     */
+    public static int getAttackerLosses(int losses) {
+        return losses & 0xFFFF;
+    }
+
+    /**
+     * Returns the armies lost by the defender from the result of
+     * <code>rollBattle</code>.
+     *
+     * @param losses
+     * @return
+     */
+    public static int getDefenderLosses(int losses) {
+        return losses >>> 16;
     }
 
     /**
-     * Rolls <code>nrDice</code> dice and returns their value in descending
-     * order.
+     * Rolls <code>nr</code> dice into <code>dice</code> and sorts them in
+     * descending order.
      *
-     * @param nrDice
+     * @param dice
+     * @param nr
      */
-    private int[] rollDice(int nr) {
-        int dice[] = new int[nr];
-        int tmp;
+    private void rollDice(int[] dice, int nr) {
         for (int i = 0; i < nr; i++) {
             dice[i] = rollDie();
         }
-        Arrays.sort(dice);
         if (nr > 1) {
-            tmp = dice[0];
-            dice[0] = dice[nr - 1];
-            dice[nr - 1] = tmp;
+            // Sorting network for 3 elements: (0,1), (1,2), (0,1); just (0,1) for 2.
+            compareAndSwap(dice, 0, 1);
+            if (nr > 2) {
+                compareAndSwap(dice, 1, 2);
+                compareAndSwap(dice, 0, 1);
+            }
+        }
+    }
+
+    private static void compareAndSwap(int[] dice, int i, int j) {
+        if (dice[i] < dice[j]) {
+            int tmp = dice[i];
+            dice[i] = dice[j];
+            dice[j] = tmp;
         }
-        return dice;
     }
 
     /**
@@ -49,23 +123,39 @@ public class Dice {
      * @return a random number between 1 and 6 (inclusive).
      */
     private int rollDie() {
-        return 1 + new Random().nextInt(6);
+        return 1 + random.nextInt(6);
     }
 
     /**
-     * Returns both the set of attackerDice and defenderDice.
+     * Returns both the set of attackerDice and defenderDice. The arrays are
+     * copies of the last roll, so they can be sent to the observers.
      *
      * @return
      */
     public int[][] getDice() {
-        return new int[][]{attackerDice, defenderDice};
+        return new int[][]{getAttackerDice(), getDefenderDice()};
     }
 
     public int[] getAttackerDice() {
-        return attackerDice;
+        return Arrays.copyOf(attackerDice, nrA);
     }
 
     public int[] getDefenderDice() {
-        return defenderDice;
+        return Arrays.copyOf(defenderDice, nrD);
+    }
+
+    /**
+     * Copies the dice of the last roll into <code>dest</code>: the attacker's
+     * dice from <code>offset</code>, the defender's ones from
+     * <code>offset + MAX_DICE</code>, 0 for the dice that weren't rolled.
+     *
+     * @param dest
+     * @param offset
+     */
+    public void copyDice(int[] dest, int offset) {
+        for (int i = 0; i < MAX_DICE; i++) {
+            dest[offset + i] = (i < nrA) ? attackerDice[i] : 0;
+            dest[offset + MAX_DICE + i] = (i < nrD) ? defenderDice[i] : 0;
+        }
     }
 }
@@ -0,0 +1,106 @@
+package risiko.equipment;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fast, seedable stream of pseudo-random numbers (SplitMix64, the same
+ * generator of <code>java.util.SplittableRandom</code>).
+ *
+ * Every source of randomness of a game (dice, deck, assignment of the
+ * countries and missions, order of the players, artificial players) owns a
+ * stream split from the game's one, so that a game built with the same seed
+ * and driven by the same moves is replayed identically. Unlike
+ * <code>SplittableRandom</code> the state of a stream can be read and
+ * restored, so it can be saved with the game. A stream is not thread-safe:
+ * each thread must use its own.
+ */
+public class RandomStream {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final AtomicLong SEEDER = new AtomicLong(mix(System.currentTimeMillis()) ^ mix(System.nanoTime()));
+    private long state;
+
+    /**
+     * Creates a stream with a seed that is different at every call.
+     */
+    public RandomStream() {
+        this(mix(SEEDER.getAndAdd(2 * GOLDEN_GAMMA)));
+    }
+
+    /**
+     * Creates a stream with the seed <code>seed</code>: streams with the same
+     * seed return the same numbers.
+     *
+     * @param seed
+     */
+    public RandomStream(long seed) {
+        this.state = seed;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * Returns a number between 0 (inclusive) and <code>bound</code>
+     * (exclusive).
+     *
+     * @param bound a positive number.
+     * @return
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        // Multiply-shift on the high 32 bits: no division and a bias below bound / 2^32.
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * Returns a new stream, independent from this one, and advances this
+     * stream. Splitting in the same order always returns the same streams.
+     *
+     * @return
+     */
+    public RandomStream split() {
+        return new RandomStream(mix(nextLong()));
+    }
+
+    /**
+     * Shuffles <code>list</code> (Fisher-Yates).
+     *
+     * @param list
+     */
+    public <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    /**
+     * Returns the state of the stream, from which it can be restored with
+     * <code>setState</code>.
+     *
+     * @return
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
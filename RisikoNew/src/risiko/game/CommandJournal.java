@@ -0,0 +1,526 @@
+package risiko.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import shared.PlayerInfo;
+
+/**
+ * An append-only binary file recording the seed and the players of a game
+ * and then every command it has run, recorded before running it, so that the
+ * game can be rebuilt after a crash by replaying them (see
+ * <code>Game.recover</code>).
+ *
+ * A command only appends a few bytes to a buffer: the buffer is written and
+ * forced to the disk by a background thread, shared by the journals, a few
+ * milliseconds after the first command that follows the last write (or at
+ * once when it's full), so that many commands share the same write and the
+ * same fsync. The commands recorded since the last fsync are lost if the
+ * system crashes; <code>sync</code> waits for them to be on the disk.
+ *
+ * If a write fails, the journal is broken: it stops recording, and
+ * <code>sync</code> and <code>close</code> throw the failure.
+ *
+ * The file starts with a magic number and the version of the format, followed
+ * by frames: the length of the frame, its CRC32 and the recorded commands. A
+ * frame that is incomplete or corrupted, because it was being written when
+ * the application crashed, ends the journal, and it's removed when the
+ * journal is opened.
+ */
+public class CommandJournal implements Closeable {
+
+    /**
+     * The recorded commands, with the number of their arguments, which are
+     * all ints: countries are recorded by id (-1 for null), cards by ordinal
+     * and booleans as 0 or 1. <code>BEGIN</code> is the first record, with
+     * the seed and the players of the game.
+     */
+    public enum Op {
+
+        BEGIN(0), REINFORCE(1), PLAY_TRIS(3), SET_ATTACKER(1), SET_DEFENDER(1), SET_REATTACK(1), RESET_FIGHTING(0),
+        SET_ATTACKER_ARMIES(1), DECLARE_ATTACK(0), CONFIRM_ATTACK(1), BLITZ_ATTACK(4), CANCEL_ATTACK(0), RESET_MOVE(0),
+        SET_FROM(1), SET_TO(1), MOVE(3), SET_CONNECTED_MOVEMENT(1), NEXT_PHASE(0), END_GAME(0), TO_ARTIFICIAL_PLAYER(0);
+
+        private final int arity;
+
+        private Op(int arity) {
+            this.arity = arity;
+        }
+
+        public int getArity() {
+            return arity;
+        }
+    }
+
+    /**
+     * A recorded command.
+     */
+    public static final class Record {
+
+        private final Op op;
+        private final int[] args;
+
+        Record(Op op, int[] args) {
+            this.op = op;
+            this.args = args;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        public int getArg(int index) {
+            return args[index];
+        }
+    }
+
+    private static final int MAGIC = 0x524A4E4C; // "RJNL"
+    private static final short FORMAT = 1;
+    private static final int FILE_HEADER_BYTES = 6;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final long FLUSH_DELAY_MS = 5; // The longest time a command waits to be written.
+    private static final int BATCH_BYTES = 64 * 1024; // The size of the buffer that is written at once.
+    private static ScheduledExecutorService sharedFlusher;
+
+    private final FileChannel channel;
+    private final Object channelLock = new Object(); // Held while writing, so that a single batch is written at a time.
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer, spare; // The commands not written yet and the buffer to use after the next write.
+    private boolean flushScheduled, urgentFlushScheduled, closed;
+    private long appended, durable, batches, size; // Records appended and on the disk, fsyncs and bytes of the file.
+    private IOException failure; // The first failed write.
+    // The recovered game, if the journal wasn't empty.
+    private long seed;
+    private int countriesCount;
+    private List<PlayerInfo> players;
+    private List<Record> records;
+
+    private CommandJournal(FileChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BATCH_BYTES);
+        this.spare = ByteBuffer.allocate(BATCH_BYTES);
+        this.records = Collections.emptyList();
+    }
+
+    /**
+     * Opens the journal <code>path</code>, creating it if it doesn't exist.
+     * If it isn't empty, the recorded game is read (see
+     * <code>hasBeginning</code>) and the commands are recorded after it,
+     * removing the frame written during a crash, if any.
+     *
+     * @param path
+     * @return
+     * @throws IOException if the file isn't a journal or can't be read.
+     */
+    public static CommandJournal open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            CommandJournal journal = new CommandJournal(channel);
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+                header.putInt(MAGIC).putShort(FORMAT).flip();
+                writeFully(channel, header);
+                channel.force(true);
+                journal.size = FILE_HEADER_BYTES;
+            } else {
+                journal.read();
+            }
+            return journal;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the recorded game and truncates the file after its last valid
+     * frame.
+     *
+     * @throws IOException
+     */
+    private void read() throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Journal too large");
+        }
+        ByteBuffer file = ByteBuffer.allocate((int) channel.size());
+        while (file.hasRemaining() && channel.read(file, file.position()) >= 0) {
+        }
+        file.flip();
+        if (file.remaining() < FILE_HEADER_BYTES || file.getInt() != MAGIC || file.getShort() != FORMAT) {
+            throw new IOException("Not a command journal");
+        }
+        records = new ArrayList<>();
+        int valid = file.position();
+        while (file.remaining() >= FRAME_HEADER_BYTES) {
+            int length = file.getInt();
+            int checksum = file.getInt();
+            if (length <= 0 || length > file.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(file.array(), file.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            ByteBuffer frame = (ByteBuffer) file.slice().limit(length);
+            decode(frame);
+            file.position(file.position() + length);
+            valid = file.position();
+        }
+        channel.truncate(valid);
+        channel.position(valid);
+        size = valid;
+    }
+
+    /**
+     * Decodes the records of a frame.
+     *
+     * @param frame
+     * @throws IOException
+     */
+    private void decode(ByteBuffer frame) throws IOException {
+        try {
+            while (frame.hasRemaining()) {
+                int ordinal = frame.get();
+                if (ordinal < 0 || ordinal >= Op.values().length) {
+                    throw new IOException("Unknown command " + ordinal);
+                }
+                Op op = Op.values()[ordinal];
+                if (op == Op.BEGIN) {
+                    decodeBeginning(frame);
+                    continue;
+                }
+                int[] args = new int[op.getArity()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = frame.getInt();
+                }
+                records.add(new Record(op, args));
+            }
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Truncated command", ex);
+        }
+    }
+
+    private void decodeBeginning(ByteBuffer frame) throws IOException {
+        if (players != null) {
+            throw new IOException("The journal records more than a game");
+        }
+        seed = frame.getLong();
+        countriesCount = frame.getInt();
+        int nrPlayers = frame.get();
+        players = new ArrayList<>(nrPlayers);
+        for (int i = 0; i < nrPlayers; i++) {
+            players.add(new PlayerInfo(getString(frame), getString(frame), getString(frame)));
+        }
+    }
+
+    private static String getString(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.getShort()];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc=" Recovered game ">
+    /**
+     * Returns true if the journal records a game, i.e. if it wasn't empty
+     * when it was opened or if a game has started recording on it.
+     *
+     * @return
+     */
+    public synchronized boolean hasBeginning() {
+        return players != null;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of countries of the map of the recorded game.
+     *
+     * @return
+     */
+    public int getCountriesCount() {
+        return countriesCount;
+    }
+
+    /**
+     * Returns the players of the recorded game, as they were passed to the
+     * game.
+     *
+     * @return
+     */
+    public List<PlayerInfo> getPlayers() {
+        return Collections.unmodifiableList(players);
+    }
+
+    /**
+     * Returns the commands recorded before the journal was opened.
+     *
+     * @return
+     */
+    public List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+// </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc=" Recording ">
+    /**
+     * Records the beginning of a game. Called by the game before its first
+     * command.
+     *
+     * @param seed
+     * @param playersInfo
+     * @param countriesCount
+     */
+    synchronized void begin(long seed, List<PlayerInfo> playersInfo, int countriesCount) {
+        if (players != null) {
+            throw new IllegalStateException("The journal already records a game");
+        }
+        this.seed = seed;
+        this.countriesCount = countriesCount;
+        this.players = new ArrayList<>(playersInfo);
+        ByteBuffer beginning = ByteBuffer.allocate(BATCH_BYTES);
+        beginning.put((byte) Op.BEGIN.ordinal()).putLong(seed).putInt(countriesCount).put((byte) playersInfo.size());
+        for (PlayerInfo info : playersInfo) {
+            putString(beginning, info.getName());
+            putString(beginning, info.getColor());
+            putString(beginning, info.getType());
+        }
+        beginning.flip();
+        ensureCapacity(beginning.remaining());
+        buffer.put(beginning);
+        scheduleFlush();
+    }
+
+    /**
+     * Appends a command to the buffer. Called by the game within the
+     * command, so it doesn't wait for any I/O. Nothing is recorded once the
+     * journal is broken.
+     *
+     * @param op
+     * @param args
+     */
+    synchronized void record(Op op, int... args) {
+        if (closed || failure != null) {
+            return;
+        }
+        ensureCapacity(1 + 4 * args.length);
+        buffer.put((byte) op.ordinal());
+        for (int arg : args) {
+            buffer.putInt(arg);
+        }
+        appended++;
+        scheduleFlush();
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+            buffer.flip();
+            buffer = larger.put(buffer);
+        }
+    }
+
+    /**
+     * Schedules the write of the buffer, unless it's already scheduled; at
+     * once if the buffer is full.
+     */
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            getSharedFlusher().schedule(this::flushQuietly, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        if (!urgentFlushScheduled && buffer.position() >= BATCH_BYTES) {
+            urgentFlushScheduled = true;
+            getSharedFlusher().execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Returns the daemon thread that writes the journals.
+     *
+     * @return
+     */
+    private synchronized static ScheduledExecutorService getSharedFlusher() {
+        if (sharedFlusher == null) {
+            ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "command-journal");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flusher.setRemoveOnCancelPolicy(true);
+            sharedFlusher = flusher;
+        }
+        return sharedFlusher;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException ex) {
+            Logger.getLogger(CommandJournal.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Writes the buffer as a frame and forces it to the disk. The commands
+     * keep being appended to the other buffer in the meantime.
+     *
+     * @throws IOException
+     */
+    private void flush() throws IOException {
+        synchronized (channelLock) {
+            ByteBuffer batch;
+            long target;
+            synchronized (this) {
+                flushScheduled = false;
+                urgentFlushScheduled = false;
+                if (failure != null) {
+                    throw failure;
+                }
+                if (buffer.position() == 0 || closed) {
+                    return;
+                }
+                batch = buffer;
+                buffer = spare;
+                target = appended;
+            }
+            batch.flip();
+            crc.reset();
+            crc.update(batch.array(), 0, batch.limit());
+            frameHeader.clear();
+            frameHeader.putInt(batch.limit()).putInt((int) crc.getValue()).flip();
+            int bytes = FRAME_HEADER_BYTES + batch.limit();
+            try {
+                writeFully(channel, frameHeader);
+                writeFully(channel, batch);
+                channel.force(false);
+            } catch (IOException ex) {
+                synchronized (this) {
+                    failure = ex;
+                    buffer.clear(); // Never written.
+                }
+                throw ex;
+            }
+            batch.clear();
+            synchronized (this) {
+                spare = batch;
+                durable = target;
+                batches++;
+                size += bytes;
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns true if a write has failed, so the journal doesn't record the
+     * commands anymore.
+     *
+     * @return
+     */
+    public synchronized boolean isBroken() {
+        return failure != null;
+    }
+
+    /**
+     * Waits for the commands recorded so far to be on the disk.
+     *
+     * @throws IOException if a write has failed, now or before.
+     */
+    public void sync() throws IOException {
+        flush();
+    }
+
+    /**
+     * Syncs and closes the journal. The commands recorded afterwards are
+     * ignored.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            synchronized (channelLock) {
+                synchronized (this) {
+                    closed = true;
+                }
+                channel.close();
+            }
+        }
+    }
+
+// </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc=" Statistics ">
+    /**
+     * Returns the number of commands recorded since the journal was opened.
+     *
+     * @return
+     */
+    public synchronized long getRecordsCount() {
+        return appended;
+    }
+
+    /**
+     * Returns the number of commands recorded since the journal was opened
+     * that are on the disk.
+     *
+     * @return
+     */
+    public synchronized long getDurableCount() {
+        return durable;
+    }
+
+    /**
+     * Returns the number of frames written (and fsyncs) since the journal was
+     * opened.
+     *
+     * @return
+     */
+    public synchronized long getBatchesCount() {
+        return batches;
+    }
+
+    /**
+     * Returns the size of the file, without the commands not written yet.
+     *
+     * @return
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+// </editor-fold>
+}
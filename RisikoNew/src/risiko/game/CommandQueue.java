@@ -0,0 +1,276 @@
+package risiko.game;
+
+import exceptions.PendingOperationsException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the commands sent to a game by the GUI and by the artificial
+ * players: a single command runs at a time, in the order in which they have
+ * been submitted.
+ *
+ * The queue has no thread of its own. The thread that finds it idle becomes
+ * the writer and runs the queued commands, its own being the last one, while
+ * the others wait for theirs; then it leaves the queue to the next waiting
+ * thread, so it never runs the commands submitted after its own (the GUI
+ * never plays the turn of an artificial player). A command submitted by the
+ * writer (i.e. by a running command) runs at once.
+ *
+ * The notifications posted while a command runs are delivered by the thread
+ * that submitted it, after the command has finished: an observer that blocks
+ * (e.g. a dialog waiting for the defense) or that sends a command of its own
+ * never holds the queue.
+ */
+public class CommandQueue {
+
+    /**
+     * A command that can fail because of some pending operations.
+     *
+     * @param <T> the type of the result.
+     */
+    public interface Command<T> {
+
+        T execute() throws PendingOperationsException;
+    }
+
+    private final ConcurrentLinkedQueue<Entry<?>> entries;
+    private final AtomicReference<Thread> writer;
+    private final Runnable afterCommand;
+    private Entry<?> current; // The running command, accessed only by the writer.
+
+    /**
+     * Creates a queue that runs <code>afterCommand</code> after each command,
+     * before the command's result is returned.
+     *
+     * @param afterCommand
+     */
+    public CommandQueue(Runnable afterCommand) {
+        this.entries = new ConcurrentLinkedQueue<>();
+        this.writer = new AtomicReference<>();
+        this.afterCommand = afterCommand;
+    }
+
+    /**
+     * Runs <code>command</code> and returns its result, after delivering the
+     * notifications it has posted.
+     *
+     * @param <T>
+     * @param command
+     * @return
+     * @throws PendingOperationsException if thrown by the command.
+     */
+    public <T> T submit(Command<T> command) throws PendingOperationsException {
+        if (isWriter()) {
+            return command.execute();
+        }
+        Entry<T> entry = new Entry<>(command);
+        if (entries.isEmpty() && writer.compareAndSet(null, entry.thread)) {
+            try {
+                run(entry);
+            } finally {
+                release();
+            }
+        } else {
+            entries.add(entry);
+            await(entry);
+        }
+        if (entry.notifications != null) {
+            for (Runnable notification : entry.notifications) {
+                notification.run();
+            }
+        }
+        return entry.result();
+    }
+
+    /**
+     * Runs <code>command</code>, which doesn't fail because of pending
+     * operations.
+     *
+     * @param command
+     */
+    public void execute(Runnable command) {
+        try {
+            submit(() -> {
+                command.run();
+                return null;
+            });
+        } catch (PendingOperationsException ex) {
+            throw new IllegalStateException(ex); // Not thrown by a Runnable.
+        }
+    }
+
+    /**
+     * Returns the result of <code>query</code>, run between two commands.
+     *
+     * @param <T>
+     * @param query
+     * @return
+     */
+    public <T> T query(Supplier<T> query) {
+        try {
+            return submit(query::get);
+        } catch (PendingOperationsException ex) {
+            throw new IllegalStateException(ex); // Not thrown by a Supplier.
+        }
+    }
+
+    /**
+     * Queues <code>notification</code> to be delivered after the running
+     * command, if called by the writer.
+     *
+     * @param notification
+     * @return false if the caller isn't running a command, and so it has to
+     * deliver the notification by itself.
+     */
+    public boolean post(Runnable notification) {
+        if (!isWriter() || current == null) {
+            return false;
+        }
+        if (current.notifications == null) {
+            current.notifications = new ArrayList<>();
+        }
+        current.notifications.add(notification);
+        return true;
+    }
+
+    /**
+     * Queues <code>notification</code> to be delivered after the running
+     * command, before the notifications it has already posted, if called by
+     * the writer.
+     *
+     * @param notification
+     * @return false if the caller isn't running a command.
+     */
+    public boolean postFirst(Runnable notification) {
+        if (!isWriter() || current == null) {
+            return false;
+        }
+        if (current.notifications == null) {
+            current.notifications = new ArrayList<>();
+        }
+        current.notifications.add(0, notification);
+        return true;
+    }
+
+    /**
+     * Returns true if the calling thread is running a command.
+     *
+     * @return
+     */
+    public boolean isWriter() {
+        return writer.get() == Thread.currentThread();
+    }
+
+    /**
+     * Waits for the queued <code>entry</code> to be run. If the queue becomes
+     * idle in the meantime, the caller becomes the writer and runs the
+     * commands queued before <code>entry</code>, and then <code>entry</code>,
+     * unless the last writer has run it just before leaving the queue (an
+     * entry is removed from the queue only by the writer, when it runs it).
+     *
+     * @param entry
+     */
+    private void await(Entry<?> entry) {
+        boolean interrupted = false;
+        while (!entry.done) {
+            if (writer.compareAndSet(null, entry.thread)) {
+                try {
+                    while (!entry.done) {
+                        run(entries.poll());
+                    }
+                } finally {
+                    release();
+                }
+            } else {
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted(); // Otherwise park would return at once.
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the command of <code>entry</code>. Called by the writer, which may
+     * be running it for another thread: a failure of the command or of
+     * <code>afterCommand</code> is thrown to the thread that submitted it.
+     *
+     * @param entry
+     */
+    private void run(Entry<?> entry) {
+        current = entry;
+        try {
+            entry.run();
+            try {
+                afterCommand.run();
+            } catch (RuntimeException | Error ex) {
+                entry.fail(ex);
+            }
+        } finally {
+            current = null;
+            entry.done = true;
+            if (entry.thread != writer.get()) {
+                LockSupport.unpark(entry.thread);
+            }
+        }
+    }
+
+    /**
+     * Leaves the queue to the first waiting thread, if any.
+     */
+    private void release() {
+        writer.set(null);
+        Entry<?> next = entries.peek();
+        if (next != null) {
+            LockSupport.unpark(next.thread);
+        }
+    }
+
+    /**
+     * A submitted command, with its result and its notifications.
+     */
+    private static final class Entry<T> {
+
+        private final Command<T> command;
+        private final Thread thread;
+        private List<Runnable> notifications; // Created by the first notification.
+        private T result;
+        private Throwable failure;
+        private volatile boolean done;
+
+        Entry(Command<T> command) {
+            this.command = command;
+            this.thread = Thread.currentThread();
+        }
+
+        void run() {
+            try {
+                result = command.execute();
+            } catch (PendingOperationsException | RuntimeException | Error ex) {
+                failure = ex;
+            }
+        }
+
+        void fail(Throwable ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+        }
+
+        T result() throws PendingOperationsException {
+            if (failure instanceof PendingOperationsException) {
+                throw (PendingOperationsException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            return result;
+        }
+    }
+}
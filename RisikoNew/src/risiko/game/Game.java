@@ -8,46 +8,200 @@ import risiko.players.Player;
 import risiko.players.ArtificialPlayer;
 import exceptions.PendingOperationsException;
 import exceptions.WrongCallerException;
-import java.lang.reflect.Proxy;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import services.FileManager;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.function.Consumer;
 import utils.Observable;
 import utils.GameObserver;
-import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import risiko.equipment.Card;
+import risiko.equipment.RandomStream;
+import risiko.game.CommandJournal.Op;
+import risiko.map.CompactMapState;
 import risiko.map.Country;
+import risiko.map.CountrySet;
+import risiko.map.MapTopology;
 import risiko.map.RisikoMap;
 import risiko.players.ArtificialPlayerSettings;
 import risiko.players.LoggedPlayer;
 import services.Stringify;
+import shared.BattleOddsInfo;
+import shared.CountryInfo;
 import shared.PlayerInfo;
+import shared.StateDelta;
+import utils.BasicGameObserver;
 import utils.BasicObservable;
 
+/**
+ * A game of Risiko. The GUI and the artificial players change it through the
+ * commands of its <code>CommandQueue</code>, which runs one at a time, and
+ * read it from the last <code>GameSnapshot</code>, published after each
+ * command, without waiting for the running one. The notifications of a
+ * command are delivered when it has finished, by the thread that sent it, or
+ * queued to the observers with their own executor (e.g. the GUI). All the
+ * changes of the countries and of the players made by a command are notified
+ * together, in a single <code>StateDelta</code> delivered before the other
+ * notifications of the command.
+ *
+ * The accepted commands can be recorded in a <code>CommandJournal</code>, from
+ * which the game can be rebuilt after a crash: since all its randomness comes
+ * from the seed, replaying the same commands leads to the same state. The
+ * whole state of a game can also be saved and loaded, as a
+ * <code>SavedGame</code>.
+ */
 public class Game extends Observable implements GameProxy {
 
     private final RisikoMap map;
     private List<Player> players;
-    private Player activePlayer;
+    private List<Player> seats; // The players in the initial turn order, eliminated ones included.
+    private volatile Player activePlayer; // Read without locking by checkCallerIdentity.
     private int phaseIndex;
     private Phase[] phases;
+    private final long seed;
+    private final RandomStream random; // Splits the streams of the artificial players.
+    private final RandomStream deckRandom, diceRandom; // The streams of the deck and of the dice.
+    private final ArtificialPlayerSettings aiSettings;
+    private final TurnScheduler scheduler; // Runs the artificial players.
+    private final CommandQueue commands = new CommandQueue(this::afterCommand);
+    private volatile GameSnapshot snapshot;
+    private long version; // Written by the commands only.
+    private String[] seatNames; // The names of the seats, shared by the snapshots and the deltas.
+    private String[] seatColors, countryNames; // The colors of the seats and the names of the countries by id, shared by the deltas.
+    private int[] seatBonusArmies; // The bonus armies of each seat in the last delta.
+    private boolean[] eliminatedSeats; // The eliminated seats in the last delta.
+    private int[] changedCountries, changedSeats; // Reused by each command to find its changes.
+    private StateDelta folded; // The notifications of the running command to be folded into its delta, if any.
+    private final List<Consumer<BasicGameObserver>> held = new ArrayList<>(); // The other notifications of the running command.
+    private int activeSeat; // The seat of the active player in the last snapshot.
+    private List<String> cardNames = Collections.emptyList(); // The active player's cards in the last snapshot.
+    private CommandJournal journal; // Null if the commands aren't recorded, or while they are replayed.
+    private boolean replaying; // True while the journal is replayed.
 
     public Game(List<PlayerInfo> playersInfo, GameObserver observer) {
+        this(playersInfo, observer, new RandomStream().nextLong());
+    }
+
+    /**
+     * Creates a game which randomness (order of the players, assignment of
+     * countries and missions, deck, dice and artificial players) comes from
+     * <code>seed</code>: each of them uses its own stream, split from the
+     * game's one, so the same seed and the same moves replay the same game.
+     *
+     * @param playersInfo
+     * @param observer
+     * @param seed
+     */
+    public Game(List<PlayerInfo> playersInfo, GameObserver observer, long seed) {
+        this(playersInfo, observer, seed, null);
+    }
+
+    /**
+     * Creates a game with the given seed in which the artificial players use
+     * the settings <code>aiSettings</code> from the start (the default ones if
+     * null).
+     *
+     * @param playersInfo
+     * @param observer
+     * @param seed
+     * @param aiSettings
+     */
+    public Game(List<PlayerInfo> playersInfo, GameObserver observer, long seed, ArtificialPlayerSettings aiSettings) {
+        this(playersInfo, observer, seed, aiSettings, MapTopology.getDefault());
+    }
+
+    /**
+     * Creates a game played on the map <code>topology</code>. The game
+     * doesn't read any file nor any other global state (except to record the
+     * points of the logged players), so many games can be played at the same
+     * time, e.g. by a simulation.
+     *
+     * @param playersInfo
+     * @param observer
+     * @param seed
+     * @param aiSettings
+     * @param topology
+     */
+    public Game(List<PlayerInfo> playersInfo, GameObserver observer, long seed, ArtificialPlayerSettings aiSettings, MapTopology topology) {
+        this(playersInfo, observer, seed, aiSettings, topology, null);
+    }
+
+    /**
+     * Creates a game that records its commands in <code>journal</code> (if
+     * not null), which must not record another game. The journal isn't closed
+     * by the game.
+     *
+     * @param playersInfo
+     * @param observer
+     * @param seed
+     * @param aiSettings
+     * @param topology
+     * @param journal
+     */
+    public Game(List<PlayerInfo> playersInfo, GameObserver observer, long seed, ArtificialPlayerSettings aiSettings, MapTopology topology, CommandJournal journal) {
+        this(seed, aiSettings, topology);
+        this.addObserver(observer);
+        if (journal != null) {
+            journal.begin(seed, playersInfo, topology.getCountriesCount());
+        }
+        this.journal = journal;
+        init(playersInfo);
+        startArtificialPlayers();
+    }
+
+    private Game(long seed, ArtificialPlayerSettings aiSettings, MapTopology topology) {
 
+        this.seed = seed;
+        this.aiSettings = aiSettings;
+        this.scheduler = new TurnScheduler();
+        this.random = new RandomStream(seed);
         this.players = new ArrayList<>();
         this.activePlayer = null;
-        this.map = new RisikoMap();
+        this.map = new RisikoMap(topology, random.split());
+        this.deckRandom = random.split();
+        this.diceRandom = random.split();
         this.phaseIndex = 1;
-        this.addObserver(observer);
-        phases = new Phase[]{new CardsPhase(map), new ReinforcePhase(map), new FightPhase(map), new MovePhase(map)};
-        init(playersInfo);
+        phases = new Phase[]{new CardsPhase(map, deckRandom), new ReinforcePhase(map), new FightPhase(map, diceRandom), new MovePhase(map)};
 
     }
 
+    /**
+     * Rebuilds the game recorded in <code>journal</code>, replaying its
+     * commands, and goes on recording in it. The commands are replayed before
+     * <code>observer</code> and the artificial players start observing the
+     * game: then the observer is notified of the countries, the players and
+     * the phase, as at the beginning of a game. An attack declared and not
+     * confirmed when the journal ends is withdrawn.
+     *
+     * @param journal
+     * @param observer
+     * @param aiSettings
+     * @param topology the map of the recorded game.
+     * @return
+     * @throws IOException if the journal doesn't record a game on
+     * <code>topology</code>.
+     */
+    public static Game recover(CommandJournal journal, GameObserver observer, ArtificialPlayerSettings aiSettings, MapTopology topology) throws IOException {
+        if (!journal.hasBeginning()) {
+            throw new IOException("The journal doesn't record any game");
+        }
+        if (journal.getCountriesCount() != topology.getCountriesCount()) {
+            throw new IOException("The journal records a game on another map");
+        }
+        Game game = new Game(journal.getSeed(), aiSettings, topology);
+        game.replay(journal, observer);
+        return game;
+    }
+
+
     // <editor-fold defaultstate="collapsed" desc=" Getters ">
     /**
      * Returns the current phase (as a String).
@@ -56,8 +210,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String getPhase(ArtificialPlayer... aiCaller) {
-        return phases[phaseIndex].toString();
+    public String getPhase(ArtificialPlayer... aiCaller) {
+        return snapshot.getPhase();
     }
 
     /**
@@ -66,38 +220,272 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String getActivePlayerMission(ArtificialPlayer... aiCaller) {
-        return activePlayer.getMissionDescription();
+    public String getActivePlayerMission(ArtificialPlayer... aiCaller) {
+        return snapshot.getActivePlayerMission();
+    }
+
+    /**
+     * Returns the mission description of the player <code>playerName</code>,
+     * even if eliminated, or null if there isn't such a player.
+     *
+     * @param playerName
+     * @return
+     */
+    public String getMissionDescription(String playerName) {
+        return snapshot.getMissionDescription(playerName);
+    }
+
+    /**
+     * Returns the seed of the game.
+     *
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Saves the whole state of the game to <code>channel</code>, as it is
+     * between two commands: the map, the players with their missions, cards
+     * and bonus armies, the deck, the turn, the countries chosen for the
+     * fight and the movement and the state of the random streams, so that the
+     * loaded game goes on as this one would with the same commands.
+     *
+     * @param channel
+     * @throws IOException
+     */
+    public void save(WritableByteChannel channel) throws IOException {
+        commands.query(this::toSavedGame).write(channel);
+    }
+
+    /**
+     * Loads a game saved by <code>save</code> and starts it, with its
+     * artificial players: <code>observer</code> is notified of the countries,
+     * the players and the phase, as at the beginning of a game. An attack
+     * declared and not confirmed isn't saved. The loaded game doesn't record
+     * its commands in a journal. The artificial players of a game saved after
+     * its end aren't started.
+     *
+     * @param channel
+     * @param observer
+     * @param aiSettings
+     * @param topology the map of the saved game.
+     * @return
+     * @throws IOException if the data isn't a game saved on
+     * <code>topology</code>.
+     */
+    public static Game load(ReadableByteChannel channel, GameObserver observer, ArtificialPlayerSettings aiSettings, MapTopology topology) throws IOException {
+        SavedGame saved = SavedGame.read(channel);
+        if (saved.getCountriesCount() != topology.getCountriesCount()) {
+            throw new IOException("The game was saved on another map");
+        }
+        Game game = new Game(saved.seed, aiSettings, topology);
+        game.restore(saved);
+        game.addObserver(observer);
+        game.notifyCountriesAssignment(InfoFactory.buildAllCountryInfo(game.map));
+        game.notifyPlayersOrder(InfoFactory.buildPlayersInfo(game.players));
+        game.notifyPhaseChange(InfoFactory.buildPlayerInfo(game.activePlayer), game.getPhaseName());
+        if (game.phaseIndex == Phase.CARD_INDEX && !(game.activePlayer instanceof ArtificialPlayer)) {
+            game.notifyPlayCards(Stringify.toString(game.activePlayer.getBonusCards()));
+        }
+        if (!saved.ended) {
+            game.startArtificialPlayers();
+        }
+        return game;
+    }
+
+    /**
+     * Returns the state of the game after the last command. It doesn't wait
+     * for the running command.
+     *
+     * @return
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
     }
 
 // </editor-fold>
     // <editor-fold defaultstate="collapsed" desc=" Initialization ">
     /**
      * Initializes the game. Calls the methods to initialize the map and sets a
-     * random player as active player.
+     * random player as active player. The artificial players aren't started.
      */
     private void init(List<PlayerInfo> playersInfo) {
 
         buildPlayers(playersInfo);
         map.initGame(players);
+        seats = new ArrayList<>(players);
+        map.trackCompactState(seats);
         notifyCountriesAssignment(InfoFactory.buildAllCountryInfo(map));
         activePlayer = players.get(0);
         map.computeBonusArmies(activePlayer);
         notifyPlayersOrder(InfoFactory.buildPlayersInfo(players));
         notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), phases[phaseIndex].toString());
-        startArtificialPlayersThreads();
+        publishSnapshot();
     }
 
     /**
-     * Adds the artificial players as observers and starts their threads.
+     * Initializes the game and replays the commands of <code>journal</code>
+     * without any observer, then starts recording and observing.
+     *
+     * @param journal
+     * @param observer
      */
-    private void startArtificialPlayersThreads() {
-        for (Player playerThread : this.players) {
-            if (playerThread instanceof ArtificialPlayer) {
-                this.addObserver((ArtificialPlayer) playerThread);
-                new Thread((ArtificialPlayer) playerThread).start();
+    private void replay(CommandJournal journal, GameObserver observer) {
+        replaying = true;
+        init(journal.getPlayers());
+        for (CommandJournal.Record record : journal.getRecords()) {
+            try {
+                apply(record);
+            } catch (PendingOperationsException | RuntimeException ex) {
+                // It failed the same way when it was recorded.
+                Logger.getLogger(Game.class.getName()).log(Level.WARNING, "Replayed command refused", ex);
             }
         }
+        replaying = false;
+        this.journal = journal;
+        if (getFightPhase().isAttackInProgress()) {
+            commands.execute(() -> {
+                record(Op.CANCEL_ATTACK);
+                getFightPhase().cancelAttack();
+            });
+        }
+        this.addObserver(observer);
+        notifyCountriesAssignment(InfoFactory.buildAllCountryInfo(map));
+        notifyPlayersOrder(InfoFactory.buildPlayersInfo(players));
+        notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), getPhaseName());
+        startArtificialPlayers();
+    }
+
+    /**
+     * Replays a recorded command. The defense is confirmed on behalf of the
+     * defender, who confirmed it when it was recorded.
+     *
+     * @param record
+     * @throws PendingOperationsException if the command failed when it was
+     * recorded.
+     */
+    private void apply(CommandJournal.Record record) throws PendingOperationsException {
+        switch (record.getOp()) {
+            case REINFORCE:
+                reinforce(getCountryName(record.getArg(0)));
+                break;
+            case PLAY_TRIS:
+                String[] cards = new String[record.getOp().getArity()];
+                for (int i = 0; i < cards.length; i++) {
+                    cards[i] = Card.values()[record.getArg(i)].name();
+                }
+                playTris(cards);
+                break;
+            case SET_ATTACKER:
+                setAttackerCountry(getCountryName(record.getArg(0)));
+                break;
+            case SET_DEFENDER:
+                setDefenderCountry(getCountryName(record.getArg(0)));
+                break;
+            case SET_REATTACK:
+                setReattack(record.getArg(0) != 0);
+                break;
+            case RESET_FIGHTING:
+                resetFightingCountries();
+                break;
+            case SET_ATTACKER_ARMIES:
+                setAttackerArmies(record.getArg(0));
+                break;
+            case DECLARE_ATTACK:
+                declareAttack();
+                break;
+            case CONFIRM_ATTACK:
+                Player defender = getDefenderCountry().getOwner();
+                confirmAttack(record.getArg(0), (defender instanceof ArtificialPlayer) ? new ArtificialPlayer[]{(ArtificialPlayer) defender} : new ArtificialPlayer[0]);
+                break;
+            case BLITZ_ATTACK:
+                blitzAttack(getCountryName(record.getArg(0)), getCountryName(record.getArg(1)), record.getArg(2), record.getArg(3));
+                break;
+            case CANCEL_ATTACK:
+                getFightPhase().cancelAttack();
+                break;
+            case RESET_MOVE:
+                resetMoveCountries();
+                break;
+            case SET_FROM:
+                setFromCountry(getCountryName(record.getArg(0)));
+                break;
+            case SET_TO:
+                setToCountry(getCountryName(record.getArg(0)));
+                break;
+            case MOVE:
+                move(getCountryName(record.getArg(0)), getCountryName(record.getArg(1)), record.getArg(2));
+                break;
+            case SET_CONNECTED_MOVEMENT:
+                setConnectedMovement(record.getArg(0) != 0);
+                break;
+            case NEXT_PHASE:
+                nextPhase();
+                break;
+            case END_GAME:
+                endGame();
+                break;
+            case TO_ARTIFICIAL_PLAYER:
+                toArtificialPlayer();
+                break;
+        }
+    }
+
+    /**
+     * Records a command, within it and before it changes the game, if the
+     * game has a journal: a command that fails halfway is replayed up to the
+     * same failure.
+     *
+     * @param op
+     * @param args
+     */
+    private void record(Op op, int... args) {
+        if (journal != null) {
+            journal.record(op, args);
+        }
+    }
+
+    /**
+     * Returns the id of the country which name is <code>countryName</code>,
+     * or -1 if it's null.
+     *
+     * @param countryName
+     * @return
+     */
+    private int getCountryId(String countryName) {
+        return map.getTopology().getCountryId(countryName);
+    }
+
+    /**
+     * Returns the name of the country which id is <code>id</code>, or null if
+     * it's -1.
+     *
+     * @param id
+     * @return
+     */
+    private String getCountryName(int id) {
+        return (id < 0) ? null : map.getTopology().getMapPack().getCountryName(id);
+    }
+
+    /**
+     * Adds the artificial players as observers and starts them on the game's
+     * scheduler. They are all added before starting the first one, which
+     * could otherwise attack a player that isn't observing yet, and they are
+     * started from a copy of the list of players, which the first ones can
+     * change (eliminating a player) before the last one is started.
+     */
+    private void startArtificialPlayers() {
+        List<ArtificialPlayer> artificialPlayers = new ArrayList<>();
+        for (Player player : this.players) {
+            if (player instanceof ArtificialPlayer) {
+                artificialPlayers.add((ArtificialPlayer) player);
+                this.addObserver((ArtificialPlayer) player);
+            }
+        }
+        for (ArtificialPlayer player : artificialPlayers) {
+            player.start(scheduler);
+        }
     }
 
     /**
@@ -123,25 +511,168 @@ public class Game extends Observable implements GameProxy {
     private void buildPlayers(List<PlayerInfo> playersInfo) {
 
         Player player;
+        RandomStream order = random.split();
         for (PlayerInfo info : playersInfo) {
-            switch (info.getType()) {
-                case "ARTIFICIAL":
-                    player = new ArtificialPlayer(info.getName(), info.getColor(), (GameProxy) Proxy.newProxyInstance(GameProxy.class.getClassLoader(),
-                            new Class<?>[]{GameProxy.class},
-                            new GameInvocationHandler(this)));
-                    this.players.add(player);
-                    break;
-                case "NORMAL":
-                    this.players.add(new Player(info.getName(), info.getColor()));
-                    break;
-                case "LOGGED":
-                    this.players.add(new LoggedPlayer(info.getName(), info.getColor()));
-                    break;
-                default:
-                //
+            player = buildPlayer(info.getName(), info.getColor(), info.getType(), "ARTIFICIAL".equals(info.getType()) ? random.split() : null);
+            if (player != null) {
+                this.players.add(player);
             }
         }
-        Collections.shuffle(players);
+        order.shuffle(players);
+    }
+
+    /**
+     * Builds a player of type <code>type</code> (artificial, normal or
+     * logged), or returns null if the type is unknown.
+     *
+     * @param name
+     * @param color
+     * @param type
+     * @param aiRandom the stream of the decisions of an artificial player.
+     * @return
+     */
+    private Player buildPlayer(String name, String color, String type, RandomStream aiRandom) {
+        switch (type) {
+            case "ARTIFICIAL":
+                ArtificialPlayer player = new ArtificialPlayer(name, color, new GuardedGame(this), aiRandom);
+                if (aiSettings != null) {
+                    player.setSetting(aiSettings);
+                }
+                return player;
+            case "NORMAL":
+                return new Player(name, color);
+            case "LOGGED":
+                return new LoggedPlayer(name, color);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the type of <code>player</code>, as in its
+     * <code>PlayerInfo</code>.
+     *
+     * @param player
+     * @return
+     */
+    private static String getType(Player player) {
+        if (player instanceof ArtificialPlayer) {
+            return "ARTIFICIAL";
+        }
+        return (player instanceof LoggedPlayer) ? "LOGGED" : "NORMAL";
+    }
+
+    /**
+     * Copies the state of the game into a <code>SavedGame</code>, within a
+     * command.
+     *
+     * @return
+     */
+    private SavedGame toSavedGame() {
+        SavedGame saved = new SavedGame();
+        saved.seed = seed;
+        saved.randomState = random.getState();
+        saved.deckRandomState = deckRandom.getState();
+        saved.diceRandomState = diceRandom.getState();
+        saved.allocateSeats(seats.size());
+        for (int seat = 0; seat < seats.size(); seat++) {
+            Player player = seats.get(seat);
+            saved.names[seat] = player.getName();
+            saved.colors[seat] = player.getColor();
+            saved.types[seat] = getType(player);
+            saved.setFlags(seat, !players.contains(player), player.hasConqueredACountry());
+            saved.bonusArmies[seat] = player.getBonusArmies();
+            saved.missions[seat] = map.getMissionId(player.getMission());
+            saved.aiRandomStates[seat] = (player instanceof ArtificialPlayer) ? ((ArtificialPlayer) player).getRandom().getState() : 0;
+            saved.hands[seat] = toOrdinals(player.getBonusCards());
+        }
+        saved.deck = toOrdinals(getCardsPhase().getDeck().getCards());
+        saved.activeSeat = seats.indexOf(activePlayer);
+        saved.phaseIndex = phaseIndex;
+        Country attacker = getAttackerCountry(), defender = getDefenderCountry();
+        saved.attacker = (attacker == null) ? -1 : attacker.getId();
+        saved.defender = (defender == null) ? -1 : defender.getId();
+        saved.attackerArmies = getFightPhase().getAttackerArmies();
+        saved.reattack = getFightPhase().reattack();
+        Country from = getMovePhase().getFromCountry(), to = getMovePhase().getToCountry();
+        saved.from = (from == null) ? -1 : from.getId();
+        saved.to = (to == null) ? -1 : to.getId();
+        saved.connectedMovement = getMovePhase().isConnectedMovement();
+        saved.ended = scheduler.isShutdown();
+        CompactMapState state = map.copyTrackedState();
+        saved.owners = new byte[state.getCountriesCount()];
+        saved.armies = new int[state.getCountriesCount()];
+        for (int id = 0; id < state.getCountriesCount(); id++) {
+            saved.owners[id] = (byte) state.getOwner(id);
+            saved.armies[id] = state.getArmies(id);
+        }
+        return saved;
+    }
+
+    /**
+     * Restores the state of a saved game, before the game starts.
+     *
+     * @param saved
+     */
+    private void restore(SavedGame saved) {
+        random.setState(saved.randomState);
+        deckRandom.setState(saved.deckRandomState);
+        diceRandom.setState(saved.diceRandomState);
+        seats = new ArrayList<>(saved.getSeatsCount());
+        for (int seat = 0; seat < saved.getSeatsCount(); seat++) {
+            RandomStream aiRandom = new RandomStream(0);
+            aiRandom.setState(saved.aiRandomStates[seat]);
+            Player player = buildPlayer(saved.names[seat], saved.colors[seat], saved.types[seat], aiRandom);
+            player.setMission(map.getMission(saved.missions[seat]));
+            player.addBonusArmies(saved.bonusArmies[seat]);
+            player.setConqueredACountry(saved.hasConquered(seat));
+            for (byte card : saved.hands[seat]) {
+                player.addCard(Card.values()[card]);
+            }
+            seats.add(player);
+            if (!saved.isEliminated(seat)) {
+                players.add(player);
+            }
+        }
+        CompactMapState state = map.toCompactState(seats);
+        for (int id = 0; id < saved.owners.length; id++) {
+            state.setOwner(id, saved.owners[id]);
+            state.setArmies(id, saved.armies[id]);
+        }
+        map.restoreFromCompactState(state, seats);
+        map.trackCompactState(seats);
+        List<Card> deck = new ArrayList<>(saved.deck.length);
+        for (byte card : saved.deck) {
+            deck.add(Card.values()[card]);
+        }
+        getCardsPhase().getDeck().setCards(deck);
+        activePlayer = seats.get(saved.activeSeat);
+        phaseIndex = saved.phaseIndex;
+        getFightPhase().setAttackerCountry(getCountryName(saved.attacker));
+        getFightPhase().setDefenderCountry(getCountryName(saved.defender));
+        getFightPhase().setAttackerArmies(saved.attackerArmies);
+        getFightPhase().setReattack(saved.reattack);
+        getMovePhase().setFromCountry((saved.from < 0) ? null : map.getCountryById(saved.from));
+        getMovePhase().setToCountry((saved.to < 0) ? null : map.getCountryById(saved.to));
+        getMovePhase().setConnectedMovement(saved.connectedMovement);
+        if (saved.ended) {
+            scheduler.shutdown();
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * Returns the ordinals of <code>cards</code>.
+     *
+     * @param cards
+     * @return
+     */
+    private static byte[] toOrdinals(List<Card> cards) {
+        byte[] ordinals = new byte[cards.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = (byte) cards.get(i).ordinal();
+        }
+        return ordinals;
     }
 
 // </editor-fold>
@@ -163,8 +694,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String getLastCardDrawn(ArtificialPlayer... aiCaller) {
-        return activePlayer.getLastDrawnCard().name();
+    public String getLastCardDrawn(ArtificialPlayer... aiCaller) {
+        return snapshot.getLastCardDrawn();
     }
 
     /**
@@ -174,7 +705,7 @@ public class Game extends Observable implements GameProxy {
      */
     private void drawBonusCard() {
         getCardsPhase().drawCard(activePlayer);
-        notifyDrawnCard(getLastCardDrawn(), activePlayer instanceof ArtificialPlayer);
+        notifyDrawnCard(activePlayer.getLastDrawnCard().name(), activePlayer instanceof ArtificialPlayer);
     }
 
     /**
@@ -185,8 +716,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized List<String> getCardsNames(ArtificialPlayer... aiCaller) {
-        return Stringify.toString(activePlayer.getBonusCards());
+    public List<String> getCardsNames(ArtificialPlayer... aiCaller) {
+        return snapshot.getCardsNames();
     }
 
     /**
@@ -208,8 +739,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized Map<String[], Integer> getPlayableTris(ArtificialPlayer... aiCaller) {
-        return Stringify.toString(getCardsPhase().getPlayableTris(activePlayer));
+    public Map<String[], Integer> getPlayableTris(ArtificialPlayer... aiCaller) {
+        return snapshot.getPlayableTris();
     }
 
     /**
@@ -231,15 +762,22 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void playTris(String[] cardsNames, ArtificialPlayer... aiCaller) {
-        getCardsPhase().playTris(cardsNames, activePlayer);
+        commands.execute(() -> {
+            record(Op.PLAY_TRIS, getCardOrdinal(cardsNames, 0), getCardOrdinal(cardsNames, 1), getCardOrdinal(cardsNames, 2));
+            getCardsPhase().playTris(cardsNames, activePlayer);
 
-        notifyPlayedTris();
-        try {
-            nextPhase();
-        } catch (PendingOperationsException ex) {
-            Logger.getLogger(Game.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), phases[phaseIndex].toString());
+            notifyPlayedTris();
+            try {
+                changePhase();
+            } catch (PendingOperationsException ex) {
+                Logger.getLogger(Game.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), phases[phaseIndex].toString());
+        });
+    }
+
+    private static int getCardOrdinal(String[] cardsNames, int index) {
+        return Card.valueOf(cardsNames[index]).ordinal();
     }
 
 // </editor-fold>
@@ -264,19 +802,19 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void reinforce(String countryName, ArtificialPlayer... aiCaller) {
+        commands.execute(() -> {
+            record(Op.REINFORCE, getCountryId(countryName));
+            getReinforcePhase().reinforce(getCountry(countryName));
 
-        getReinforcePhase().reinforce(getCountry(countryName));
-
-        notifyReinforce(activePlayer.getBonusArmies());
+            notifyReinforce(activePlayer.getBonusArmies());
 
-        if (activePlayer.getBonusArmies() == 0) {
-            try {
-                nextPhase();
-            } catch (PendingOperationsException ex) {
+            if (activePlayer.getBonusArmies() == 0) {
+                try {
+                    changePhase();
+                } catch (PendingOperationsException ex) {
+                }
             }
-        }
-
-        notifyArmiesChange(InfoFactory.buildCountryInfo(getCountry(countryName)));
+        });
     }
 
     /**
@@ -287,7 +825,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean canReinforce(ArtificialPlayer... aiCaller) {
-        return activePlayer.getBonusArmies() > 0;
+        return snapshot.getActivePlayerBonusArmies() > 0;
     }
 
 // </editor-fold>
@@ -310,8 +848,11 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void setAttackerCountry(String attackerCountryName, ArtificialPlayer... aiCaller) {
-        getFightPhase().setAttackerCountry(attackerCountryName);
-        notifySetAttacker(InfoFactory.buildCountryInfo(true, getFightPhase()));
+        commands.execute(() -> {
+            record(Op.SET_ATTACKER, getCountryId(attackerCountryName));
+            getFightPhase().setAttackerCountry(attackerCountryName);
+            notifySetAttacker(InfoFactory.buildCountryInfo(true, getFightPhase()));
+        });
     }
 
     /**
@@ -322,8 +863,11 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void setDefenderCountry(String defenderCountryName, ArtificialPlayer... aiCaller) {
-        getFightPhase().setDefenderCountry(defenderCountryName);
-        ((BasicObservable) this).notifySetDefender(InfoFactory.buildFightingCountriesInfo(getFightPhase()), getFightPhase().reattack());
+        commands.execute(() -> {
+            record(Op.SET_DEFENDER, getCountryId(defenderCountryName));
+            getFightPhase().setDefenderCountry(defenderCountryName);
+            ((BasicObservable) this).notifySetDefender(InfoFactory.buildFightingCountriesInfo(getFightPhase()), getFightPhase().reattack());
+        });
     }
 
     /**
@@ -334,7 +878,10 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void setReattack(boolean reattack, ArtificialPlayer... aiCaller) {
-        getFightPhase().setReattack(reattack);
+        commands.execute(() -> {
+            record(Op.SET_REATTACK, reattack ? 1 : 0);
+            getFightPhase().setReattack(reattack);
+        });
     }
 
     /**
@@ -344,8 +891,11 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void resetFightingCountries(ArtificialPlayer... aiCaller) {
-        getFightPhase().resetFightingCountries();
-        notifySetAttacker(null);
+        commands.execute(() -> {
+            record(Op.RESET_FIGHTING);
+            getFightPhase().resetFightingCountries();
+            notifySetAttacker(null);
+        });
     }
 
     /**
@@ -356,7 +906,10 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void setAttackerArmies(int nrA, ArtificialPlayer... aiCaller) {
-        getFightPhase().setAttackerArmies(nrA);
+        commands.execute(() -> {
+            record(Op.SET_ATTACKER_ARMIES, nrA);
+            getFightPhase().setAttackerArmies(nrA);
+        });
     }
 
     /**
@@ -367,8 +920,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String getAttackerCountryName(ArtificialPlayer... aiCaller) {
-        return (getAttackerCountry() == null) ? null : getAttackerCountry().toString();
+    public String getAttackerCountryName(ArtificialPlayer... aiCaller) {
+        return snapshot.getAttackerCountryName();
     }
 
     /**
@@ -377,8 +930,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String getDefenderCountryName(ArtificialPlayer... aiCaller) {
-        return (getDefenderCountry() == null) ? null : getDefenderCountry().toString();
+    public String getDefenderCountryName(ArtificialPlayer... aiCaller) {
+        return snapshot.getDefenderCountryName();
     }
 
     /**
@@ -390,32 +943,84 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void declareAttack(ArtificialPlayer... aiCaller) {
-        getFightPhase().declareAttack();
-        notifyDefender(InfoFactory.buildCountryInfo(false, getFightPhase()), getFightPhase().getAttackerArmies());
+        commands.execute(() -> {
+            record(Op.DECLARE_ATTACK);
+            getFightPhase().declareAttack();
+            notifyDefender(InfoFactory.buildCountryInfo(false, getFightPhase()), getFightPhase().getAttackerArmies());
+        });
     }
 
     /**
-     * Performs the attack.
+     * Performs the attack. A defense that isn't sent by the defender is
+     * refused and logged.
      *
      * @param nrD
      * @param aiCaller
      */
     @Override
     public void confirmAttack(int nrD, ArtificialPlayer... aiCaller) {
+        commands.execute(() -> {
+            if (!getFightPhase().canCallDefenseMethods(aiCaller)) {
+                // Not recorded, since it could be accepted when replayed.
+                Logger.getLogger(Game.class.getName()).log(Level.SEVERE, null, new WrongCallerException("Defense refused: not sent by the defender"));
+                return;
+            }
+            record(Op.CONFIRM_ATTACK, nrD);
+            try {
+                getFightPhase().confirmAttack(nrD, aiCaller);
+            } catch (WrongCallerException ex) {
+                Logger.getLogger(Game.class.getName()).log(Level.SEVERE, null, ex);
+                return;
+            } catch (PlayerLossException ex) {
+                removeLoser(ex.getLoserPlayer());
+            }
+            notifyAttackResult(InfoFactory.buildAttackResultInfo(getFightPhase(), map));
+            checkWon();
+        });
+    }
 
-        try {
-            getFightPhase().confirmAttack(nrD, aiCaller);
-        } catch (WrongCallerException ex) {
-            return;
-        } catch (PlayerLossException ex) {
-            if (map.hasLost(getPlayerByName(ex.getLoserPlayer()))) {
-                players.remove(getPlayerByName(ex.getLoserPlayer()));
-                notifyPlayersOrder(InfoFactory.buildPlayersInfo(players));
+    /**
+     * Resolves a whole battle between <code>attackerCountryName</code> and
+     * <code>defenderCountryName</code> and notifies its result.
+     *
+     * @param attackerCountryName
+     * @param defenderCountryName
+     * @param minArmies
+     * @param maxRounds
+     * @param aiCaller
+     */
+    @Override
+    public void blitzAttack(String attackerCountryName, String defenderCountryName, int minArmies, int maxRounds, ArtificialPlayer... aiCaller) {
+        commands.execute(() -> {
+            Country attacker = getCountry(attackerCountryName);
+            Country defender = getCountry(defenderCountryName);
+            if (phaseIndex != Phase.FIGHT_INDEX || getFightPhase().isAttackInProgress() || !attacker.controlAttacker(activePlayer)
+                    || !attacker.controlDefender(defender) || attacker.getArmies() <= Math.max(1, minArmies)) {
+                return;
+            }
+            record(Op.BLITZ_ATTACK, attacker.getId(), defender.getId(), minArmies, maxRounds);
+            getFightPhase().setAttackerCountry(attackerCountryName);
+            getFightPhase().setDefenderCountry(defenderCountryName);
+            try {
+                getFightPhase().blitz(minArmies, maxRounds);
+            } catch (PlayerLossException ex) {
+                removeLoser(ex.getLoserPlayer());
             }
+            notifyAttackResult(InfoFactory.buildBlitzResultInfo(getFightPhase(), map));
+            checkWon();
+        });
+    }
+
+    /**
+     * Removes the player which name is <code>loserName</code> from the turns
+     * if it has lost all its countries.
+     *
+     * @param loserName
+     */
+    private void removeLoser(String loserName) {
+        if (map.hasLost(getPlayerByName(loserName))) {
+            players.remove(getPlayerByName(loserName));
         }
-        notifyArmiesChangeAfterAttack(getAttackerCountry(), getDefenderCountry());
-        notifyAttackResult(InfoFactory.buildAttackResultInfo(getFightPhase(), map));
-        checkWon();
     }
 
     /**
@@ -434,11 +1039,15 @@ public class Game extends Observable implements GameProxy {
     }
 
     /**
-     * Checks if <code>activePlayer</code> has won and acts accordingly.
+     * Checks if <code>activePlayer</code> has won and acts accordingly. The
+     * points aren't recorded again when the victory is replayed.
      */
     private void checkWon() {
         if (hasWon()) {
-            recordEarnedPoints();
+            if (!replaying) {
+                recordEarnedPoints();
+            }
+            scheduler.shutdown();
         }
         /*if (hasLost(getDefenderCountry().getOwner())) {
             players.remove(getDefenderCountry().getOwner());
@@ -472,7 +1081,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean isReadyToFight(ArtificialPlayer... aiCaller) {
-        return getFightPhase().isReadyToFight(phaseIndex);
+        return snapshot.isReadyToFight();
     }
 
     /**
@@ -484,7 +1093,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean controlDefender(String defenderCountryName, ArtificialPlayer... aiCaller) {
-        return getFightPhase().controlDefender(defenderCountryName);
+        return snapshot.controlDefender(defenderCountryName);
     }
 
     /**
@@ -497,8 +1106,23 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized int getMaxArmies(String countryName, boolean isAttacker, ArtificialPlayer... aiCaller) {
-        return getFightPhase().getMaxArmies(getCountry(countryName), isAttacker);
+    public int getMaxArmies(String countryName, boolean isAttacker, ArtificialPlayer... aiCaller) {
+        return snapshot.getMaxArmies(countryName, isAttacker);
+    }
+
+    /**
+     * Returns the odds of a battle between the country which name is
+     * <code>attackerCountryName</code> and the one which name is
+     * <code>defenderCountryName</code>.
+     *
+     * @param attackerCountryName
+     * @param defenderCountryName
+     * @param aiCaller
+     * @return
+     */
+    @Override
+    public BattleOddsInfo getBattleOdds(String attackerCountryName, String defenderCountryName, ArtificialPlayer... aiCaller) {
+        return snapshot.getBattleOdds(attackerCountryName, defenderCountryName);
     }
 
     /**
@@ -542,8 +1166,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized int getMaxArmiesForMovement(String fromCountryName, ArtificialPlayer... aiCaller) {
-        return getMovePhase().getMaxArmiesForMovement(getCountry(fromCountryName));
+    public int getMaxArmiesForMovement(String fromCountryName, ArtificialPlayer... aiCaller) {
+        return snapshot.getMaxArmiesForMovement(fromCountryName);
     }
 
     /**
@@ -553,8 +1177,11 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void resetMoveCountries(ArtificialPlayer... aiCaller) {
-        getMovePhase().clear();
-        notifySetFromCountry(null);
+        commands.execute(() -> {
+            record(Op.RESET_MOVE);
+            getMovePhase().clear();
+            notifySetFromCountry(null);
+        });
     }
 
     /**
@@ -565,8 +1192,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String getFromCountryName(ArtificialPlayer... aiCaller) {
-        return (getMovePhase().getFromCountry() == null) ? null : getMovePhase().getFromCountry().toString();
+    public String getFromCountryName(ArtificialPlayer... aiCaller) {
+        return snapshot.getFromCountryName();
     }
 
     /**
@@ -577,8 +1204,11 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void setFromCountry(String fromCountryName, ArtificialPlayer... aiCaller) {
-        getMovePhase().setFromCountry(getCountry(fromCountryName));
-        notifySetFromCountry(fromCountryName);
+        commands.execute(() -> {
+            record(Op.SET_FROM, getCountryId(fromCountryName));
+            getMovePhase().setFromCountry(getCountry(fromCountryName));
+            notifySetFromCountry(fromCountryName);
+        });
     }
 
     /**
@@ -589,7 +1219,10 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void setToCountry(String toCountryName, ArtificialPlayer... aiCaller) {
-        getMovePhase().setToCountry(getCountry(toCountryName));
+        commands.execute(() -> {
+            record(Op.SET_TO, getCountryId(toCountryName));
+            getMovePhase().setToCountry(getCountry(toCountryName));
+        });
     }
 
     /**
@@ -603,16 +1236,31 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void move(String fromCountryName, String toCountryName, Integer nrArmies, ArtificialPlayer... aiCaller) {
-        getMovePhase().move(getCountry(fromCountryName), getCountry(toCountryName), nrArmies);
-        notifyArmiesChange(InfoFactory.buildCountryInfo(getMovePhase().getToCountry()));
-        notifyArmiesChange(InfoFactory.buildCountryInfo(getMovePhase().getFromCountry()));
-
-        if (getPhase().equals("MOVE")) {
-            try {
-                nextPhase();
-            } catch (PendingOperationsException ex) {
+        commands.execute(() -> {
+            record(Op.MOVE, getCountryId(fromCountryName), getCountryId(toCountryName), nrArmies);
+            getMovePhase().move(getCountry(fromCountryName), getCountry(toCountryName), nrArmies);
+
+            if (phaseIndex == Phase.MOVE_INDEX) {
+                try {
+                    changePhase();
+                } catch (PendingOperationsException ex) {
+                }
             }
-        }
+        });
+    }
+
+    /**
+     * Enables or disables the rule that lets the active player move its armies
+     * to any of its countries connected to the one from which it moves,
+     * instead of only to the adjacent ones.
+     *
+     * @param connectedMovement
+     */
+    public void setConnectedMovement(boolean connectedMovement) {
+        commands.execute(() -> {
+            record(Op.SET_CONNECTED_MOVEMENT, connectedMovement ? 1 : 0);
+            getMovePhase().setConnectedMovement(connectedMovement);
+        });
     }
 
     /**
@@ -623,7 +1271,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean controlMovement(ArtificialPlayer... aiCaller) {
-        return getMovePhase().controlMovement();
+        return snapshot.controlMovement();
     }
 
     /**
@@ -635,7 +1283,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean controlMovement(String toCountryName, ArtificialPlayer... aiCaller) {
-        return getMovePhase().controlMovement(getCountry(toCountryName));
+        return snapshot.controlMovement(toCountryName);
     }
 
 // </editor-fold>
@@ -650,19 +1298,32 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public void nextPhase(ArtificialPlayer... aiCaller) throws PendingOperationsException {
-        if (getPhase().equals("PLAY_CARDS")) {
+        commands.submit(() -> {
+            record(Op.NEXT_PHASE);
+            changePhase();
+            return null;
+        });
+    }
+
+    /**
+     * Changes the phase, within a command.
+     *
+     * @throws PendingOperationsException
+     */
+    private void changePhase() throws PendingOperationsException {
+        if (getPhaseName().equals("PLAY_CARDS")) {
             notifyPlayedTris(); //to hide showCardButton and cardPanel
         }
 
-        if (getPhase().equals("REINFORCE") && activePlayer.getBonusArmies() != 0) {
+        if (getPhaseName().equals("REINFORCE") && activePlayer.getBonusArmies() != 0) {
             throw new PendingOperationsException("You still have some bonus armies to place!");
         }
 
-        if (getPhase().equals("FIGHT") && getFightPhase().isAttackInProgress()) {
+        if (getPhaseName().equals("FIGHT") && getFightPhase().isAttackInProgress()) {
             throw new PendingOperationsException("Attack still in progress!");
         }
 
-        if (getPhase().equals("FIGHT") && activePlayer.hasConqueredACountry()) {
+        if (getPhaseName().equals("FIGHT") && activePlayer.hasConqueredACountry()) {
             this.drawBonusCard();
         }
         
@@ -673,7 +1334,16 @@ public class Game extends Observable implements GameProxy {
         }
         phaseIndex++;
         phases[phaseIndex].clear();
-        notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), getPhase());
+        notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), getPhaseName());
+    }
+
+    /**
+     * Returns the current phase, within a command.
+     *
+     * @return
+     */
+    private String getPhaseName() {
+        return phases[phaseIndex].toString();
     }
 
     /**
@@ -691,13 +1361,13 @@ public class Game extends Observable implements GameProxy {
         }
 
         activePlayer.setConqueredACountry(false);
-        if (!getCardsNames().isEmpty() && !(activePlayer instanceof ArtificialPlayer)) {
-            notifyPlayCards(getCardsNames());
+        if (!activePlayer.getBonusCards().isEmpty() && !(activePlayer instanceof ArtificialPlayer)) {
+            notifyPlayCards(Stringify.toString(activePlayer.getBonusCards()));
         }
         map.computeBonusArmies(activePlayer);
-        phaseIndex = (!getCardsNames().isEmpty())? Phase.CARD_INDEX:Phase.REINFORCE_INDEX;
+        phaseIndex = (!activePlayer.getBonusCards().isEmpty())? Phase.CARD_INDEX:Phase.REINFORCE_INDEX;
         phases[phaseIndex].clear();
-        notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), getPhase());
+        notifyPhaseChange(InfoFactory.buildPlayerInfo(activePlayer), getPhaseName());
     }
 
 // </editor-fold>
@@ -732,7 +1402,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean controlAttacker(String countryName, ArtificialPlayer... aiCaller) {
-        return getCountry(countryName).controlAttacker(activePlayer);
+        return snapshot.controlAttacker(countryName);
     }
 
     /**
@@ -745,7 +1415,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean canMoveFromHere(String countryName, ArtificialPlayer... aiCaller) {
-        return getCountry(countryName).canMove(activePlayer);
+        return snapshot.canMoveFromHere(countryName);
     }
 
     /**
@@ -757,7 +1427,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean isCountryOwner(String countryName, ArtificialPlayer... aiCaller) {
-        return getCountry(countryName).isMyOwner(activePlayer);
+        return snapshot.isCountryOwner(countryName);
     }
 
     /**
@@ -769,7 +1439,7 @@ public class Game extends Observable implements GameProxy {
      */
     @Override
     public boolean canAttackFromCountry(String attackerCountryName, ArtificialPlayer... aiCaller) {
-        return getCountry(attackerCountryName).canAttack();
+        return snapshot.canAttackFromCountry(attackerCountryName);
     }
 
 // </editor-fold>
@@ -782,8 +1452,8 @@ public class Game extends Observable implements GameProxy {
      * @return i territori posseduti da player
      */
     @Override
-    public synchronized List<String> getMyCountries(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
-        return Stringify.toString(this.map.getMyCountries(player));
+    public List<String> getMyCountries(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
+        return snapshot.getMyCountries(player.getName());
     }
 
     /**
@@ -793,8 +1463,8 @@ public class Game extends Observable implements GameProxy {
      * @return i territori posseduti da player
      */
     @Override
-    public synchronized List<String> getNeighbors(ArtificialPlayer player, String country, ArtificialPlayer... aiCaller) {
-        return Stringify.toString(this.map.getNeighbors(getCountry(country)));
+    public List<String> getNeighbors(ArtificialPlayer player, String country, ArtificialPlayer... aiCaller) {
+        return snapshot.getNeighbors(country);
     }
 
     /**
@@ -805,8 +1475,20 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String[] getAllAttackers(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
-        return this.map.getMyCountries(player).stream().filter(element -> this.canAttackFromCountry(element.getName(), player)).map(element -> element.getName()).toArray(size -> new String[size]);
+    public String[] getAllAttackers(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
+        return snapshot.getAllAttackers(player.getName());
+    }
+
+    /**
+     * Returns the number of countries held by the
+     * <code>ArtificialPlayer player</code>, from which it can launch an attack.
+     *
+     * @param player
+     * @return
+     */
+    @Override
+    public int countAttackers(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
+        return snapshot.countAttackers(player.getName());
     }
 
     /**
@@ -816,13 +1498,8 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public synchronized String[] getAllDefenders(String attacker, ArtificialPlayer... aiCaller) {
-        String[] defenders = map.getNeighbors(getCountry(attacker)).stream().filter(element
-                -> {
-            return getCountry(attacker).controlDefender(element);
-        }).map(element -> element.getName()).toArray(size -> new String[size]);
-
-        return defenders;
+    public String[] getAllDefenders(String attacker, ArtificialPlayer... aiCaller) {
+        return snapshot.getAllDefenders(attacker);
     }
 
 // </editor-fold>
@@ -839,10 +1516,13 @@ public class Game extends Observable implements GameProxy {
      * means that the method was called by an artificial Player, and it will
      * return true only if that artificial player is the activePlayer).
      *
+     * It doesn't lock the game: it's called before every call filtered by
+     * <code>GuardedGame</code>.
+     *
      * @param aiCaller
      * @return
      */
-    public synchronized boolean checkCallerIdentity(ArtificialPlayer[] aiCaller) {
+    public boolean checkCallerIdentity(ArtificialPlayer[] aiCaller) {
         return (aiCaller.length == 0) ? !(activePlayer instanceof ArtificialPlayer) : aiCaller[0].equals(activePlayer);
     }
 
@@ -853,7 +1533,7 @@ public class Game extends Observable implements GameProxy {
      * @return
      */
     @Override
-    public boolean checkMyIdentity(ArtificialPlayer[] aiCaller) {
+    public boolean checkMyIdentity(ArtificialPlayer... aiCaller) {
         boolean checkCallerIdentityPassed = true;
         /* If the caller is not an active player, the call to the method would 
         have been filtered by the proxy. 
@@ -874,34 +1554,293 @@ public class Game extends Observable implements GameProxy {
     }
 
     /**
-     * Notifies the change of both the attacker country and the defender
-     * country.
+     * Holds back the notifications sent by a command, which are delivered
+     * after it by the thread that has sent it, together with its delta (but
+     * the essential ones, which are delivered on their own).
      *
-     * @param attackerCountry
-     * @param defenderCountry
+     * @param notification
      */
-    private void notifyArmiesChangeAfterAttack(Country attackerCountry, Country defenderCountry) {
-        notifyArmiesChange(InfoFactory.buildCountryInfo(defenderCountry));
-        notifyArmiesChange(InfoFactory.buildCountryInfo(attackerCountry));
+    @Override
+    protected void publish(Consumer<BasicGameObserver> notification) {
+        if (commands.isWriter() && !isEssential(notification)) {
+            held.add(notification);
+        } else if (!commands.post(() -> deliver(notification))) {
+            deliver(notification);
+        }
     }
 
     /**
-     * Ends the game.
+     * Folds the notification into the delta of the running command, if any.
+     *
+     * @param bonusArmies
+     */
+    @Override
+    public void notifyReinforce(int bonusArmies) {
+        if (!fold(StateDelta.ofReinforce(bonusArmies))) {
+            super.notifyReinforce(bonusArmies);
+        }
+    }
+
+    /**
+     * Folds the notification into the delta of the running command, if any.
+     *
+     * @param player
+     * @param phase
+     */
+    @Override
+    public void notifyPhaseChange(PlayerInfo player, String phase) {
+        if (!fold(StateDelta.ofPhaseChange(player, phase))) {
+            super.notifyPhaseChange(player, phase);
+        }
+    }
+
+    /**
+     * Folds the notification into the delta of the running command, if any.
+     *
+     * @param attackerInfo
+     */
+    @Override
+    public void notifySetAttacker(CountryInfo attackerInfo) {
+        if (!fold(StateDelta.ofSetAttacker(attackerInfo))) {
+            super.notifySetAttacker(attackerInfo);
+        }
+    }
+
+    /**
+     * Folds the notification into the delta of the running command, if any.
+     *
+     * @param fightingCountries
+     * @param reattack
+     */
+    @Override
+    public void notifySetDefender(CountryInfo[] fightingCountries, boolean reattack) {
+        if (!fold(StateDelta.ofSetDefender(fightingCountries, reattack))) {
+            super.notifySetDefender(fightingCountries, reattack);
+        }
+    }
+
+    /**
+     * Adds <code>notification</code> to the ones to be folded into the delta
+     * of the running command.
+     *
+     * @param notification
+     * @return false if the caller isn't running a command.
+     */
+    private boolean fold(StateDelta notification) {
+        if (!commands.isWriter()) {
+            return false;
+        }
+        folded = (folded == null) ? notification : folded.merge(notification);
+        return true;
+    }
+
+    /**
+     * Sends to <code>observer</code> the countries, the players and the
+     * phase, as at the beginning of the game, and asks again what a human
+     * player may be waiting to be asked: to play its cards or to defend. They
+     * are read from the last snapshot, so it doesn't wait for the running
+     * command.
+     *
+     * @param observer
+     */
+    @Override
+    protected void resynchronize(BasicGameObserver observer) {
+        GameSnapshot state = snapshot;
+        if (observer instanceof GameObserver) {
+            ((GameObserver) observer).updateOnCountriesAssignment(state.getCountriesInfo());
+            ((GameObserver) observer).updatePlayersOrder(state.getPlayersInfo());
+        }
+        observer.updateOnPhaseChange(state.getActivePlayerInfo(), state.getPhase());
+        if (state.getPhase().equals("PLAY_CARDS") && !state.isActivePlayerArtificial() && observer instanceof GameObserver) {
+            ((GameObserver) observer).updateOnPlayCards(state.getCardsNames());
+        }
+        CountryInfo defenderInfo = state.getDefenderInfo();
+        if (defenderInfo != null) {
+            observer.updateOnDefend(defenderInfo, state.getAttackerArmies());
+        }
+    }
+
+    /**
+     * Publishes the state of the game and the changes made by the command
+     * that has just run.
+     */
+    private void afterCommand() {
+        CompactMapState before = snapshot.getMapState();
+        publishSnapshot();
+        publishStateDelta(before, snapshot.getMapState());
+    }
+
+    /**
+     * Notifies the changes of the countries from <code>before</code> to
+     * <code>after</code> and the changes of the players since the last delta,
+     * together with the notifications folded by the command and then its other
+     * notifications, if any, so that the command sends a single notification.
+     * It's posted before the essential notifications of the command, and it's
+     * published, as they are, when the command has finished.
+     *
+     * @param before
+     * @param after
+     */
+    private void publishStateDelta(CompactMapState before, CompactMapState after) {
+        int nrCountries = 0;
+        for (int id = 0; id < changedCountries.length; id++) {
+            if (before.getArmies(id) != after.getArmies(id) || before.getOwner(id) != after.getOwner(id)) {
+                changedCountries[nrCountries++] = id;
+            }
+        }
+        int nrSeats = 0;
+        for (int seat = 0; seat < changedSeats.length; seat++) {
+            int bonusArmies = seats.get(seat).getBonusArmies();
+            boolean eliminated = !players.contains(seats.get(seat));
+            if (bonusArmies != seatBonusArmies[seat] || eliminated != eliminatedSeats[seat]) {
+                seatBonusArmies[seat] = bonusArmies;
+                eliminatedSeats[seat] = eliminated;
+                changedSeats[nrSeats++] = seat;
+            }
+        }
+        StateDelta notifications = folded;
+        folded = null;
+        List<Consumer<BasicGameObserver>> others = held.isEmpty() ? Collections.emptyList() : new ArrayList<>(held);
+        held.clear();
+        if ((nrCountries + nrSeats == 0 && notifications == null && others.isEmpty()) || obs.isEmpty()) {
+            return;
+        }
+        int[] armies = new int[nrCountries], owners = new int[nrCountries];
+        for (int i = 0; i < nrCountries; i++) {
+            armies[i] = after.getArmies(changedCountries[i]);
+            owners[i] = after.getOwner(changedCountries[i]);
+        }
+        int[] bonusArmies = new int[nrSeats];
+        boolean[] eliminated = new boolean[nrSeats];
+        for (int i = 0; i < nrSeats; i++) {
+            bonusArmies[i] = seatBonusArmies[changedSeats[i]];
+            eliminated[i] = eliminatedSeats[changedSeats[i]];
+        }
+        StateDelta delta = new StateDelta(countryNames, seatNames, seatColors, Arrays.copyOf(changedCountries, nrCountries), armies, owners,
+                Arrays.copyOf(changedSeats, nrSeats), bonusArmies, eliminated);
+        StateDelta merged = (notifications == null) ? delta : delta.merge(notifications);
+        commands.postFirst(() -> notifyStateDelta(merged, others));
+    }
+
+    /**
+     * Publishes the state of the game after a command.
+     */
+    private void publishSnapshot() {
+        if (seatNames == null) {
+            seatNames = new String[seats.size()];
+            seatColors = new String[seats.size()];
+            seatBonusArmies = new int[seats.size()];
+            eliminatedSeats = new boolean[seats.size()];
+            changedSeats = new int[seats.size()];
+            for (int i = 0; i < seatNames.length; i++) {
+                seatNames[i] = seats.get(i).getName();
+                seatColors[i] = seats.get(i).getColor();
+                seatBonusArmies[i] = seats.get(i).getBonusArmies();
+                eliminatedSeats[i] = !players.contains(seats.get(i));
+            }
+            countryNames = new String[map.getCountriesList().size()];
+            changedCountries = new int[countryNames.length];
+            for (Country country : map.getCountriesList()) {
+                countryNames[country.getId()] = country.getName();
+            }
+        }
+        if (seats.get(activeSeat) != activePlayer) {
+            activeSeat = seats.indexOf(activePlayer);
+        }
+        int[] bonusArmies = new int[seats.size()];
+        boolean[] artificial = new boolean[seats.size()], eliminated = new boolean[seats.size()];
+        String[] missions = new String[seats.size()];
+        CountrySet[] owned = new CountrySet[seats.size()], frontiers = new CountrySet[seats.size()];
+        for (int seat = 0; seat < seats.size(); seat++) {
+            Player player = seats.get(seat);
+            bonusArmies[seat] = player.getBonusArmies();
+            artificial[seat] = player instanceof ArtificialPlayer;
+            eliminated[seat] = !players.contains(player);
+            missions[seat] = player.getMissionDescription();
+            owned[seat] = new CountrySet(map.getOwnedCountries(player));
+            frontiers[seat] = new CountrySet(map.getFrontier(player));
+        }
+        Country attacker = getAttackerCountry(), defender = getDefenderCountry();
+        Country from = getMovePhase().getFromCountry(), to = getMovePhase().getToCountry();
+        snapshot = new GameSnapshot(++version, map.getTopology(), map.copyTrackedState(), seatNames, seatColors, bonusArmies,
+                artificial, eliminated, missions, owned, frontiers, activeSeat, getPhaseName(), getCardNames(),
+                (attacker == null) ? -1 : attacker.getId(), (defender == null) ? -1 : defender.getId(),
+                getFightPhase().isAttackInProgress(), getFightPhase().getAttackerArmies(),
+                (from == null) ? -1 : from.getId(), (to == null) ? -1 : to.getId(), getMovePhase().isConnectedMovement());
+    }
+
+    /**
+     * Returns the names of the active player's cards, reusing the list of the
+     * last snapshot if they haven't changed.
+     *
+     * @return
+     */
+    private List<String> getCardNames() {
+        List<Card> cards = activePlayer.getBonusCards();
+        boolean changed = cards.size() != cardNames.size();
+        for (int i = 0; i < cards.size() && !changed; i++) {
+            changed = !cards.get(i).name().equals(cardNames.get(i));
+        }
+        if (changed) {
+            cardNames = Collections.unmodifiableList(Stringify.toString(cards));
+        }
+        return cardNames;
+    }
+
+    /**
+     * Ends the game. The tasks of the artificial players that haven't started
+     * yet are cancelled.
      */
     @Override
     public void endGame() {
-        notifyEndGame();
+        commands.execute(() -> {
+            record(Op.END_GAME);
+            notifyEndGame();
+            scheduler.shutdown();
+        });
+    }
+
+    /**
+     * Returns true if the game has ended, by a victory or
+     * <code>endGame</code>.
+     *
+     * @return
+     */
+    public boolean isOver() {
+        return scheduler.isShutdown();
+    }
+
+    /**
+     * Waits for the tasks of the artificial players still running after the
+     * end of the game (a victory or <code>endGame</code>).
+     *
+     * @param timeoutMs
+     * @return false if some of them are still running after
+     * <code>timeoutMs</code> milliseconds.
+     * @throws InterruptedException
+     */
+    public boolean awaitArtificialPlayers(long timeoutMs) throws InterruptedException {
+        return scheduler.awaitTermination(timeoutMs);
     }
 
     /**
-     * Turns the activePlayer into an artificial one and starts its thread.
+     * Turns the activePlayer into an artificial one and starts it.
      */
     @Override
     public void toArtificialPlayer() {
+        commands.execute(this::replaceActivePlayer);
+    }
+
+    /**
+     * Replaces the active player with an artificial one, within a command.
+     */
+    private void replaceActivePlayer() {
         if (!(activePlayer instanceof ArtificialPlayer)) {
-            ArtificialPlayer player = new ArtificialPlayer(activePlayer.getName(), activePlayer.getColor(), (GameProxy) Proxy.newProxyInstance(GameProxy.class.getClassLoader(),
-                    new Class<?>[]{GameProxy.class},
-                    new GameInvocationHandler(this)));
+            record(Op.TO_ARTIFICIAL_PLAYER);
+            ArtificialPlayer player = new ArtificialPlayer(activePlayer.getName(), activePlayer.getColor(), new GuardedGame(this), random.split());
+            if (aiSettings != null) {
+                player.setSetting(aiSettings);
+            }
             player.setMission(activePlayer.getMission());
             player.setBonusCards(activePlayer.getBonusCards());
             player.addBonusArmies(activePlayer.getBonusArmies());
@@ -914,12 +1853,16 @@ public class Game extends Observable implements GameProxy {
                     position = players.indexOf(entry);
                 }
             }
+            seats.set(seats.indexOf(players.get(position)), player);
+            seatNames = null;
             map.changeOwner(players.get(position), player);
             players.remove(position);
             players.add(position, player);
             activePlayer = players.get(position);
-            this.addObserver((ArtificialPlayer) players.get(position));
-            new Thread((ArtificialPlayer) player).start();
+            if (!replaying) { // Otherwise it's started with the others after the replay.
+                this.addObserver((ArtificialPlayer) players.get(position));
+                player.start(scheduler);
+            }
         }
     }
 }
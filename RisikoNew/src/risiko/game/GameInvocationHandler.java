@@ -9,6 +9,10 @@ import java.lang.reflect.InvocationTargetException;
  * Class used to handle the invocations to the methods declared by GameProxy.
  * The calls to those methods are filtered, only the valid ones are forwarded to
  * game. Each call to a method is executed in a different thread.
+ *
+ * The game and the GUI use <code>GuardedGame</code>, which applies the same
+ * filter without reflection: this handler is kept as the reference of the
+ * filter and to compare the two (see <code>GameProxyBenchmark</code>).
  */
 public class GameInvocationHandler implements InvocationHandler {
 
@@ -55,7 +59,7 @@ public class GameInvocationHandler implements InvocationHandler {
      * @param method
      * @return 
      */
-    private boolean doFilter(Method method) {
+    static boolean doFilter(Method method) {
         boolean isDefenseMethod = method.getName().equals("confirmAttack") || method.getName().equals("setDefenderArmies");
         boolean isEndGame = method.getName().equals("endGame");
         boolean isToArtificialPlayer = method.getName().equals("toArtificialPlayer") || method.getName().equals("setPlayerSettings");
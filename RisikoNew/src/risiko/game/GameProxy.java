@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import risiko.players.ArtificialPlayer;
 import risiko.players.ArtificialPlayerSettings;
+import shared.BattleOddsInfo;
 
 /**
  * Interface that declares all the methods of Game that can be called by the
@@ -180,6 +181,23 @@ public interface GameProxy {
      */
     public void confirmAttack(int nrD, ArtificialPlayer... aiCaller);
 
+    /**
+     * Resolves a whole battle between the country which name is
+     * <code>attackerCountryName</code> and the one which name is
+     * <code>defenderCountryName</code>, without asking the defender: both
+     * sides fight with the maximum number of armies until the defender is
+     * conquered, the attacker is left with <code>minArmies</code> armies or
+     * <code>maxRounds</code> rounds have been fought (no limit if not
+     * positive). The result of the whole battle is notified once.
+     *
+     * @param attackerCountryName
+     * @param defenderCountryName
+     * @param minArmies
+     * @param maxRounds
+     * @param aiCaller
+     */
+    public void blitzAttack(String attackerCountryName, String defenderCountryName, int minArmies, int maxRounds, ArtificialPlayer... aiCaller);
+
     /**
      * Returns true <code>FightPhase</code> has all the parameters set to start
      * a battle.
@@ -209,6 +227,19 @@ public interface GameProxy {
      */
     public int getMaxArmies(String countryName, boolean isAttacker, ArtificialPlayer... aiCaller);
 
+    /**
+     * Returns the odds of a battle between the country which name is
+     * <code>attackerCountryName</code> and the one which name is
+     * <code>defenderCountryName</code>: the probability that the attacker
+     * conquers the defender and the expected losses of both sides.
+     *
+     * @param attackerCountryName
+     * @param defenderCountryName
+     * @param aiCaller
+     * @return
+     */
+    public BattleOddsInfo getBattleOdds(String attackerCountryName, String defenderCountryName, ArtificialPlayer... aiCaller);
+
     // ------------------------ MovePhase -----------------------------------//
     /**
      * Returns the maximum number of armies that can be moved from the country
@@ -358,6 +389,15 @@ public interface GameProxy {
      */
     public String[] getAllAttackers(ArtificialPlayer player, ArtificialPlayer... aiCaller);
 
+    /**
+     * Returns the number of countries held by the
+     * <code>ArtificialPlayer player</code>, from which it can launch an attack.
+     *
+     * @param player
+     * @return
+     */
+    public int countAttackers(ArtificialPlayer player, ArtificialPlayer... aiCaller);
+
     /**
      * Returns the territories that can be attacked from <code>attacker</code>
      *
@@ -381,7 +421,7 @@ public interface GameProxy {
     public void endGame();
 
     /**
-     * Turns the activePlayer into an artificial one and starts its thread.
+     * Turns the activePlayer into an artificial one and starts it.
      */
     public void toArtificialPlayer();
 
@@ -0,0 +1,576 @@
+package risiko.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import risiko.equipment.Card;
+import risiko.map.CompactMapState;
+import risiko.map.CountrySet;
+import risiko.map.MapTopology;
+import risiko.phase.BattleOdds;
+import services.MapPack;
+import services.Stringify;
+import shared.BattleOddsInfo;
+import shared.CountryInfo;
+import shared.PlayerInfo;
+
+/**
+ * An immutable copy of the state of a game, taken after a command: the map (as
+ * a <code>CompactMapState</code>, with a copy of the countries of each player
+ * and of its frontier), the players, the phase, the active player and its
+ * cards, the countries chosen for the fight and the movement and the attack
+ * waiting for the defense. Every command publishes a new snapshot with a
+ * greater version, so the GUI and the artificial players can read the game at
+ * any time without waiting for the running command, and can tell if it has
+ * changed since their last read.
+ *
+ * Players are identified by their name, countries by their name or id.
+ */
+public final class GameSnapshot {
+
+    private final long version;
+    private final MapPack pack;
+    private final MapTopology topology;
+    private final CompactMapState state; // Never modified.
+    private final String[] seats; // The names of the players, by seat.
+    private final String[] colors, missions; // By seat.
+    private final int[] bonusArmies; // By seat.
+    private final boolean[] artificial, eliminated; // By seat.
+    private final CountrySet[] owned, frontiers; // The countries of each seat, and the ones it can attack from. Never modified.
+    private final int activeSeat;
+    private final String phase;
+    private final List<String> activeCards;
+    private final int attackerCountry, defenderCountry, fromCountry, toCountry; // -1 if not chosen.
+    private final boolean attackInProgress; // True if the attack is waiting for the defense.
+    private final int attackerArmies;
+    private final boolean connectedMovement;
+    private int[] territories; // Labelled on the first check of a connected movement.
+
+    /**
+     * Creates a snapshot. The arguments mustn't be modified afterwards, and
+     * <code>activeCards</code> has to be read-only.
+     *
+     * @param version
+     * @param topology
+     * @param state
+     * @param seats the names of the players, by seat.
+     * @param colors the colors of the players, by seat.
+     * @param bonusArmies the bonus armies of the players, by seat.
+     * @param artificial whether each seat is played by an artificial player.
+     * @param eliminated whether each seat has been eliminated.
+     * @param missions the descriptions of the missions, by seat.
+     * @param owned the ids of the countries of each seat.
+     * @param frontiers the ids of the countries from which each seat can
+     * attack.
+     * @param activeSeat
+     * @param phase
+     * @param activeCards
+     * @param attackerCountry
+     * @param defenderCountry
+     * @param attackInProgress true if the attack is waiting for the defense.
+     * @param attackerArmies the armies of the attack.
+     * @param fromCountry
+     * @param toCountry
+     * @param connectedMovement
+     */
+    public GameSnapshot(long version, MapTopology topology, CompactMapState state, String[] seats, String[] colors, int[] bonusArmies,
+            boolean[] artificial, boolean[] eliminated, String[] missions, CountrySet[] owned, CountrySet[] frontiers, int activeSeat,
+            String phase, List<String> activeCards, int attackerCountry, int defenderCountry, boolean attackInProgress, int attackerArmies,
+            int fromCountry, int toCountry, boolean connectedMovement) {
+        this.version = version;
+        this.pack = topology.getMapPack();
+        this.topology = topology;
+        this.state = state;
+        this.seats = seats;
+        this.colors = colors;
+        this.bonusArmies = bonusArmies;
+        this.artificial = artificial;
+        this.eliminated = eliminated;
+        this.missions = missions;
+        this.owned = owned;
+        this.frontiers = frontiers;
+        this.activeSeat = activeSeat;
+        this.phase = phase;
+        this.activeCards = activeCards;
+        this.attackerCountry = attackerCountry;
+        this.defenderCountry = defenderCountry;
+        this.attackInProgress = attackInProgress;
+        this.attackerArmies = attackerArmies;
+        this.fromCountry = fromCountry;
+        this.toCountry = toCountry;
+        this.connectedMovement = connectedMovement;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc=" Game ">
+    /**
+     * Returns the state of the map, which must not be modified.
+     *
+     * @return
+     */
+    CompactMapState getMapState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of commands run before this snapshot was taken.
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public String getActivePlayer() {
+        return seats[activeSeat];
+    }
+
+    public int getActivePlayerBonusArmies() {
+        return bonusArmies[activeSeat];
+    }
+
+    public String getActivePlayerMission() {
+        return missions[activeSeat];
+    }
+
+    public boolean isActivePlayerArtificial() {
+        return artificial[activeSeat];
+    }
+
+    /**
+     * Returns the mission description of the player, even if eliminated, or
+     * null if there isn't such a player.
+     *
+     * @param playerName
+     * @return
+     */
+    public String getMissionDescription(String playerName) {
+        int seat = getSeat(playerName);
+        return (seat < 0) ? null : missions[seat];
+    }
+
+    /**
+     * Returns the names of the active player's cards.
+     *
+     * @return
+     */
+    public List<String> getCardsNames() {
+        return new ArrayList<>(activeCards);
+    }
+
+    /**
+     * Returns the name of the last card drawn by the active player, or null if
+     * it has no cards.
+     *
+     * @return
+     */
+    public String getLastCardDrawn() {
+        return activeCards.isEmpty() ? null : activeCards.get(activeCards.size() - 1);
+    }
+
+    /**
+     * Returns the tris that the active player can play with its cards, with
+     * the bonus armies awarded for each of them, in the order of the tris
+     * table.
+     *
+     * @return
+     */
+    public Map<String[], Integer> getPlayableTris() {
+        Map<String[], Integer> playable = new LinkedHashMap<>();
+        for (Map.Entry<Card[], Integer> tris : topology.getTris().entrySet()) {
+            String[] cards = Stringify.toString(tris.getKey());
+            if (hasCards(cards)) {
+                playable.put(cards, tris.getValue());
+            }
+        }
+        return playable;
+    }
+
+    /**
+     * Checks if the active player has each card of <code>cards</code> at
+     * least as many times as it appears there.
+     */
+    private boolean hasCards(String[] cards) {
+        List<String> cardsLeft = new ArrayList<>(activeCards);
+        for (String card : cards) {
+            if (!cardsLeft.remove(card)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getAttackerCountryName() {
+        return getName(attackerCountry);
+    }
+
+    public String getDefenderCountryName() {
+        return getName(defenderCountry);
+    }
+
+    public String getFromCountryName() {
+        return getName(fromCountry);
+    }
+
+    /**
+     * Returns true if the attacker and the defender have been chosen during
+     * the fight phase.
+     *
+     * @return
+     */
+    public boolean isReadyToFight() {
+        return phase.equals("FIGHT") && attackerCountry >= 0 && defenderCountry >= 0;
+    }
+
+    /**
+     * Returns the info of the players still in the game, in turn order.
+     *
+     * @return
+     */
+    public List<PlayerInfo> getPlayersInfo() {
+        List<PlayerInfo> playersInfo = new ArrayList<>();
+        for (int seat = 0; seat < seats.length; seat++) {
+            if (!eliminated[seat]) {
+                playersInfo.add(getPlayerInfo(seat));
+            }
+        }
+        return playersInfo;
+    }
+
+    public PlayerInfo getActivePlayerInfo() {
+        return getPlayerInfo(activeSeat);
+    }
+
+    /**
+     * Returns the info of all the countries, by id.
+     *
+     * @return
+     */
+    public CountryInfo[] getCountriesInfo() {
+        CountryInfo[] countriesInfo = new CountryInfo[state.getCountriesCount()];
+        for (int id = 0; id < countriesInfo.length; id++) {
+            countriesInfo[id] = new CountryInfo(getPlayerInfo(state.getOwner(id)), pack.getCountryName(id), state.getArmies(id));
+        }
+        return countriesInfo;
+    }
+
+    /**
+     * Returns the info of the defender of the attack waiting for the defense,
+     * or null if there isn't such an attack.
+     *
+     * @return
+     */
+    public CountryInfo getDefenderInfo() {
+        if (!attackInProgress) {
+            return null;
+        }
+        return new CountryInfo(pack.getCountryName(defenderCountry), state.getMaxArmies(defenderCountry, false),
+                getPlayerInfo(state.getOwner(defenderCountry)));
+    }
+
+    /**
+     * Returns the armies of the attack waiting for the defense.
+     *
+     * @return
+     */
+    public int getAttackerArmies() {
+        return attackerArmies;
+    }
+
+    /**
+     * Returns true if <code>other</code> describes the same state of the game,
+     * whatever its version: the same owners and armies, and the same active
+     * player, with the same bonus armies and cards, in the same phase.
+     *
+     * @param other
+     * @return
+     */
+    public boolean hasSameState(GameSnapshot other) {
+        if (state.getCountriesCount() != other.state.getCountriesCount() || !Arrays.equals(seats, other.seats)
+                || activeSeat != other.activeSeat || !phase.equals(other.phase)
+                || getActivePlayerBonusArmies() != other.getActivePlayerBonusArmies() || !activeCards.equals(other.activeCards)) {
+            return false;
+        }
+        for (int id = 0; id < state.getCountriesCount(); id++) {
+            if (state.getOwner(id) != other.state.getOwner(id) || state.getArmies(id) != other.state.getArmies(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+// </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc=" Countries ">
+    public int getArmies(String countryName) {
+        return state.getArmies(getId(countryName));
+    }
+
+    /**
+     * Returns the name of the owner of the country.
+     *
+     * @param countryName
+     * @return
+     */
+    public String getOwner(String countryName) {
+        int seat = state.getOwner(getId(countryName));
+        return (seat == CompactMapState.NO_OWNER) ? null : seats[seat];
+    }
+
+    /**
+     * Checks if the active player owns the country.
+     *
+     * @param countryName
+     * @return
+     */
+    public boolean isCountryOwner(String countryName) {
+        return state.getOwner(getId(countryName)) == activeSeat;
+    }
+
+    /**
+     * Checks if the country can be chosen by the active player to launch an
+     * attack.
+     *
+     * @param countryName
+     * @return
+     */
+    public boolean controlAttacker(String countryName) {
+        return isCountryOwner(countryName) && getArmies(countryName) > 1;
+    }
+
+    /**
+     * Check if the country has enough armies to launch an attack.
+     *
+     * @param countryName
+     * @return
+     */
+    public boolean canAttackFromCountry(String countryName) {
+        return state.canAttack(getId(countryName));
+    }
+
+    /**
+     * Returns true if the country which name is
+     * <code>defenderCountryName</code> can be attacked from the attacker
+     * chosen by the active player.
+     *
+     * @param defenderCountryName
+     * @return
+     */
+    public boolean controlDefender(String defenderCountryName) {
+        return attackerCountry >= 0 && state.controlDefender(attackerCountry, getId(defenderCountryName));
+    }
+
+    /**
+     * Checks if the active player can move from the country.
+     *
+     * @param countryName
+     * @return
+     */
+    public boolean canMoveFromHere(String countryName) {
+        return isCountryOwner(countryName) && state.canMove(getId(countryName));
+    }
+
+    /**
+     * Checks if the active player can move its armies from the country chosen
+     * for the movement to the one chosen as destination.
+     *
+     * @return
+     */
+    public boolean controlMovement() {
+        return controlMovement(toCountry);
+    }
+
+    /**
+     * Checks if the active player can move its armies from the country chosen
+     * for the movement to the country which name is
+     * <code>toCountryName</code>: a neighbor, or any country of the same
+     * territory if the movement is connected.
+     *
+     * @param toCountryName
+     * @return
+     */
+    public boolean controlMovement(String toCountryName) {
+        return controlMovement(getId(toCountryName));
+    }
+
+    private boolean controlMovement(int to) {
+        if (fromCountry < 0 || to < 0) {
+            return false;
+        }
+        if (connectedMovement) {
+            int[] labels = getTerritories();
+            return fromCountry != to && labels[fromCountry] == labels[to];
+        }
+        return state.canMoveTo(fromCountry, to);
+    }
+
+    /**
+     * Returns the label of the territory of each country, computed on the
+     * first call.
+     */
+    private synchronized int[] getTerritories() {
+        if (territories == null) {
+            territories = state.labelTerritories();
+        }
+        return territories;
+    }
+
+    /**
+     * Returns the maximum number of armies that can be used either to attack or
+     * to defend.
+     *
+     * @param countryName
+     * @param isAttacker
+     * @return
+     */
+    public int getMaxArmies(String countryName, boolean isAttacker) {
+        return state.getMaxArmies(getId(countryName), isAttacker);
+    }
+
+    /**
+     * Returns the maximum number of armies that can be moved from the country.
+     *
+     * @param countryName
+     * @return
+     */
+    public int getMaxArmiesForMovement(String countryName) {
+        return getArmies(countryName) - 1;
+    }
+
+    /**
+     * Returns the odds of a battle between the two countries.
+     *
+     * @param attackerCountryName
+     * @param defenderCountryName
+     * @return
+     */
+    public BattleOddsInfo getBattleOdds(String attackerCountryName, String defenderCountryName) {
+        int attackerArmies = getArmies(attackerCountryName), defenderArmies = getArmies(defenderCountryName);
+        return new BattleOddsInfo(attackerCountryName, defenderCountryName,
+                BattleOdds.getWinProbability(attackerArmies, defenderArmies),
+                BattleOdds.getExpectedAttackerLosses(attackerArmies, defenderArmies),
+                BattleOdds.getExpectedDefenderLosses(attackerArmies, defenderArmies));
+    }
+
+// </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc=" Artificial Player ">
+    /**
+     * Returns the names of the countries held by the player, by id.
+     *
+     * @param playerName
+     * @return
+     */
+    public List<String> getMyCountries(String playerName) {
+        int seat = getSeat(playerName);
+        if (seat < 0) {
+            return new ArrayList<>();
+        }
+        List<String> countries = new ArrayList<>(owned[seat].size());
+        for (int id = owned[seat].nextId(0); id >= 0; id = owned[seat].nextId(id + 1)) {
+            countries.add(pack.getCountryName(id));
+        }
+        return countries;
+    }
+
+    /**
+     * Returns the names of the neighbors of the country.
+     *
+     * @param countryName
+     * @return
+     */
+    public List<String> getNeighbors(String countryName) {
+        int id = getId(countryName);
+        List<String> neighbors = new ArrayList<>(state.getNeighborsCount(id));
+        for (int i = 0; i < state.getNeighborsCount(id); i++) {
+            neighbors.add(pack.getCountryName(state.getNeighbor(id, i)));
+        }
+        return neighbors;
+    }
+
+    /**
+     * Returns the names of the countries from which the player can launch an
+     * attack, by id.
+     *
+     * @param playerName
+     * @return
+     */
+    public String[] getAllAttackers(String playerName) {
+        int seat = getSeat(playerName);
+        if (seat < 0) {
+            return new String[0];
+        }
+        String[] attackers = new String[frontiers[seat].size()];
+        int i = 0;
+        for (int id = frontiers[seat].nextId(0); id >= 0; id = frontiers[seat].nextId(id + 1)) {
+            attackers[i++] = pack.getCountryName(id);
+        }
+        return attackers;
+    }
+
+    /**
+     * Returns the number of countries from which the player can launch an
+     * attack.
+     *
+     * @param playerName
+     * @return
+     */
+    public int countAttackers(String playerName) {
+        int seat = getSeat(playerName);
+        return (seat < 0) ? 0 : frontiers[seat].size();
+    }
+
+    /**
+     * Returns the names of the countries that can be attacked from the
+     * country which name is <code>attackerCountryName</code>.
+     *
+     * @param attackerCountryName
+     * @return
+     */
+    public String[] getAllDefenders(String attackerCountryName) {
+        int attacker = getId(attackerCountryName);
+        List<String> defenders = new ArrayList<>();
+        for (int i = 0; i < state.getNeighborsCount(attacker); i++) {
+            int neighbor = state.getNeighbor(attacker, i);
+            if (state.controlDefender(attacker, neighbor)) {
+                defenders.add(pack.getCountryName(neighbor));
+            }
+        }
+        return defenders.toArray(new String[defenders.size()]);
+    }
+
+// </editor-fold>
+    private int getId(String countryName) {
+        return topology.getCountryId(countryName);
+    }
+
+    private String getName(int id) {
+        return (id < 0) ? null : pack.getCountryName(id);
+    }
+
+    /**
+     * Returns the info of the player in the seat, or null if it's
+     * <code>NO_OWNER</code>.
+     */
+    private PlayerInfo getPlayerInfo(int seat) {
+        return (seat < 0) ? null : new PlayerInfo(seats[seat], colors[seat], bonusArmies[seat], artificial[seat]);
+    }
+
+    /**
+     * Returns the seat of the player, or -1.
+     *
+     * @param playerName
+     * @return
+     */
+    private int getSeat(String playerName) {
+        for (int seat = 0; seat < seats.length; seat++) {
+            if (seats[seat].equals(playerName)) {
+                return seat;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,308 @@
+package risiko.game;
+
+import exceptions.PendingOperationsException;
+import java.util.List;
+import java.util.Map;
+import risiko.players.ArtificialPlayer;
+import risiko.players.ArtificialPlayerSettings;
+import shared.BattleOddsInfo;
+
+/**
+ * The access control of <code>GameInvocationHandler</code> written by hand:
+ * each method forwards the call to the game, but the methods that return
+ * <code>void</code> or <code>boolean</code> are forwarded only if the caller is
+ * the active player (otherwise they do nothing or return false), except for
+ * the ones that can be called by the defender or by anyone (see
+ * <code>GameInvocationHandler.doFilter</code>). Without the reflection of a
+ * dynamic proxy, a call costs about as much as a direct call to the game.
+ */
+public class GuardedGame implements GameProxy {
+
+    private final Game game;
+
+    public GuardedGame(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Returns true if the caller isn't the active player, i.e. if the call
+     * has to be filtered.
+     *
+     * @param aiCaller
+     * @return
+     */
+    private boolean denied(ArtificialPlayer[] aiCaller) {
+        return !game.checkCallerIdentity(aiCaller);
+    }
+
+    @Override
+    public String getPhase(ArtificialPlayer... aiCaller) {
+        return game.getPhase(aiCaller);
+    }
+
+    @Override
+    public String getActivePlayerMission(ArtificialPlayer... aiCaller) {
+        return game.getActivePlayerMission(aiCaller);
+    }
+
+    @Override
+    public void setPlayerSettings(ArtificialPlayerSettings aps, ArtificialPlayer... aiCaller) {
+        game.setPlayerSettings(aps, aiCaller);
+    }
+
+    //------------------------ CardsPhase ---------------------------------//
+    @Override
+    public String getLastCardDrawn(ArtificialPlayer... aiCaller) {
+        return game.getLastCardDrawn(aiCaller);
+    }
+
+    @Override
+    public List<String> getCardsNames(ArtificialPlayer... aiCaller) {
+        return game.getCardsNames(aiCaller);
+    }
+
+    @Override
+    public int getBonusForTris(String[] cardNames, ArtificialPlayer... aiCaller) {
+        return game.getBonusForTris(cardNames, aiCaller);
+    }
+
+    @Override
+    public Map<String[], Integer> getPlayableTris(ArtificialPlayer... aiCaller) {
+        return game.getPlayableTris(aiCaller);
+    }
+
+    @Override
+    public boolean isAValidTris(String[] cardNames, ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.isAValidTris(cardNames, aiCaller);
+    }
+
+    @Override
+    public void playTris(String[] cardsNames, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.playTris(cardsNames, aiCaller);
+        }
+    }
+
+    //---------------------  ReinforcePhase  -----------------------------//
+    @Override
+    public void reinforce(String countryName, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.reinforce(countryName, aiCaller);
+        }
+    }
+
+    @Override
+    public boolean canReinforce(ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.canReinforce(aiCaller);
+    }
+
+    //---------------------- FightPhase -----------------------------------//
+    @Override
+    public void setAttackerCountry(String attackerCountryName, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.setAttackerCountry(attackerCountryName, aiCaller);
+        }
+    }
+
+    @Override
+    public void setDefenderCountry(String defenderCountryName, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.setDefenderCountry(defenderCountryName, aiCaller);
+        }
+    }
+
+    @Override
+    public void setReattack(boolean reattack, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.setReattack(reattack, aiCaller);
+        }
+    }
+
+    @Override
+    public void resetFightingCountries(ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.resetFightingCountries(aiCaller);
+        }
+    }
+
+    @Override
+    public void setAttackerArmies(int nrA, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.setAttackerArmies(nrA, aiCaller);
+        }
+    }
+
+    @Override
+    public String getAttackerCountryName(ArtificialPlayer... aiCaller) {
+        return game.getAttackerCountryName(aiCaller);
+    }
+
+    @Override
+    public String getDefenderCountryName(ArtificialPlayer... aiCaller) {
+        return game.getDefenderCountryName(aiCaller);
+    }
+
+    @Override
+    public void declareAttack(ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.declareAttack(aiCaller);
+        }
+    }
+
+    /**
+     * Not filtered: it's called by the defender.
+     *
+     * @param nrD
+     * @param aiCaller
+     */
+    @Override
+    public void confirmAttack(int nrD, ArtificialPlayer... aiCaller) {
+        game.confirmAttack(nrD, aiCaller);
+    }
+
+    @Override
+    public void blitzAttack(String attackerCountryName, String defenderCountryName, int minArmies, int maxRounds, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.blitzAttack(attackerCountryName, defenderCountryName, minArmies, maxRounds, aiCaller);
+        }
+    }
+
+    @Override
+    public boolean isReadyToFight(ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.isReadyToFight(aiCaller);
+    }
+
+    @Override
+    public boolean controlDefender(String defenderCountryName, ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.controlDefender(defenderCountryName, aiCaller);
+    }
+
+    @Override
+    public int getMaxArmies(String countryName, boolean isAttacker, ArtificialPlayer... aiCaller) {
+        return game.getMaxArmies(countryName, isAttacker, aiCaller);
+    }
+
+    @Override
+    public BattleOddsInfo getBattleOdds(String attackerCountryName, String defenderCountryName, ArtificialPlayer... aiCaller) {
+        return game.getBattleOdds(attackerCountryName, defenderCountryName, aiCaller);
+    }
+
+    @Override
+    public int getMaxArmiesForMovement(String fromCountryName, ArtificialPlayer... aiCaller) {
+        return game.getMaxArmiesForMovement(fromCountryName, aiCaller);
+    }
+
+    @Override
+    public void resetMoveCountries(ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.resetMoveCountries(aiCaller);
+        }
+    }
+
+    @Override
+    public String getFromCountryName(ArtificialPlayer... aiCaller) {
+        return game.getFromCountryName(aiCaller);
+    }
+
+    @Override
+    public void setFromCountry(String fromCountryName, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.setFromCountry(fromCountryName, aiCaller);
+        }
+    }
+
+    @Override
+    public void setToCountry(String toCountryName, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.setToCountry(toCountryName, aiCaller);
+        }
+    }
+
+    @Override
+    public void move(String fromCountry, String toCountryName, Integer nrArmies, ArtificialPlayer... aiCaller) {
+        if (!denied(aiCaller)) {
+            game.move(fromCountry, toCountryName, nrArmies, aiCaller);
+        }
+    }
+
+    @Override
+    public boolean controlMovement(ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.controlMovement(aiCaller);
+    }
+
+    @Override
+    public boolean controlMovement(String toCountryName, ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.controlMovement(toCountryName, aiCaller);
+    }
+
+    //----------------------------- Turns -----------------------------------//
+    @Override
+    public void nextPhase(ArtificialPlayer... aiCaller) throws PendingOperationsException {
+        if (!denied(aiCaller)) {
+            game.nextPhase(aiCaller);
+        }
+    }
+
+    //-------------------- Methods delegated to RisikoMap ----------------//
+    @Override
+    public boolean controlAttacker(String countryName, ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.controlAttacker(countryName, aiCaller);
+    }
+
+    @Override
+    public boolean canMoveFromHere(String countryName, ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.canMoveFromHere(countryName, aiCaller);
+    }
+
+    @Override
+    public boolean isCountryOwner(String countryName, ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.isCountryOwner(countryName, aiCaller);
+    }
+
+    @Override
+    public boolean canAttackFromCountry(String attackerCountryName, ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.canAttackFromCountry(attackerCountryName, aiCaller);
+    }
+
+    //------------- Methods called by artificial players ------------------//
+    @Override
+    public List<String> getMyCountries(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
+        return game.getMyCountries(player, aiCaller);
+    }
+
+    @Override
+    public List<String> getNeighbors(ArtificialPlayer player, String country, ArtificialPlayer... aiCaller) {
+        return game.getNeighbors(player, country, aiCaller);
+    }
+
+    @Override
+    public String[] getAllAttackers(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
+        return game.getAllAttackers(player, aiCaller);
+    }
+
+    @Override
+    public int countAttackers(ArtificialPlayer player, ArtificialPlayer... aiCaller) {
+        return game.countAttackers(player, aiCaller);
+    }
+
+    @Override
+    public String[] getAllDefenders(String attacker, ArtificialPlayer... aiCaller) {
+        return game.getAllDefenders(attacker, aiCaller);
+    }
+
+    //------------------------ General purpose methods ---------------------//
+    @Override
+    public boolean checkMyIdentity(ArtificialPlayer... aiCaller) {
+        return !denied(aiCaller) && game.checkMyIdentity(aiCaller);
+    }
+
+    @Override
+    public void endGame() {
+        game.endGame();
+    }
+
+    @Override
+    public void toArtificialPlayer() {
+        game.toArtificialPlayer();
+    }
+}
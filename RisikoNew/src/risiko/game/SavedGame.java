@@ -0,0 +1,243 @@
+package risiko.game;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The whole state of a game, as saved by <code>Game.save</code> and restored
+ * by <code>Game.load</code>, in primitive arrays. The players are stored by
+ * seat (their position in the initial turn order, eliminated ones included),
+ * the countries by id, the cards by ordinal and the missions by their id in
+ * the map.
+ *
+ * It's written in a compact binary format: a magic number, the version of the
+ * format and the length of the data, followed by the data.
+ */
+public final class SavedGame {
+
+    private static final int MAGIC = 0x52534156; // "RSAV"
+    private static final short FORMAT = 2;
+    private static final int HEADER_BYTES = 10;
+    private static final int CHUNK_BYTES = 64 * 1024; // The data is read in chunks, so a corrupted length doesn't allocate more than it's read.
+    private static final int ELIMINATED = 1, CONQUERED = 2; // The flags of a seat.
+
+    // The randomness of the game.
+    long seed, randomState, deckRandomState, diceRandomState;
+    // The players, by seat.
+    String[] names, colors, types;
+    byte[] flags;
+    int[] bonusArmies, missions;
+    long[] aiRandomStates; // 0 for the players that aren't artificial.
+    byte[][] hands;
+    // The deck, the last card being the next drawn.
+    byte[] deck;
+    // The turn.
+    int activeSeat, phaseIndex;
+    int attacker, defender, attackerArmies, from, to; // -1 for the countries not chosen.
+    boolean reattack, connectedMovement;
+    boolean ended; // After a victory or endGame.
+    // The map, by country.
+    byte[] owners;
+    int[] armies;
+
+    SavedGame() {
+    }
+
+    /**
+     * Allocates the arrays of the players.
+     *
+     * @param nrSeats
+     */
+    void allocateSeats(int nrSeats) {
+        names = new String[nrSeats];
+        colors = new String[nrSeats];
+        types = new String[nrSeats];
+        flags = new byte[nrSeats];
+        bonusArmies = new int[nrSeats];
+        missions = new int[nrSeats];
+        aiRandomStates = new long[nrSeats];
+        hands = new byte[nrSeats][];
+    }
+
+    int getSeatsCount() {
+        return names.length;
+    }
+
+    boolean isEliminated(int seat) {
+        return (flags[seat] & ELIMINATED) != 0;
+    }
+
+    boolean hasConquered(int seat) {
+        return (flags[seat] & CONQUERED) != 0;
+    }
+
+    void setFlags(int seat, boolean eliminated, boolean conquered) {
+        flags[seat] = (byte) ((eliminated ? ELIMINATED : 0) | (conquered ? CONQUERED : 0));
+    }
+
+    /**
+     * Returns the number of countries of the map of the saved game.
+     *
+     * @return
+     */
+    public int getCountriesCount() {
+        return owners.length;
+    }
+
+    /**
+     * Writes the game to <code>channel</code>.
+     *
+     * @param channel
+     * @throws IOException
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + getDataBytes());
+        buffer.putInt(MAGIC).putShort(FORMAT).putInt(buffer.capacity() - HEADER_BYTES);
+        buffer.putLong(seed).putLong(randomState).putLong(deckRandomState).putLong(diceRandomState);
+        buffer.put((byte) names.length);
+        for (int seat = 0; seat < names.length; seat++) {
+            putString(buffer, names[seat]);
+            putString(buffer, colors[seat]);
+            putString(buffer, types[seat]);
+            buffer.put(flags[seat]).putInt(bonusArmies[seat]).putShort((short) missions[seat]).putLong(aiRandomStates[seat]);
+            buffer.put((byte) hands[seat].length).put(hands[seat]);
+        }
+        buffer.putShort((short) deck.length).put(deck);
+        buffer.put((byte) activeSeat).put((byte) phaseIndex);
+        buffer.putShort((short) attacker).putShort((short) defender).putInt(attackerArmies).put((byte) (reattack ? 1 : 0));
+        buffer.putShort((short) from).putShort((short) to).put((byte) (connectedMovement ? 1 : 0));
+        buffer.put((byte) (ended ? 1 : 0));
+        buffer.putShort((short) owners.length).put(owners);
+        buffer.asIntBuffer().put(armies);
+        buffer.position(buffer.position() + 4 * armies.length);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the length of the data, after the header.
+     *
+     * @return
+     */
+    private int getDataBytes() {
+        int bytes = 4 * 8 + 1;
+        for (int seat = 0; seat < names.length; seat++) {
+            bytes += getStringBytes(names[seat]) + getStringBytes(colors[seat]) + getStringBytes(types[seat]);
+            bytes += 1 + 4 + 2 + 8 + 1 + hands[seat].length;
+        }
+        bytes += 2 + deck.length + 2;
+        bytes += 2 + 2 + 4 + 1 + 2 + 2 + 1 + 1;
+        return bytes + 2 + owners.length + 4 * armies.length;
+    }
+
+    /**
+     * Reads a game from <code>channel</code>.
+     *
+     * @param channel
+     * @return
+     * @throws IOException if the data isn't a saved game, the format isn't
+     * supported or the data is shorter than the length in the header.
+     */
+    public static SavedGame read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a saved game");
+        }
+        short format = header.getShort();
+        if (format != FORMAT) {
+            throw new IOException("Unsupported format " + format);
+        }
+        int length = header.getInt();
+        if (length < 0) {
+            throw new IOException("Corrupted saved game");
+        }
+        if (channel instanceof SeekableByteChannel) {
+            SeekableByteChannel seekable = (SeekableByteChannel) channel;
+            if (length > seekable.size() - seekable.position()) {
+                throw new EOFException("Truncated saved game");
+            }
+        }
+        ByteBuffer buffer = readFully(channel, length);
+        try {
+            SavedGame game = new SavedGame();
+            game.seed = buffer.getLong();
+            game.randomState = buffer.getLong();
+            game.deckRandomState = buffer.getLong();
+            game.diceRandomState = buffer.getLong();
+            game.allocateSeats(buffer.get());
+            for (int seat = 0; seat < game.names.length; seat++) {
+                game.names[seat] = getString(buffer);
+                game.colors[seat] = getString(buffer);
+                game.types[seat] = getString(buffer);
+                game.flags[seat] = buffer.get();
+                game.bonusArmies[seat] = buffer.getInt();
+                game.missions[seat] = buffer.getShort();
+                game.aiRandomStates[seat] = buffer.getLong();
+                game.hands[seat] = getBytes(buffer, buffer.get());
+            }
+            game.deck = getBytes(buffer, buffer.getShort());
+            game.activeSeat = buffer.get();
+            game.phaseIndex = buffer.get();
+            game.attacker = buffer.getShort();
+            game.defender = buffer.getShort();
+            game.attackerArmies = buffer.getInt();
+            game.reattack = buffer.get() != 0;
+            game.from = buffer.getShort();
+            game.to = buffer.getShort();
+            game.connectedMovement = buffer.get() != 0;
+            game.ended = buffer.get() != 0;
+            game.owners = getBytes(buffer, buffer.getShort());
+            game.armies = new int[game.owners.length];
+            buffer.asIntBuffer().get(game.armies);
+            return game;
+        } catch (BufferUnderflowException | NegativeArraySizeException ex) {
+            throw new IOException("Corrupted saved game", ex);
+        }
+    }
+
+    /**
+     * Reads <code>length</code> bytes, growing the buffer as they are read.
+     */
+    private static ByteBuffer readFully(ReadableByteChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, CHUNK_BYTES));
+        while (buffer.position() < length) {
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate((int) Math.min(length, 2L * buffer.capacity()));
+                buffer.flip();
+                buffer = larger.put(buffer);
+            }
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated saved game");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int getStringBytes(String string) {
+        return 2 + string.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer, buffer.getShort()), StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+}
@@ -0,0 +1,161 @@
+package risiko.game;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the artificial players of a game. A player is a task dispatched when it
+ * has to act (its turn, a defense or the result of its attack) and that
+ * returns as soon as it has to wait for someone else, so it never holds a
+ * thread while it isn't acting: the games share a small pool of threads, one
+ * for each processor, however many they are.
+ *
+ * Shutting down the scheduler of a game cancels the tasks of the game that
+ * haven't started yet and refuses the new ones, without touching the other
+ * games; <code>awaitTermination</code> waits for the ones that are running.
+ */
+public class TurnScheduler {
+
+    private static ScheduledExecutorService sharedExecutor;
+    private final ScheduledExecutorService executor;
+    private final Set<Task> pending; // The tasks not started yet.
+    private boolean shutdown;
+    private int running;
+
+    /**
+     * Creates a scheduler that runs its tasks on the pool shared by every
+     * game.
+     */
+    public TurnScheduler() {
+        this(getSharedExecutor());
+    }
+
+    /**
+     * Creates a scheduler that runs its tasks on <code>executor</code>.
+     *
+     * @param executor
+     */
+    public TurnScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+        this.pending = new HashSet<>();
+    }
+
+    /**
+     * Returns the pool shared by the games, made of daemon threads so that it
+     * doesn't keep the application running.
+     *
+     * @return
+     */
+    public synchronized static ScheduledExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "turn-scheduler-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            pool.setRemoveOnCancelPolicy(true);
+            sharedExecutor = pool;
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * Runs <code>task</code> after <code>delayMs</code> milliseconds, unless
+     * the scheduler is shut down before.
+     *
+     * @param task
+     * @param delayMs
+     */
+    public synchronized void schedule(Runnable task, long delayMs) {
+        if (shutdown) {
+            return;
+        }
+        Task scheduled = new Task(task);
+        pending.add(scheduled);
+        scheduled.future = executor.schedule(scheduled, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the tasks not started yet and refuses the new ones. It doesn't
+     * wait for the running tasks, so it can be called by them.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        for (Task task : pending) {
+            task.future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Waits for the running tasks to finish, after the scheduler has been
+     * shut down. It mustn't be called by a task.
+     *
+     * @param timeoutMs
+     * @return false if some tasks are still running after
+     * <code>timeoutMs</code> milliseconds.
+     * @throws InterruptedException
+     */
+    public synchronized boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (running > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            this.wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * A scheduled task, which is skipped if the scheduler is shut down before
+     * it starts.
+     */
+    private final class Task implements Runnable {
+
+        private final Runnable task;
+        private ScheduledFuture<?> future; // Assigned while holding the scheduler's lock.
+
+        Task(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (TurnScheduler.this) {
+                if (shutdown) {
+                    return;
+                }
+                pending.remove(this);
+                running++;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(TurnScheduler.class.getName()).log(Level.SEVERE, null, ex);
+            } finally {
+                synchronized (TurnScheduler.this) {
+                    running--;
+                    TurnScheduler.this.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package risiko.map;
+
+import java.util.Arrays;
+
+/**
+ * Compact representation of the state of a map, meant for simulations that
+ * need to play (or copy) thousands of games. Countries, continents and players
+ * are represented by their ids: players are identified by their seat, i.e.
+ * their position in the list of players used to build the state.
+ *
+ * The topology of the map (the neighbors of each country, stored in CSR form,
+ * and the continents) never changes and it's shared by all the copies of a
+ * state, while armies, owners and the ownership counters are plain arrays that
+ * can be copied and restored with a few <code>System.arraycopy</code>.
+ *
+ * States are built from a <code>RisikoMap</code> with
+ * <code>RisikoMap.toCompactState</code> and written back with
+ * <code>RisikoMap.restoreFromCompactState</code>.
+ */
+public class CompactMapState {
+
+    public static final byte NO_OWNER = -1;
+
+    // Topology, shared between copies.
+    private final int[] neighborsStart; // Neighbors of country i are neighbors[neighborsStart[i]] .. neighbors[neighborsStart[i + 1] - 1].
+    private final int[] neighbors;
+    private final int[] continentOf;
+    private final int[] continentSize;
+    private final int[] continentBonus;
+    private final int nrSeats;
+
+    // State.
+    private final int[] armies;
+    private final byte[] owners;
+    private final int[] countriesPerSeat;
+    private final int[] continentCountries; // Countries held by seat s in continent c are at index c * nrSeats + s.
+
+    /**
+     * Creates a state in which no country has an owner or armies.
+     *
+     * @param neighborsStart offsets of each country's neighbors in
+     * <code>neighbors</code>, length: number of countries + 1.
+     * @param neighbors the ids of the neighbors of all the countries.
+     * @param continentOf the id of the continent of each country.
+     * @param continentBonus the bonus of each continent.
+     * @param nrSeats the number of players.
+     */
+    public CompactMapState(int[] neighborsStart, int[] neighbors, int[] continentOf, int[] continentBonus, int nrSeats) {
+        this.neighborsStart = neighborsStart;
+        this.neighbors = neighbors;
+        this.continentOf = continentOf;
+        this.continentBonus = continentBonus;
+        this.continentSize = new int[continentBonus.length];
+        for (int continent : continentOf) {
+            continentSize[continent]++;
+        }
+        this.nrSeats = nrSeats;
+        this.armies = new int[continentOf.length];
+        this.owners = new byte[continentOf.length];
+        Arrays.fill(owners, NO_OWNER);
+        this.countriesPerSeat = new int[nrSeats];
+        this.continentCountries = new int[continentBonus.length * nrSeats];
+    }
+
+    /**
+     * Creates a copy of <code>other</code> that shares its topology.
+     *
+     * @param other
+     */
+    private CompactMapState(CompactMapState other) {
+        this.neighborsStart = other.neighborsStart;
+        this.neighbors = other.neighbors;
+        this.continentOf = other.continentOf;
+        this.continentSize = other.continentSize;
+        this.continentBonus = other.continentBonus;
+        this.nrSeats = other.nrSeats;
+        this.armies = other.armies.clone();
+        this.owners = other.owners.clone();
+        this.countriesPerSeat = other.countriesPerSeat.clone();
+        this.continentCountries = other.continentCountries.clone();
+    }
+
+    /**
+     * Returns a copy of this state. The copy shares the topology with this
+     * state.
+     *
+     * @return
+     */
+    public CompactMapState copy() {
+        return new CompactMapState(this);
+    }
+
+    /**
+     * Overwrites this state with <code>other</code>, which has to be a copy of
+     * this state (or of a state built from the same map with the same number
+     * of players).
+     *
+     * @param other
+     */
+    public void restore(CompactMapState other) {
+        System.arraycopy(other.armies, 0, armies, 0, armies.length);
+        System.arraycopy(other.owners, 0, owners, 0, owners.length);
+        System.arraycopy(other.countriesPerSeat, 0, countriesPerSeat, 0, countriesPerSeat.length);
+        System.arraycopy(other.continentCountries, 0, continentCountries, 0, continentCountries.length);
+    }
+
+    // ---------------------------- Topology -------------------------------//
+    public int getCountriesCount() {
+        return armies.length;
+    }
+
+    public int getContinentsCount() {
+        return continentBonus.length;
+    }
+
+    public int getSeatsCount() {
+        return nrSeats;
+    }
+
+    /**
+     * Returns the number of neighbors of the country which id is
+     * <code>country</code>.
+     *
+     * @param country
+     * @return
+     */
+    public int getNeighborsCount(int country) {
+        return neighborsStart[country + 1] - neighborsStart[country];
+    }
+
+    /**
+     * Returns the id of the <code>index</code>-th neighbor of the country
+     * which id is <code>country</code>.
+     *
+     * @param country
+     * @param index
+     * @return
+     */
+    public int getNeighbor(int country, int index) {
+        return neighbors[neighborsStart[country] + index];
+    }
+
+    /**
+     * Checks if the two countries are neighbors.
+     *
+     * @param country
+     * @param other
+     * @return
+     */
+    public boolean areNeighbors(int country, int other) {
+        for (int i = neighborsStart[country]; i < neighborsStart[country + 1]; i++) {
+            if (neighbors[i] == other) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getContinent(int country) {
+        return continentOf[country];
+    }
+
+    public int getContinentBonus(int continent) {
+        return continentBonus[continent];
+    }
+
+    // ------------------------------ State --------------------------------//
+    public int getArmies(int country) {
+        return armies[country];
+    }
+
+    public void setArmies(int country, int nrArmies) {
+        armies[country] = nrArmies;
+    }
+
+    public void addArmies(int country, int nrArmies) {
+        armies[country] += nrArmies;
+    }
+
+    public void removeArmies(int country, int nrArmies) {
+        armies[country] -= nrArmies;
+    }
+
+    /**
+     * Returns the seat of the owner of the country, or <code>NO_OWNER</code>.
+     *
+     * @param country
+     * @return
+     */
+    public int getOwner(int country) {
+        return owners[country];
+    }
+
+    /**
+     * Sets the owner of the country and updates the ownership counters.
+     *
+     * @param country
+     * @param seat
+     */
+    public void setOwner(int country, int seat) {
+        int previous = owners[country];
+        if (previous == seat) {
+            return;
+        }
+        int continentIndex = continentOf[country] * nrSeats;
+        if (previous != NO_OWNER) {
+            countriesPerSeat[previous]--;
+            continentCountries[continentIndex + previous]--;
+        }
+        if (seat != NO_OWNER) {
+            countriesPerSeat[seat]++;
+            continentCountries[continentIndex + seat]++;
+        }
+        owners[country] = (byte) seat;
+    }
+
+    /**
+     * Returns the number of countries held by the player sitting at
+     * <code>seat</code>.
+     *
+     * @param seat
+     * @return
+     */
+    public int countCountries(int seat) {
+        return countriesPerSeat[seat];
+    }
+
+    /**
+     * Checks if the player sitting at <code>seat</code> has no more countries.
+     *
+     * @param seat
+     * @return
+     */
+    public boolean hasLost(int seat) {
+        return countriesPerSeat[seat] == 0;
+    }
+
+    /**
+     * Checks if the player sitting at <code>seat</code> holds the whole
+     * continent.
+     *
+     * @param seat
+     * @param continent
+     * @return
+     */
+    public boolean ownsContinent(int seat, int continent) {
+        return continentCountries[continent * nrSeats + seat] == continentSize[continent];
+    }
+
+    /**
+     * Computes the number of bonus armies awarded to the player sitting at
+     * <code>seat</code> at the beginning of its turn.
+     *
+     * @param seat
+     * @return
+     */
+    public int computeBonusArmies(int seat) {
+        int bonus = countriesPerSeat[seat] / 3;
+        for (int continent = 0; continent < continentBonus.length; continent++) {
+            if (ownsContinent(seat, continent)) {
+                bonus += continentBonus[continent];
+            }
+        }
+        return bonus;
+    }
+
+    // ------------------------------- Rules --------------------------------//
+    /**
+     * Returns the maximum number of armies that the country can use either to
+     * attack or to defend.
+     *
+     * @param country
+     * @param isAttacker
+     * @return
+     */
+    public int getMaxArmies(int country, boolean isAttacker) {
+        return isAttacker ? Math.min(3, armies[country] - 1) : Math.min(3, armies[country]);
+    }
+
+    /**
+     * Checks if the country has at least one enemy neighbor and is occupied by
+     * more than one army.
+     *
+     * @param country
+     * @return
+     */
+    public boolean canAttack(int country) {
+        if (armies[country] <= 1) {
+            return false;
+        }
+        for (int i = neighborsStart[country]; i < neighborsStart[country + 1]; i++) {
+            if (owners[neighbors[i]] != owners[country]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if <code>attacker</code> can attack <code>defender</code>.
+     *
+     * @param attacker
+     * @param defender
+     * @return
+     */
+    public boolean controlDefender(int attacker, int defender) {
+        return owners[attacker] != owners[defender] && areNeighbors(attacker, defender);
+    }
+
+    /**
+     * Checks if armies can be moved from <code>fromCountry</code> to
+     * <code>toCountry</code>.
+     *
+     * @param fromCountry
+     * @param toCountry
+     * @return
+     */
+    public boolean canMoveTo(int fromCountry, int toCountry) {
+        return owners[fromCountry] == owners[toCountry] && areNeighbors(fromCountry, toCountry);
+    }
+
+    /**
+     * Labels the territories of the players: two countries get the same label
+     * if they are held by the same player and armies can move between them
+     * passing only through countries held by that player. The label of a
+     * territory is the lowest id in it.
+     *
+     * @return the label of each country, by id.
+     */
+    public int[] labelTerritories() {
+        int[] labels = new int[owners.length];
+        Arrays.fill(labels, -1);
+        int[] queue = new int[owners.length];
+        for (int first = 0; first < owners.length; first++) {
+            if (labels[first] >= 0) {
+                continue;
+            }
+            labels[first] = first;
+            int head = 0, tail = 0;
+            queue[tail++] = first;
+            while (head < tail) {
+                int country = queue[head++];
+                for (int i = neighborsStart[country]; i < neighborsStart[country + 1]; i++) {
+                    int neighbor = neighbors[i];
+                    if (labels[neighbor] < 0 && owners[neighbor] == owners[first]) {
+                        labels[neighbor] = first;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Checks if the country is occupied by more than one army and has at least
+     * one neighbor held by the same player.
+     *
+     * @param country
+     * @return
+     */
+    public boolean canMove(int country) {
+        if (armies[country] <= 1) {
+            return false;
+        }
+        for (int i = neighborsStart[country]; i < neighborsStart[country + 1]; i++) {
+            if (owners[neighbors[i]] == owners[country]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
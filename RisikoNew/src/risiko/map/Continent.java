@@ -1,22 +1,29 @@
 package risiko.map;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import risiko.players.Player;
 
 /**
  * Class that represents a continent. The continent is described by its name,
  * its countries and the number of bonus armies awarded to a player in case it
- * helds all its countries.
+ * helds all its countries. The continent also counts how many of its countries
+ * are held by each player, so that it can tell in constant time if a player
+ * owns all of them.
  */
 public class Continent {
 
     private String name;
     private List<Country> Countries;
     private int bonus;
+    private final Map<Player, Integer> ownedCountries;
 
     public Continent(String name, List<Country> Countries, int bonus) {
         this.name = name;
         this.bonus = bonus;
         this.Countries = Countries;
+        this.ownedCountries = new HashMap<>();
     }
 
     public List<Country> getCountries() {
@@ -53,6 +60,53 @@ public class Continent {
         return this.getCountries().contains(country);
     }
 
+    /**
+     * Returns the number of countries of this continent held by
+     * <code>player</code>.
+     *
+     * @param player
+     * @return
+     */
+    public int countCountriesOwnedBy(Player player) {
+        Integer count = ownedCountries.get(player);
+        return (count == null) ? 0 : count;
+    }
+
+    /**
+     * Checks if <code>player</code> holds all the countries of the continent.
+     *
+     * @param player
+     * @return
+     */
+    public boolean isOwnedBy(Player player) {
+        return countCountriesOwnedBy(player) == Countries.size();
+    }
+
+    /**
+     * Updates the counters after <code>player</code> has gained one of the
+     * countries of the continent.
+     *
+     * @param player
+     */
+    void countryGained(Player player) {
+        ownedCountries.put(player, countCountriesOwnedBy(player) + 1);
+    }
+
+    /**
+     * Updates the counters after <code>player</code> has lost one of the
+     * countries of the continent.
+     *
+     * @param player
+     */
+    void countryLost(Player player) {
+        int count = countCountriesOwnedBy(player) - 1;
+        if (count == 0) {
+            ownedCountries.remove(player);
+        } else {
+            ownedCountries.put(player, count);
+        }
+    }
+
     @Override
     public String toString() {
         return this.name;
@@ -13,21 +13,69 @@ import risiko.players.Player;
 public class Country implements Comparable<Country> {
 
     private final String name;
+    private int id; // Position of the country in its map's registry, -1 if it doesn't belong to any map.
     private int armies;
     private List<Country> neighbors;
     private Player owner;
+    private RisikoMap map; // The map that indexes this country, null if it doesn't belong to any map.
+    private Continent continent;
+    private MapTopology topology; // Holds the ids of the neighbors, null if they've been set by setNeighbors(List).
 
     public Country(String name) {
         this.name = name;
+        this.id = -1;
         this.neighbors = new ArrayList<>();
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public Continent getContinent() {
+        return continent;
+    }
+
+    /**
+     * Registers this country, which belongs to <code>continent</code>, into
+     * <code>map</code> with the id <code>id</code>. From now on the map is
+     * informed of every change of owner.
+     *
+     * @param map
+     * @param id
+     * @param continent
+     */
+    void register(RisikoMap map, int id, Continent continent) {
+        this.map = map;
+        this.id = id;
+        this.continent = continent;
+    }
+
     public List<Country> getNeighbors() {
         return neighbors;
     }
 
+    /**
+     * Sets the neighbors of the country, which are then used for the checks
+     * on the adjacency.
+     *
+     * @param neighbors
+     */
     public void setNeighbors(List<Country> neighbors) {
         this.neighbors = neighbors;
+        this.topology = null;
+    }
+
+    /**
+     * Sets the neighbors of a country that belongs to a map, which are the
+     * ones of the country in <code>topology</code>: the checks on the
+     * adjacency then read their ids from the topology.
+     *
+     * @param neighbors
+     * @param topology
+     */
+    void setNeighbors(List<Country> neighbors, MapTopology topology) {
+        this.neighbors = neighbors;
+        this.topology = topology;
     }
 
     public String getName() {
@@ -36,6 +84,7 @@ public class Country implements Comparable<Country> {
 
     public void setArmies(int armies) {
         this.armies = armies;
+        armiesChanged();
     }
 
     public int getArmies() {
@@ -44,10 +93,22 @@ public class Country implements Comparable<Country> {
 
     public void removeArmies(int armies) {
         this.armies -= armies;
+        armiesChanged();
     }
 
     public void addArmies(int armies) {
         this.armies += armies;
+        armiesChanged();
+    }
+
+    /**
+     * Informs the map to which the country belongs that the number of armies
+     * has changed.
+     */
+    private void armiesChanged() {
+        if (map != null) {
+            map.updateFrontier(this);
+        }
     }
 
     public boolean isConquered() {
@@ -81,15 +142,25 @@ public class Country implements Comparable<Country> {
         return owner;
     }
 
+    /**
+     * Sets the owner of the country and updates the ownership index of the map
+     * to which the country belongs.
+     *
+     * @param owner
+     */
     public void setOwner(Player owner) {
+        Player previousOwner = this.owner;
         this.owner = owner;
+        if (map != null && previousOwner != owner) {
+            map.updateOwnership(this, previousOwner);
+        }
     }
 
     /**
      * Adds an army on this country and decrement its owner's BonusArmies.
      */
     public void reinforce() {
-        armies++;
+        addArmies(1);
         owner.decrementBonusArmies();
     }
 
@@ -102,7 +173,66 @@ public class Country implements Comparable<Country> {
      */
     public boolean canMoveTo(Country toCountry) {
         boolean sameOwner = owner.equals(toCountry.getOwner());
-        return sameOwner && neighbors.contains(toCountry);
+        return sameOwner && isNeighbor(toCountry);
+    }
+
+    /**
+     * Checks if <code>country</code> is a neighbor of this country.
+     *
+     * @param country
+     * @return
+     */
+    public boolean isNeighbor(Country country) {
+        if (topology != null && country.map == map) {
+            return topology.areNeighbors(id, country.id);
+        }
+        return neighbors.contains(country);
+    }
+
+    /**
+     * Checks if at least one of the neighbors belongs to a player different
+     * from the owner of this country.
+     *
+     * @return
+     */
+    public boolean hasEnemyNeighbor() {
+        if (topology != null) {
+            for (int i = 0; i < topology.getNeighborsCount(id); i++) {
+                if (map.getCountryById(topology.getNeighbor(id, i)).getOwner() != owner) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (Country neighbor : neighbors) {
+            if (neighbor.getOwner() != owner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if at least one of the neighbors belongs to the owner of this
+     * country.
+     *
+     * @return
+     */
+    public boolean hasFriendlyNeighbor() {
+        if (topology != null) {
+            for (int i = 0; i < topology.getNeighborsCount(id); i++) {
+                if (map.getCountryById(topology.getNeighbor(id, i)).getOwner() == owner) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (Country neighbor : neighbors) {
+            if (neighbor.getOwner() == owner) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -124,7 +254,7 @@ public class Country implements Comparable<Country> {
      * @return
      */
     public boolean controlDefender(Country defender) {
-        return !defender.getOwner().equals(owner) && neighbors.contains(defender);
+        return !defender.getOwner().equals(owner) && isNeighbor(defender);
     }
 
     /**
@@ -159,13 +289,7 @@ public class Country implements Comparable<Country> {
      * @return
      */
     public boolean canMove(Player player) {
-        boolean canMove = false;
-        for (Country neighbor : neighbors) {
-            if (neighbor.getOwner().equals(owner)) {
-                canMove = true;
-            }
-        }
-        return controlAttacker(player) && canMove;
+        return controlAttacker(player) && hasFriendlyNeighbor();
     }
 
     /**
@@ -175,11 +299,7 @@ public class Country implements Comparable<Country> {
      * @return
      */
     public boolean canAttack() {
-        boolean canAttack = false;
-        for (Country c : neighbors) {
-            canAttack = canAttack || (c.getOwner() != owner);
-        }
-        return canAttack & armies > 1;
+        return armies > 1 && hasEnemyNeighbor();
     }
 
 }
@@ -0,0 +1,158 @@
+package risiko.map;
+
+/**
+ * Set of countries represented by their ids. Each country is a bit of an array
+ * of words, so that adding, removing and looking for a country cost a single
+ * word operation, while comparing two sets scans all their words, so it costs
+ * in proportion to the number of countries of the map, however few are in the
+ * sets. The number of countries in the set is kept up to date, so that
+ * <code>size()</code> is constant time.
+ */
+public class CountrySet {
+
+    private final long[] words;
+    private int size;
+
+    /**
+     * Creates an empty set that can contain the countries which ids go from 0
+     * to <code>capacity</code> - 1.
+     *
+     * @param capacity
+     */
+    public CountrySet(int capacity) {
+        this.words = new long[(capacity + 63) >>> 6];
+        this.size = 0;
+    }
+
+    /**
+     * Creates a copy of <code>other</code>.
+     *
+     * @param other
+     */
+    public CountrySet(CountrySet other) {
+        this.words = other.words.clone();
+        this.size = other.size;
+    }
+
+    /**
+     * Adds the country which id is <code>id</code> to the set.
+     *
+     * @param id
+     */
+    public void add(int id) {
+        long mask = 1L << id;
+        int index = id >>> 6;
+        if ((words[index] & mask) == 0) {
+            words[index] |= mask;
+            size++;
+        }
+    }
+
+    /**
+     * Removes the country which id is <code>id</code> from the set.
+     *
+     * @param id
+     */
+    public void remove(int id) {
+        long mask = 1L << id;
+        int index = id >>> 6;
+        if ((words[index] & mask) != 0) {
+            words[index] &= ~mask;
+            size--;
+        }
+    }
+
+    /**
+     * Checks if the country which id is <code>id</code> belongs to the set. A
+     * negative id (i.e. a country that doesn't belong to any map) is never
+     * contained.
+     *
+     * @param id
+     * @return
+     */
+    public boolean contains(int id) {
+        return id >= 0 && (id >>> 6) < words.length && (words[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Returns the number of countries in the set.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the lowest id in the set which is greater or equal to
+     * <code>fromId</code>, or -1 if there's no such id. The ids of the set can
+     * be visited with:
+     * <code>for (int id = set.nextId(0); id >= 0; id = set.nextId(id + 1))</code>
+     *
+     * @param fromId
+     * @return
+     */
+    public int nextId(int fromId) {
+        int index = fromId >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+        long word = words[index] & (-1L << fromId);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    /**
+     * Checks if every country of <code>other</code> belongs to this set.
+     *
+     * @param other
+     * @return
+     */
+    public boolean containsAll(CountrySet other) {
+        for (int i = 0; i < other.words.length; i++) {
+            long word = (i < words.length) ? words[i] : 0;
+            if ((other.words[i] & ~word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if this set and <code>other</code> have at least one country in
+     * common.
+     *
+     * @param other
+     * @return
+     */
+    public boolean intersects(CountrySet other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every country from the set.
+     */
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,133 @@
+package risiko.map;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import risiko.equipment.BonusDeck;
+import risiko.equipment.Card;
+import services.FileManager;
+import services.MapPack;
+
+/**
+ * The part of a map that never changes during a game: the countries' names and
+ * ids, the adjacency of the countries, the continents, the mission templates
+ * and the tris table. A topology is immutable, so it can be shared by any
+ * number of maps (even by games running on different threads): each
+ * <code>RisikoMap</code> only allocates the state of its game, i.e. the
+ * countries' owners and armies.
+ */
+public final class MapTopology {
+
+    private static MapTopology defaultTopology;
+    private final MapPack pack;
+    private final Map<String, Integer> countryIds;
+    private final int[] neighborsStart; // Neighbors of country i are neighbors[neighborsStart[i]] .. neighbors[neighborsStart[i + 1] - 1].
+    private final int[] neighbors;
+    private final Map<Card[], Integer> tris;
+
+    /**
+     * Builds the topology described by <code>pack</code>.
+     *
+     * @param pack
+     */
+    public MapTopology(MapPack pack) {
+        this.pack = pack;
+        Map<String, Integer> ids = new HashMap<>();
+        for (int id = 0; id < pack.getCountriesCount(); id++) {
+            ids.put(pack.getCountryName(id), id);
+        }
+        this.countryIds = Collections.unmodifiableMap(ids);
+        this.neighborsStart = pack.getNeighborsStart();
+        this.neighbors = pack.getNeighbors();
+        this.tris = BonusDeck.buildTris(pack);
+    }
+
+    /**
+     * Returns the topology of the map of the game, loaded from the map pack
+     * the first time it's requested and then shared by every map.
+     *
+     * @return
+     */
+    public synchronized static MapTopology getDefault() {
+
+        if (defaultTopology == null) {
+            defaultTopology = new MapTopology(FileManager.getInstance().getMapPack());
+        }
+
+        return defaultTopology;
+    }
+
+    /**
+     * Returns the pack from which the topology has been built.
+     *
+     * @return
+     */
+    public MapPack getMapPack() {
+        return pack;
+    }
+
+    public int getCountriesCount() {
+        return neighborsStart.length - 1;
+    }
+
+    /**
+     * Returns the id of the country which name is <code>countryName</code>, or
+     * -1 if there's no such country.
+     *
+     * @param countryName
+     * @return
+     */
+    public int getCountryId(String countryName) {
+        Integer id = countryIds.get(countryName);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * Returns the number of neighbors of the country which id is
+     * <code>id</code>.
+     *
+     * @param id
+     * @return
+     */
+    public int getNeighborsCount(int id) {
+        return neighborsStart[id + 1] - neighborsStart[id];
+    }
+
+    /**
+     * Returns the id of the <code>index</code>-th neighbor of the country
+     * which id is <code>id</code>.
+     *
+     * @param id
+     * @param index
+     * @return
+     */
+    public int getNeighbor(int id, int index) {
+        return neighbors[neighborsStart[id] + index];
+    }
+
+    /**
+     * Checks if the two countries are neighbors, scanning the neighbors of
+     * the first one.
+     *
+     * @param id
+     * @param other
+     * @return
+     */
+    public boolean areNeighbors(int id, int other) {
+        for (int i = neighborsStart[id]; i < neighborsStart[id + 1]; i++) {
+            if (neighbors[i] == other) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the read-only table of the tris and their bonus.
+     *
+     * @return
+     */
+    public Map<Card[], Integer> getTris() {
+        return tris;
+    }
+}
@@ -1,14 +1,17 @@
 package risiko.map;
 
+import risiko.equipment.RandomStream;
 import risiko.players.Player;
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import services.FileManager;
+import services.MapPack;
+import risiko.missions.ContinentsMission;
+import risiko.missions.CountriesMission;
 import risiko.missions.Mission;
 
 /**
@@ -19,10 +22,54 @@ public class RisikoMap {
 
     private final int DEFAULT_ARMIES = 3;
     private final List<Continent> continents;
+    private final List<Country> countries; // Indexed by country id.
+    private final List<Country> countriesView;
+    private final Map<Player, CountrySet> ownedCountries;
+    private final Map<Player, Integer> continentsBonus; // Sum of the bonus of the continents held by each player.
+    private final Map<Player, CountrySet> frontiers; // Countries from which each player can attack.
+    private final Map<Player, TerritoryComponents> components;
+    private final MapTopology topology;
+    private final MapPack pack;
+    private final RandomStream random; // Used to assign countries and missions.
+    private final List<Mission> missions; // In the order of the pack: the position of a mission is its id.
+    private CompactMapState tracked; // Kept up to date after trackCompactState.
+    private List<Player> trackedSeats;
 
     public RisikoMap() {
+        this(MapTopology.getDefault());
+    }
+
+    /**
+     * Creates a map with the topology <code>topology</code>, which is shared:
+     * the map only allocates the countries, with their owners and armies, and
+     * the continents, with their counters.
+     *
+     * @param topology
+     */
+    public RisikoMap(MapTopology topology) {
+        this(topology, new RandomStream());
+    }
+
+    /**
+     * Creates a map with the topology <code>topology</code> that assigns the
+     * countries and the missions using the stream <code>random</code>.
+     *
+     * @param topology
+     * @param random
+     */
+    public RisikoMap(MapTopology topology, RandomStream random) {
+        this.topology = topology;
+        this.random = random;
+        this.pack = topology.getMapPack();
         this.continents = new ArrayList<>();
+        this.countries = new ArrayList<>();
+        this.countriesView = Collections.unmodifiableList(countries);
+        this.ownedCountries = new HashMap<>();
+        this.continentsBonus = new HashMap<>();
+        this.frontiers = new HashMap<>();
+        this.components = new HashMap<>();
         init();
+        this.missions = Collections.unmodifiableList(buildMissions());
     }
 
     /**
@@ -36,42 +83,206 @@ public class RisikoMap {
     }
 
     /**
-     * Builds the list of continents.
+     * Builds the list of continents and their countries. The countries are
+     * registered in the order of the pack, so that their ids are the ids used
+     * by the pack.
      */
     private void buildContinent() {
+        int[] continentOf = pack.getContinentOf();
+        int[] continentBonus = pack.getContinentBonus();
+        List<List<Country>> countriesOfContinents = new ArrayList<>(pack.getContinentsCount());
+        for (int i = 0; i < pack.getContinentsCount(); i++) {
+            List<Country> countriesOfThatContinent = new ArrayList<>();
+            countriesOfContinents.add(countriesOfThatContinent);
+            continents.add(new Continent(pack.getContinentName(i), countriesOfThatContinent, continentBonus[i]));
+        }
+        for (int id = 0; id < pack.getCountriesCount(); id++) {
+            Continent continent = continents.get(continentOf[id]);
+            countriesOfContinents.get(continentOf[id]).add(registerCountry(new Country(pack.getCountryName(id)), continent));
+        }
+    }
 
-        for (Map<String, Object> tmpContinent : FileManager.getInstance().getContinents()) {
+    /**
+     * Adds <code>country</code> to the registry of the countries: the country
+     * gets the next free id, which is the id of its name in the topology.
+     *
+     * @param country
+     * @param continent the continent to which the country belongs.
+     * @return the country itself.
+     */
+    private Country registerCountry(Country country, Continent continent) {
+        country.register(this, countries.size(), continent);
+        countries.add(country);
+        return country;
+    }
 
-            List<Country> countriesOfThatContinent = new ArrayList<>();
-            for (String countryName : (List<String>) tmpContinent.get("countries")) {
-                countriesOfThatContinent.add(new Country(countryName));
+    /**
+     * Updates the ownership index, the continents' counters and the frontiers
+     * after <code>country</code> has passed from <code>previousOwner</code> to
+     * its current owner. Called by <code>Country.setOwner</code>.
+     *
+     * @param country
+     * @param previousOwner
+     */
+    void updateOwnership(Country country, Player previousOwner) {
+        Continent continent = country.getContinent();
+        Player newOwner = country.getOwner();
+        if (tracked != null) {
+            tracked.setOwner(country.getId(), trackedSeats.indexOf(newOwner));
+        }
+        if (previousOwner != null) {
+            getOwnedCountries(previousOwner).remove(country.getId());
+            getFrontier(previousOwner).remove(country.getId());
+            getComponents(previousOwner).invalidate();
+            if (continent.isOwnedBy(previousOwner)) {
+                addContinentsBonus(previousOwner, -continent.getBonus());
+            }
+            continent.countryLost(previousOwner);
+        }
+        if (newOwner != null) {
+            getOwnedCountries(newOwner).add(country.getId());
+            getComponents(newOwner).invalidate();
+            continent.countryGained(newOwner);
+            if (continent.isOwnedBy(newOwner)) {
+                addContinentsBonus(newOwner, continent.getBonus());
             }
+        }
+        updateFrontier(country);
+        for (Country neighbor : country.getNeighbors()) {
+            updateFrontier(neighbor);
+        }
+    }
 
-            String continentName = (String) tmpContinent.get("name");
-            Integer bonus = (Integer) tmpContinent.get("bonus");
-            Continent continent = new Continent(continentName, countriesOfThatContinent, bonus);
-            continents.add(continent);
+    /**
+     * Returns the connected components of <code>player</code>'s territory.
+     *
+     * @param player
+     * @return
+     */
+    private TerritoryComponents getComponents(Player player) {
+        TerritoryComponents territory = components.get(player);
+        if (territory == null) {
+            territory = new TerritoryComponents(countries.size());
+            components.put(player, territory);
         }
+        return territory;
     }
 
     /**
-     * Asks the FileManager the list of countries and their neighbors
-     * (represented by their names), and turns it into an HashMap that maps a
-     * Country to its list of neighbors.
+     * Checks if <code>fromCountry</code> and <code>toCountry</code> belong to
+     * the same player and armies can reach <code>toCountry</code> from
+     * <code>fromCountry</code> passing only through countries held by that
+     * player.
      *
+     * @param fromCountry
+     * @param toCountry
+     * @return
      */
-    private void setAllCountries() {
-        Map<String, List<String>> countryNeighborsNames = FileManager.getInstance().getCountryNeighbors();
-        for (Map.Entry<String, List<String>> row : countryNeighborsNames.entrySet()) {
+    public boolean areConnected(Country fromCountry, Country toCountry) {
+        Player owner = fromCountry.getOwner();
+        if (owner == null || owner != toCountry.getOwner()) {
+            return false;
+        }
+        return getComponents(owner).areConnected(this, getOwnedCountries(owner), fromCountry.getId(), toCountry.getId());
+    }
 
-            List<Country> neighbors = new ArrayList<>();
-            for (String neighbor : row.getValue()) {
-                neighbors.add(getCountryByName(neighbor));
-            }
+    /**
+     * Adds <code>country</code> to its owner's frontier if it can launch an
+     * attack (i.e. it has at least an enemy neighbor and more than one army),
+     * removes it otherwise, and copies its armies to the tracked compact state.
+     * Called whenever the armies or the owner of the country (or of one of its
+     * neighbors) change.
+     *
+     * @param country
+     */
+    void updateFrontier(Country country) {
+        if (tracked != null) {
+            tracked.setArmies(country.getId(), country.getArmies());
+        }
+        if (country.getOwner() == null) {
+            return;
+        }
+        if (country.canAttack()) {
+            getFrontier(country.getOwner()).add(country.getId());
+        } else {
+            getFrontier(country.getOwner()).remove(country.getId());
+        }
+    }
+
+    /**
+     * Returns the set of the ids of the countries from which
+     * <code>player</code> can launch an attack. The set is owned by the map and
+     * it's kept up to date as armies and owners change, so it must not be
+     * modified.
+     *
+     * @param player
+     * @return
+     */
+    public CountrySet getFrontier(Player player) {
+        CountrySet frontier = frontiers.get(player);
+        if (frontier == null) {
+            frontier = new CountrySet(countries.size());
+            frontiers.put(player, frontier);
+        }
+        return frontier;
+    }
+
+    /**
+     * Adds <code>bonus</code> to the sum of the bonus of the continents held by
+     * <code>player</code>.
+     *
+     * @param player
+     * @param bonus
+     */
+    private void addContinentsBonus(Player player, int bonus) {
+        continentsBonus.put(player, getContinentsBonus(player) + bonus);
+    }
+
+    /**
+     * Returns the number of bonus armies awarded to <code>player</code> for the
+     * continents it holds.
+     *
+     * @param player
+     * @return
+     */
+    public int getContinentsBonus(Player player) {
+        Integer bonus = continentsBonus.get(player);
+        return (bonus == null) ? 0 : bonus;
+    }
 
-            Country country = getCountryByName(row.getKey());
+    /**
+     * Returns the set of the ids of <code>player</code>'s countries. The set is
+     * owned by the map and it's kept up to date as the countries change owner,
+     * so it must not be modified.
+     *
+     * @param player
+     * @return
+     */
+    public CountrySet getOwnedCountries(Player player) {
+        CountrySet owned = ownedCountries.get(player);
+        if (owned == null) {
+            owned = new CountrySet(countries.size());
+            ownedCountries.put(player, owned);
+        }
+        return owned;
+    }
+
+    /**
+     * Sets the neighbors and the initial armies of each country, reading the
+     * neighbors' ids from the pack. The checks on the adjacency read the ids
+     * from the topology.
+     *
+     */
+    private void setAllCountries() {
+        int[] neighborsStart = pack.getNeighborsStart();
+        int[] neighborIds = pack.getNeighbors();
+        for (Country country : countries) {
+            List<Country> neighbors = new ArrayList<>(neighborsStart[country.getId() + 1] - neighborsStart[country.getId()]);
+            for (int i = neighborsStart[country.getId()]; i < neighborsStart[country.getId() + 1]; i++) {
+                neighbors.add(countries.get(neighborIds[i]));
+            }
             country.setArmies(DEFAULT_ARMIES);
-            country.setNeighbors(neighbors);
+            country.setNeighbors(neighbors, topology);
         }
     }
 
@@ -80,23 +291,26 @@ public class RisikoMap {
      *
      */
     private List<Mission> buildMissions() {
-        List<Mission> missions=new ArrayList<>();
-        Constructor constructor;
+        List<Mission> missions = new ArrayList<>(pack.getMissionsCount());
         Mission m;
         String description;
         int points;
-        String packagePath = "risiko.missions.";
-        for (Map<String, Object> mission : FileManager.getInstance().getMissions()) {
-            try {
-                points = (Integer) mission.get("points");
-                description = (String) mission.get("description") + "\n (" + points + "punti)";
-                constructor = Class.forName(packagePath + (String) mission.get("type") + "Mission").getConstructor(String.class, Integer.TYPE);
-                m = (Mission) constructor.newInstance(description, points);
-                missions.add(m);
-                m.buildTarget(continents);
-            } catch (Exception ex) {
-                Logger.getLogger(RisikoMap.class.getName()).log(Level.SEVERE, null, ex);
+        for (int i = 0; i < pack.getMissionsCount(); i++) {
+            points = pack.getMissionPoints(i);
+            description = pack.getMissionDescription(i) + "\n (" + points + "punti)";
+            switch (pack.getMissionType(i)) {
+                case "Countries":
+                    m = new CountriesMission(description, points);
+                    break;
+                case "Continents":
+                    m = new ContinentsMission(description, points);
+                    break;
+                default:
+                    Logger.getLogger(RisikoMap.class.getName()).log(Level.SEVERE, "Unknown mission type {0}", pack.getMissionType(i));
+                    continue;
             }
+            missions.add(m);
+            m.buildTarget(continents);
         }
         return missions;
     }
@@ -117,23 +331,44 @@ public class RisikoMap {
      * @param players
      */
     private void assignMissionToPlayers(List<Player> players) {
-        List<Mission> missions = buildMissions();
-        Collections.shuffle(missions);
+        List<Mission> shuffled = new ArrayList<>(missions);
+        random.shuffle(shuffled);
         for (int i = 0; i < players.size(); i++) {
-            players.get(i).setMission(missions.get(i));
+            players.get(i).setMission(shuffled.get(i));
         }
     }
 
+    /**
+     * Returns the id of <code>mission</code>, or -1 if it isn't a mission of
+     * this map.
+     *
+     * @param mission
+     * @return
+     */
+    public int getMissionId(Mission mission) {
+        return missions.indexOf(mission);
+    }
+
+    /**
+     * Returns the mission which id is <code>id</code>.
+     *
+     * @param id
+     * @return
+     */
+    public Mission getMission(int id) {
+        return missions.get(id);
+    }
+
     /**
      * Assigns some countries to each player randomly.
      *
      * @param players
      */
     public void assignCountriesToPlayers(List<Player> players) {
-        List<Country> countries = getCountriesList();
-        Collections.shuffle(countries);
+        List<Country> shuffledCountries = new ArrayList<>(countries);
+        random.shuffle(shuffledCountries);
         int round = 0;
-        for (Country country : countries) {
+        for (Country country : shuffledCountries) {
             country.setOwner(nextPlayer(players, round++));
         }
     }
@@ -147,18 +382,53 @@ public class RisikoMap {
     }
 
     /**
-     * Returns a list containing all the countries.
+     * Returns a read-only list containing all the countries. The position of
+     * each country in the list is its id.
      *
      * @return
      */
     public List<Country> getCountriesList() {
-        List<Country> countries = new ArrayList<>();
-        for (Continent continent : continents) {
-            for (Country country : continent.getCountries()) {
-                countries.add(country);
-            }
-        }
-        return countries;
+        return countriesView;
+    }
+
+    /**
+     * Returns the topology of the map, shared with the other maps built from
+     * the same pack.
+     *
+     * @return
+     */
+    public MapTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the number of countries on the map.
+     *
+     * @return
+     */
+    public int getCountriesCount() {
+        return countries.size();
+    }
+
+    /**
+     * Returns the Country which id is <code>id</code>.
+     *
+     * @param id
+     * @return
+     */
+    public Country getCountryById(int id) {
+        return countries.get(id);
+    }
+
+    /**
+     * Returns the id of the country which name is <code>countryName</code>, or
+     * -1 if there's no such country.
+     *
+     * @param countryName
+     * @return
+     */
+    public int getCountryId(String countryName) {
+        return topology.getCountryId(countryName);
     }
 
     /**
@@ -168,15 +438,7 @@ public class RisikoMap {
      * @param player
      */
     public void computeBonusArmies(Player player) {
-
-        int bonus = 0;
-        for (Continent continent : continents) {
-            if (ownsContinent(player, continent)) {
-                bonus += continent.getBonus();
-            }
-        }
-
-        bonus += (int) Math.floor(getMyCountries(player).size() / 3);
+        int bonus = getContinentsBonus(player) + countCountries(player) / 3;
         player.addBonusArmies(bonus);
     }
 
@@ -189,7 +451,7 @@ public class RisikoMap {
      * @return
      */
     private boolean ownsContinent(Player player, Continent continent) {
-        return getMyCountries(player).containsAll(continent.getCountries());
+        return continent.isOwnedBy(player);
     }
 
     /**
@@ -200,9 +462,7 @@ public class RisikoMap {
      * @return
      */
     public boolean hasConqueredContinent(Country conqueredCountry) {
-        Player player = conqueredCountry.getOwner();
-        Continent continent = getContinentByCountry(conqueredCountry);
-        return ownsContinent(player, continent);
+        return ownsContinent(conqueredCountry.getOwner(), conqueredCountry.getContinent());
     }
 
     /**
@@ -212,6 +472,9 @@ public class RisikoMap {
      * @return
      */
     public Continent getContinentByCountry(Country country) {
+        if (country.getContinent() != null) {
+            return country.getContinent();
+        }
         for (Continent continent : continents) {
             if (continent.containsCountry(country)) {
                 return continent;
@@ -227,15 +490,24 @@ public class RisikoMap {
      * @return
      */
     public List<Country> getMyCountries(Player player) {
-        List<Country> myCountries = new ArrayList<>();
-        for (Country country : getCountriesList()) {
-            if (country.getOwner().equals(player)) {
-                myCountries.add(country);
-            }
+        CountrySet owned = getOwnedCountries(player);
+        List<Country> myCountries = new ArrayList<>(owned.size());
+        for (int id = owned.nextId(0); id >= 0; id = owned.nextId(id + 1)) {
+            myCountries.add(countries.get(id));
         }
         return myCountries;
     }
 
+    /**
+     * Returns the number of countries held by <code>player</code>.
+     *
+     * @param player
+     * @return
+     */
+    public int countCountries(Player player) {
+        return getOwnedCountries(player).size();
+    }
+
     /**
      * Returns the list of country's neighbors.
      *
@@ -253,7 +525,7 @@ public class RisikoMap {
      * @return
      */
     public boolean checkIfWinner(Player player) {
-        return player.checkIfWinner(getMyCountries(player));
+        return player.checkIfWinner(getOwnedCountries(player));
     }
 
     /**
@@ -273,7 +545,7 @@ public class RisikoMap {
      * @return
      */
     public boolean hasLost(Player defenderPlayer) {
-        return getMyCountries(defenderPlayer).isEmpty();
+        return getOwnedCountries(defenderPlayer).isEmpty();
     }
 
     /**
@@ -283,12 +555,8 @@ public class RisikoMap {
      * @return
      */
     public Country getCountryByName(String countryName) {
-        for (Country country : getCountriesList()) {
-            if (country.getName().equals(countryName)) {
-                return country;
-            }
-        }
-        return null;
+        int id = topology.getCountryId(countryName);
+        return (id < 0) ? null : countries.get(id);
     }
 
     /**
@@ -299,10 +567,65 @@ public class RisikoMap {
      * @param newOwner new owner of the territories
      */
     public void changeOwner(Player oldOwner, Player newOwner) {
-        for (Country country : getCountriesList()) {
-            if (country.getOwner().equals(oldOwner)) {
-                country.setOwner(newOwner);
-            }
+        CountrySet owned = getOwnedCountries(oldOwner);
+        for (int id = owned.nextId(0); id >= 0; id = owned.nextId(0)) {
+            countries.get(id).setOwner(newOwner);
+        }
+    }
+
+    /**
+     * Returns a compact copy of the current state of the map. Each player is
+     * represented by its position in <code>seats</code>.
+     *
+     * @param seats
+     * @return
+     */
+    public CompactMapState toCompactState(List<Player> seats) {
+        CompactMapState state = new CompactMapState(pack.getNeighborsStart(), pack.getNeighbors(), pack.getContinentOf(),
+                pack.getContinentBonus(), seats.size());
+        for (Country country : countries) {
+            state.setArmies(country.getId(), country.getArmies());
+            state.setOwner(country.getId(), seats.indexOf(country.getOwner()));
+        }
+        return state;
+    }
+
+    /**
+     * Keeps a compact copy of the map up to date from now on, as the countries
+     * change armies and owner, so that it can be copied with
+     * <code>copyTrackedState</code> without visiting the countries. Each
+     * player is represented by its position in <code>seats</code>, which is
+     * read again whenever a country changes owner.
+     *
+     * @param seats
+     */
+    public void trackCompactState(List<Player> seats) {
+        this.trackedSeats = seats;
+        this.tracked = toCompactState(seats);
+    }
+
+    /**
+     * Returns a copy of the state kept by <code>trackCompactState</code>.
+     *
+     * @return
+     */
+    public CompactMapState copyTrackedState() {
+        return tracked.copy();
+    }
+
+    /**
+     * Writes <code>state</code> back into the map: each country gets the armies
+     * and the owner it has in the compact state.
+     *
+     * @param state a state built by <code>toCompactState</code> with the same
+     * <code>seats</code>.
+     * @param seats
+     */
+    public void restoreFromCompactState(CompactMapState state, List<Player> seats) {
+        for (Country country : countries) {
+            int seat = state.getOwner(country.getId());
+            country.setArmies(state.getArmies(country.getId()));
+            country.setOwner(seat == CompactMapState.NO_OWNER ? null : seats.get(seat));
         }
     }
 }
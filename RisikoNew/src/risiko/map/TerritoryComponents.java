@@ -0,0 +1,95 @@
+package risiko.map;
+
+/**
+ * Connected components of the territory of a player, i.e. the groups of
+ * countries held by the player that are connected through countries held by
+ * the same player. The components are stored in a union-find structure over
+ * the ids of the countries, which is rebuilt lazily: changing the territory
+ * only marks the structure as out of date, and the next query rebuilds it.
+ */
+class TerritoryComponents {
+
+    private final int[] parent;
+    private boolean upToDate;
+
+    /**
+     * Creates the components for a map with <code>nrCountries</code>
+     * countries.
+     *
+     * @param nrCountries
+     */
+    TerritoryComponents(int nrCountries) {
+        this.parent = new int[nrCountries];
+        this.upToDate = false;
+    }
+
+    /**
+     * Marks the components as out of date. Called whenever the player gains or
+     * loses a country.
+     */
+    void invalidate() {
+        upToDate = false;
+    }
+
+    /**
+     * Checks if the countries which ids are <code>first</code> and
+     * <code>second</code> belong to the same component. Both of them must be
+     * held by the player.
+     *
+     * @param map
+     * @param owned the ids of the player's countries.
+     * @param first
+     * @param second
+     * @return
+     */
+    boolean areConnected(RisikoMap map, CountrySet owned, int first, int second) {
+        if (!upToDate) {
+            rebuild(map, owned);
+        }
+        return find(first) == find(second);
+    }
+
+    /**
+     * Rebuilds the components by joining every pair of neighbors held by the
+     * player.
+     *
+     * @param map
+     * @param owned
+     */
+    private void rebuild(RisikoMap map, CountrySet owned) {
+        for (int id = owned.nextId(0); id >= 0; id = owned.nextId(id + 1)) {
+            parent[id] = id;
+        }
+        for (int id = owned.nextId(0); id >= 0; id = owned.nextId(id + 1)) {
+            for (Country neighbor : map.getCountryById(id).getNeighbors()) {
+                if (neighbor.getId() < id && owned.contains(neighbor.getId())) {
+                    union(id, neighbor.getId());
+                }
+            }
+        }
+        upToDate = true;
+    }
+
+    /**
+     * Returns the representative of the component of <code>id</code>,
+     * halving the path on the way.
+     *
+     * @param id
+     * @return
+     */
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    private void union(int first, int second) {
+        int firstRoot = find(first);
+        int secondRoot = find(second);
+        if (firstRoot != secondRoot) {
+            parent[firstRoot] = secondRoot;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import risiko.map.Continent;
 import risiko.map.Country;
+import risiko.map.CountrySet;
 
 /**
  * A mission which consists in conquering countries in <code>targetList</code>.
@@ -38,6 +39,23 @@ public class ContinentsMission extends Mission {
         return myCountries.containsAll(targetList);
     }
 
+    /**
+     * Checks if the mission is completed. I.E. if <code>myCountries</code>
+     * contains all the countries in <code>this.targetList</code>.
+     *
+     * @param myCountries the set of the ids of the player's countries.
+     * @return
+     */
+    @Override
+    public boolean isCompleted(CountrySet myCountries) {
+        for (Country country : targetList) {
+            if (!myCountries.contains(country.getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Builds <code>targetList</code>.
      *
@@ -3,6 +3,7 @@ package risiko.missions;
 import java.util.List;
 import risiko.map.Continent;
 import risiko.map.Country;
+import risiko.map.CountrySet;
 
 /**
  * A mission which consits in conquering <code>nrCountriesToConquer</code>
@@ -32,6 +33,17 @@ public class CountriesMission extends Mission {
         return countries.size() >= nrCountriesToConquer;
     }
 
+    /**
+     * Checks if the mission is completed, i.e. if <code>countries</code>
+     * contains at least <code> nrCountriesToConquer</code> countries.
+     *
+     * @return
+     */
+    @Override
+    public boolean isCompleted(CountrySet countries) {
+        return countries.size() >= nrCountriesToConquer;
+    }
+
     /**
      * Builds <code>targetList</code>.
      *
@@ -3,6 +3,7 @@ package risiko.missions;
 import java.util.List;
 import risiko.map.Continent;
 import risiko.map.Country;
+import risiko.map.CountrySet;
 
 /**
  * Class that represent a mission. 
@@ -33,6 +34,13 @@ public abstract class Mission {
      */
     public abstract boolean isCompleted(List<Country> countries);
 
+    /**
+     * Checks if the mission is completed.
+     * @param countries the set of the ids of the player's countries.
+     * @return 
+     */
+    public abstract boolean isCompleted(CountrySet countries);
+
     /**
      * Builds <code>targetList</code>.
      * @param continents 
@@ -0,0 +1,226 @@
+package risiko.phase;
+
+import java.util.Arrays;
+
+/**
+ * Exact odds of a battle, i.e. of a series of attacks from a country to
+ * another one that goes on, with the maximum number of dice on both sides,
+ * until the defender is conquered or the attacker is left with a single army.
+ *
+ * Each round follows the rules of <code>Dice.rollBattle</code>:
+ * the attacker rolls up to 3 dice (one less than its armies), the defender up
+ * to 3 dice (no more than its armies), the highest dice are compared in pairs
+ * and the defender wins the ties. The battle is a Markov chain on the pairs
+ * (attacking armies, defending armies), in which every round moves to a pair
+ * with fewer armies: the odds of all the pairs are computed by dynamic
+ * programming, in order of growing armies, and stored in a table shared by
+ * every game. The table grows when a battle with more armies is requested,
+ * doubling only the side (attacking or defending armies) that is too short,
+ * so a large army against a few defenders doesn't build a square table.
+ * After the warm-up each query costs O(1).
+ */
+public final class BattleOdds {
+
+    private static final int MAX_DICE = 3;
+    private static final int INITIAL_SIZE = 32;
+    // ROUND[nA][nD][k]: probability that the attacker loses k armies in a round with nA and nD dice.
+    private static final double[][][] ROUND = computeRounds();
+    private static volatile Table table = new Table(INITIAL_SIZE, INITIAL_SIZE, null);
+
+    private BattleOdds() {
+    }
+
+    /**
+     * Odds of the battles with up to <code>rows</code> - 1 attacking armies
+     * and <code>columns</code> - 1 defending armies. Tables are never modified
+     * once built.
+     */
+    private static final class Table {
+
+        private final int rows, columns;
+        private final double[] win, attackerLosses, defenderLosses; // Indexed by a * columns + d.
+
+        /**
+         * Builds a table of <code>rows</code> by <code>columns</code>, copying
+         * the entries of <code>previous</code> (if not null) and computing the
+         * other ones.
+         */
+        private Table(int rows, int columns, Table previous) {
+            this.rows = rows;
+            this.columns = columns;
+            this.win = new double[rows * columns];
+            this.attackerLosses = new double[rows * columns];
+            this.defenderLosses = new double[rows * columns];
+            int previousRows = (previous == null) ? 0 : previous.rows;
+            int previousColumns = (previous == null) ? 0 : previous.columns;
+            for (int a = 0; a < rows; a++) {
+                for (int d = 0; d < columns; d++) {
+                    int index = a * columns + d;
+                    if (a < previousRows && d < previousColumns) {
+                        int previousIndex = a * previousColumns + d;
+                        win[index] = previous.win[previousIndex];
+                        attackerLosses[index] = previous.attackerLosses[previousIndex];
+                        defenderLosses[index] = previous.defenderLosses[previousIndex];
+                    } else {
+                        compute(a, d);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Computes the odds of the pair (a, d) from the ones of the pairs
+         * reachable in a round, which have fewer armies and therefore have
+         * already been computed.
+         */
+        private void compute(int a, int d) {
+            int index = a * columns + d;
+            if (d == 0) {
+                win[index] = 1;
+                return;
+            }
+            if (a == 0) {
+                return;
+            }
+            int nA = Math.min(MAX_DICE, a);
+            int nD = Math.min(MAX_DICE, d);
+            int fights = Math.min(nA, nD);
+            for (int lostA = 0; lostA <= fights; lostA++) {
+                double p = ROUND[nA][nD][lostA];
+                int lostD = fights - lostA;
+                int next = (a - lostA) * columns + (d - lostD);
+                win[index] += p * win[next];
+                attackerLosses[index] += p * (lostA + attackerLosses[next]);
+                defenderLosses[index] += p * (lostD + defenderLosses[next]);
+            }
+        }
+    }
+
+    /**
+     * Computes the distribution of the attacker's losses in a single round,
+     * for every number of dice, by enumerating all the rolls.
+     */
+    private static double[][][] computeRounds() {
+        double[][][] rounds = new double[MAX_DICE + 1][MAX_DICE + 1][];
+        for (int nA = 1; nA <= MAX_DICE; nA++) {
+            for (int nD = 1; nD <= MAX_DICE; nD++) {
+                int nrRolls = (int) Math.pow(6, nA + nD);
+                int fights = Math.min(nA, nD);
+                double[] losses = new double[fights + 1];
+                int[] attackerDice = new int[nA], defenderDice = new int[nD];
+                for (int roll = 0; roll < nrRolls; roll++) {
+                    int code = roll;
+                    for (int i = 0; i < nA; i++, code /= 6) {
+                        attackerDice[i] = code % 6;
+                    }
+                    for (int i = 0; i < nD; i++, code /= 6) {
+                        defenderDice[i] = code % 6;
+                    }
+                    Arrays.sort(attackerDice);
+                    Arrays.sort(defenderDice);
+                    int lostA = 0;
+                    for (int i = 1; i <= fights; i++) {
+                        if (attackerDice[nA - i] <= defenderDice[nD - i]) {
+                            lostA++;
+                        }
+                    }
+                    losses[lostA]++;
+                }
+                for (int k = 0; k < losses.length; k++) {
+                    losses[k] /= nrRolls;
+                }
+                rounds[nA][nD] = losses;
+            }
+        }
+        return rounds;
+    }
+
+    /**
+     * Returns a table that contains the pair (a, d), growing the shared one if
+     * needed.
+     */
+    private static Table getTable(int a, int d) {
+        Table current = table;
+        if (a < current.rows && d < current.columns) {
+            return current;
+        }
+        synchronized (BattleOdds.class) {
+            current = table;
+            if (a >= current.rows || d >= current.columns) {
+                current = new Table(grow(current.rows, a), grow(current.columns, d), current);
+                table = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Returns <code>size</code> doubled until it's greater than
+     * <code>index</code>.
+     */
+    private static int grow(int size, int index) {
+        while (index >= size) {
+            size *= 2;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the probability that a country occupied by
+     * <code>attackerArmies</code> armies conquers a country occupied by
+     * <code>defenderArmies</code> armies.
+     *
+     * @param attackerArmies the armies on the attacker country (one of them
+     * can't attack).
+     * @param defenderArmies
+     * @return
+     */
+    public static double getWinProbability(int attackerArmies, int defenderArmies) {
+        int a = Math.max(0, attackerArmies - 1), d = Math.max(0, defenderArmies);
+        Table odds = getTable(a, d);
+        return odds.win[a * odds.columns + d];
+    }
+
+    /**
+     * Returns the expected number of armies lost by the attacker in the
+     * battle.
+     *
+     * @param attackerArmies the armies on the attacker country.
+     * @param defenderArmies
+     * @return
+     */
+    public static double getExpectedAttackerLosses(int attackerArmies, int defenderArmies) {
+        int a = Math.max(0, attackerArmies - 1), d = Math.max(0, defenderArmies);
+        Table odds = getTable(a, d);
+        return odds.attackerLosses[a * odds.columns + d];
+    }
+
+    /**
+     * Returns the expected number of armies lost by the defender in the
+     * battle.
+     *
+     * @param attackerArmies the armies on the attacker country.
+     * @param defenderArmies
+     * @return
+     */
+    public static double getExpectedDefenderLosses(int attackerArmies, int defenderArmies) {
+        int a = Math.max(0, attackerArmies - 1), d = Math.max(0, defenderArmies);
+        Table odds = getTable(a, d);
+        return odds.defenderLosses[a * odds.columns + d];
+    }
+
+    /**
+     * Returns the probability that the attacker loses <code>lostArmies</code>
+     * armies in a single round in which it rolls <code>nrA</code> dice and the
+     * defender rolls <code>nrD</code> dice.
+     *
+     * @param nrA
+     * @param nrD
+     * @param lostArmies
+     * @return
+     */
+    public static double getRoundProbability(int nrA, int nrD, int lostArmies) {
+        double[] losses = ROUND[nrA][nrD];
+        return (lostArmies < 0 || lostArmies >= losses.length) ? 0 : losses[lostArmies];
+    }
+}
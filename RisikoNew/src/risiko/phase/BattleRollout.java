@@ -0,0 +1,245 @@
+package risiko.phase;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import risiko.equipment.Dice;
+import risiko.equipment.RandomStream;
+
+/**
+ * Monte Carlo estimate of the outcome of many battles at once, e.g. of every
+ * attacker/defender pair of a frontier with hundreds of thousands of samples
+ * each. A battle follows the rules of <code>BattleOdds</code>: both sides roll
+ * the maximum number of dice until the defender is conquered or the attacker
+ * is left with a single army.
+ *
+ * The samples of a pair are simulated in batches, each one a pair of
+ * <code>int</code> arrays with the armies of every sample, advanced one round
+ * at a time by a loop without branches: the attacker's losses in a round are
+ * drawn from the exact distribution of the round with a single random number
+ * compared against a table of thresholds, so there are no dice to roll and
+ * sort. The batches are independent, so they are run in parallel on a
+ * fork/join pool; every batch has its own random stream, derived from the
+ * seed and its position, so the results don't depend on the scheduling.
+ *
+ * An instance is not thread-safe, but it can be shared by sequential callers.
+ */
+public class BattleRollout {
+
+    public static final int BATCH_SIZE = 4096; // Samples simulated together by a task.
+    private static final int MAX_DICE = Dice.MAX_DICE;
+    // THRESHOLDS[(nA * 4 + nD) * 3 + k]: the attacker loses more than k armies if a 53 bits random number is >= the threshold.
+    private static final long[] THRESHOLDS = computeThresholds();
+    private final RandomStream random;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an engine that runs on the common fork/join pool.
+     *
+     * @param seed
+     */
+    public BattleRollout(long seed) {
+        this(seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an engine that runs on the pool <code>pool</code>.
+     *
+     * @param seed the same seed returns the same estimates for the same
+     * sequence of calls.
+     * @param pool
+     */
+    public BattleRollout(long seed, ForkJoinPool pool) {
+        this.random = new RandomStream(seed);
+        this.pool = pool;
+    }
+
+    private static long[] computeThresholds() {
+        long[] thresholds = new long[(MAX_DICE + 1) * (MAX_DICE + 1) * MAX_DICE];
+        java.util.Arrays.fill(thresholds, Long.MAX_VALUE);
+        for (int nA = 1; nA <= MAX_DICE; nA++) {
+            for (int nD = 1; nD <= MAX_DICE; nD++) {
+                double cumulative = 0;
+                for (int k = 0; k < Math.min(nA, nD); k++) {
+                    cumulative += BattleOdds.getRoundProbability(nA, nD, k);
+                    thresholds[(nA * 4 + nD) * MAX_DICE + k] = (long) (cumulative * (1L << 53));
+                }
+            }
+        }
+        return thresholds;
+    }
+
+    /**
+     * Estimates the outcome of the battles between the countries occupied by
+     * <code>attackerArmies[i]</code> and <code>defenderArmies[i]</code>
+     * armies, simulating each of them <code>samples</code> times. The
+     * estimates of battle <code>i</code> are written at index <code>i</code>
+     * of the output arrays (which can be null if not needed).
+     *
+     * @param attackerArmies the armies on the attacker countries (one of them
+     * can't attack).
+     * @param defenderArmies
+     * @param samples
+     * @param winProbability the fraction of the samples won by the attacker.
+     * @param attackerLosses the average number of armies lost by the attacker.
+     * @param defenderLosses the average number of armies lost by the defender.
+     */
+    public void rollout(int[] attackerArmies, int[] defenderArmies, int samples, double[] winProbability, double[] attackerLosses, double[] defenderLosses) {
+        if (attackerArmies.length != defenderArmies.length || samples <= 0) {
+            throw new IllegalArgumentException("Invalid battles");
+        }
+        int batches = (samples + BATCH_SIZE - 1) / BATCH_SIZE;
+        long[] counts = new long[attackerArmies.length * batches * 3]; // Wins and losses of each batch.
+        pool.invoke(new RolloutTask(attackerArmies, defenderArmies, samples, batches, random.nextLong(), counts, 0, attackerArmies.length * batches));
+        for (int i = 0; i < attackerArmies.length; i++) {
+            long wins = 0, lostA = 0, lostD = 0;
+            for (int b = 0; b < batches; b++) {
+                int index = (i * batches + b) * 3;
+                wins += counts[index];
+                lostA += counts[index + 1];
+                lostD += counts[index + 2];
+            }
+            if (winProbability != null) {
+                winProbability[i] = (double) wins / samples;
+            }
+            if (attackerLosses != null) {
+                attackerLosses[i] = (double) lostA / samples;
+            }
+            if (defenderLosses != null) {
+                defenderLosses[i] = (double) lostD / samples;
+            }
+        }
+    }
+
+    /**
+     * Estimates the probability that a country occupied by
+     * <code>attackerArmies</code> armies conquers a country occupied by
+     * <code>defenderArmies</code> armies.
+     *
+     * @param attackerArmies
+     * @param defenderArmies
+     * @param samples
+     * @return
+     */
+    public double estimateWinProbability(int attackerArmies, int defenderArmies, int samples) {
+        double[] win = new double[1];
+        rollout(new int[]{attackerArmies}, new int[]{defenderArmies}, samples, win, null, null);
+        return win[0];
+    }
+
+    /**
+     * Simulates the batches from <code>from</code> (inclusive) to
+     * <code>to</code> (exclusive), splitting them in halves until a single
+     * batch is left.
+     */
+    private static final class RolloutTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final int[] attackerArmies, defenderArmies;
+        private final int samples, batches;
+        private final long seed;
+        private final long[] counts;
+        private final int from, to;
+
+        RolloutTask(int[] attackerArmies, int[] defenderArmies, int samples, int batches, long seed, long[] counts, int from, int to) {
+            this.attackerArmies = attackerArmies;
+            this.defenderArmies = defenderArmies;
+            this.samples = samples;
+            this.batches = batches;
+            this.seed = seed;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RolloutTask(attackerArmies, defenderArmies, samples, batches, seed, counts, from, middle),
+                        new RolloutTask(attackerArmies, defenderArmies, samples, batches, seed, counts, middle, to));
+                return;
+            }
+            int battle = from / batches, batch = from % batches;
+            int size = Math.min(BATCH_SIZE, samples - batch * BATCH_SIZE);
+            RandomStream stream = new RandomStream(seed + from).split();
+            simulate(attackerArmies[battle], defenderArmies[battle], size, stream, counts, from * 3);
+        }
+    }
+
+    /**
+     * Simulates <code>size</code> battles and adds the number of battles won
+     * and the armies lost by both sides to <code>counts</code>, from
+     * <code>offset</code>.
+     */
+    private static void simulate(int attackerArmies, int defenderArmies, int size, RandomStream stream, long[] counts, int offset) {
+        int a0 = Math.max(0, attackerArmies - 1), d0 = Math.max(0, defenderArmies);
+        int[] att = new int[size], def = new int[size];
+        java.util.Arrays.fill(att, a0);
+        java.util.Arrays.fill(def, d0);
+        boolean alive = a0 > 0 && d0 > 0;
+        while (alive) {
+            int fighting = 0;
+            // The battles already over have nA or nD equal to 0, hence no fights and no losses.
+            for (int i = 0; i < size; i++) {
+                int a = att[i], d = def[i];
+                int nA = Math.min(MAX_DICE, a), nD = Math.min(MAX_DICE, d);
+                int fights = Math.min(nA, nD);
+                long u = stream.nextLong() >>> 11;
+                int base = (nA * 4 + nD) * MAX_DICE;
+                int lostA = ((u >= THRESHOLDS[base]) ? 1 : 0) + ((u >= THRESHOLDS[base + 1]) ? 1 : 0) + ((u >= THRESHOLDS[base + 2]) ? 1 : 0);
+                a -= lostA;
+                d -= fights - lostA;
+                att[i] = a;
+                def[i] = d;
+                fighting += (a > 0 && d > 0) ? 1 : 0;
+            }
+            alive = fighting > 0;
+        }
+        long wins = 0, remainingA = 0, remainingD = 0;
+        for (int i = 0; i < size; i++) {
+            wins += (def[i] == 0) ? 1 : 0;
+            remainingA += att[i];
+            remainingD += def[i];
+        }
+        counts[offset] += wins;
+        counts[offset + 1] += (long) a0 * size - remainingA;
+        counts[offset + 2] += (long) d0 * size - remainingD;
+    }
+
+    /**
+     * Estimates the battles between every attacker/defender pair with
+     * <code>armies</code> armies on each side and prints the throughput, in
+     * battles per second, and the largest error against the exact odds.
+     * Arguments (all optional): maximum armies, samples per battle and
+     * repetitions.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int maxArmies = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        int samples = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+        int repetitions = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        int nrBattles = (maxArmies - 1) * maxArmies;
+        int[] attackers = new int[nrBattles], defenders = new int[nrBattles];
+        for (int a = 2, i = 0; a <= maxArmies; a++) {
+            for (int d = 1; d <= maxArmies; d++, i++) {
+                attackers[i] = a;
+                defenders[i] = d;
+            }
+        }
+        double[] win = new double[nrBattles];
+        BattleRollout rollout = new BattleRollout(0);
+        rollout.rollout(attackers, defenders, samples, win, null, null); // Warm-up.
+        for (int r = 0; r < repetitions; r++) {
+            long start = System.nanoTime();
+            rollout.rollout(attackers, defenders, samples, win, null, null);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double maxError = 0;
+            for (int i = 0; i < nrBattles; i++) {
+                maxError = Math.max(maxError, Math.abs(win[i] - BattleOdds.getWinProbability(attackers[i], defenders[i])));
+            }
+            System.out.printf("%d battles x %d samples: %.3f s, %.0f battles/s, max error %.4f%n",
+                    nrBattles, samples, seconds, nrBattles * (double) samples / seconds, maxError);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.Map;
 import risiko.equipment.BonusDeck;
 import risiko.equipment.Card;
+import risiko.equipment.RandomStream;
 import risiko.map.RisikoMap;
 import risiko.players.Player;
 
@@ -18,9 +19,20 @@ public class CardsPhase extends Phase {
     private final BonusDeck deck;
 
     public CardsPhase(RisikoMap map) {
+        this(map, new RandomStream());
+    }
+
+    /**
+     * Creates the phase, with a deck shuffled using the stream
+     * <code>random</code>.
+     *
+     * @param map
+     * @param random
+     */
+    public CardsPhase(RisikoMap map, RandomStream random) {
         super(map);
         this.index = CARD_INDEX;
-        deck = new BonusDeck();
+        deck = new BonusDeck(map.getTopology().getTris(), random);
     }
 
     /**
@@ -39,6 +51,10 @@ public class CardsPhase extends Phase {
         }
     }
 
+    public BonusDeck getDeck() {
+        return deck;
+    }
+
     /**
      * Draws a card from the deck.
      *
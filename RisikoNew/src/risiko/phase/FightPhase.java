@@ -2,7 +2,10 @@ package risiko.phase;
 
 import exceptions.PlayerLossException;
 import exceptions.WrongCallerException;
+import java.util.Arrays;
 import risiko.equipment.Dice;
+import risiko.equipment.RandomStream;
+import risiko.map.CompactMapState;
 import risiko.map.Country;
 import risiko.map.RisikoMap;
 import risiko.players.ArtificialPlayer;
@@ -17,10 +20,25 @@ public class FightPhase extends Phase {
     private boolean reattack, attackInProgress;
     private int nrA, nrD;
     private Dice dice;
+    public static final int DICE_PER_ROUND = 2 * Dice.MAX_DICE; // Slots of each round in the blitz log: 3 attacker's dice, then 3 defender's dice.
+    private int[] blitzLog; // Dice of each round of the last blitz, 0 for the dice that weren't rolled.
+    private int blitzRounds;
 
     public FightPhase(RisikoMap map) {
+        this(map, new RandomStream());
+    }
+
+    /**
+     * Creates the phase, with dice rolled using the stream
+     * <code>random</code>.
+     *
+     * @param map
+     * @param random
+     */
+    public FightPhase(RisikoMap map, RandomStream random) {
         super(map);
-        dice = new Dice();
+        dice = new Dice(random);
+        blitzLog = new int[DICE_PER_ROUND * 16];
         this.index = FIGHT_INDEX;
     }
 
@@ -80,29 +98,33 @@ public class FightPhase extends Phase {
      *
      */
     private void fight() {
-        int lostArmies[] = computeLostArmies();
-        attackerCountry.removeArmies(lostArmies[0]);
-        defenderCountry.removeArmies(lostArmies[1]);
+        int losses = dice.rollBattle(nrA, nrD);
+        attackerCountry.removeArmies(Dice.getAttackerLosses(losses));
+        defenderCountry.removeArmies(Dice.getDefenderLosses(losses));
     }
 
     /**
-     * Computes the number of armies lost during a battle.
+     * Simulates a battle between 2 armies in the compact state
+     * <code>state</code>. It removes the armies lost from each country and, if
+     * the defender has no armies left, it gives it to the owner of the
+     * attacker.
      *
-     * @return 2 elements array of which the first one represents the number of
-     * armies lost by the attacker, while the second one represents the number
-     * of armies lost by the defende.
+     * @param state
+     * @param attacker the id of the attacker country.
+     * @param defender the id of the defender country.
+     * @param nrA number of armies used by the attacker.
+     * @param nrD number of armies used by the defender.
+     * @return true if the defender country has been conquered.
      */
-    private int[] computeLostArmies() {
-        dice.rollAllDice(nrA, nrD);
-        int lostArmies[] = new int[2];
-        for (int i = 0; i < Math.min(nrA, nrD); i++) {
-            if (dice.getAttackerDice()[i] > dice.getDefenderDice()[i]) {
-                lostArmies[1]++;
-            } else {
-                lostArmies[0]++;
-            }
+    public boolean fight(CompactMapState state, int attacker, int defender, int nrA, int nrD) {
+        int losses = dice.rollBattle(nrA, nrD);
+        state.removeArmies(attacker, Dice.getAttackerLosses(losses));
+        state.removeArmies(defender, Dice.getDefenderLosses(losses));
+        if (state.getArmies(defender) == 0) {
+            state.setOwner(defender, state.getOwner(attacker));
+            return true;
         }
-        return lostArmies;
+        return false;
     }
 
     /**
@@ -147,6 +169,14 @@ public class FightPhase extends Phase {
         attackInProgress = true;
     }
 
+    /**
+     * Withdraws the attack declared and not confirmed yet: no dice have been
+     * rolled, so it's as if it had never been declared.
+     */
+    public void cancelAttack() {
+        attackInProgress = false;
+    }
+
     /**
      * Performs the attack.
      *
@@ -165,6 +195,62 @@ public class FightPhase extends Phase {
         checkCountryConquest();
     }
 
+    /**
+     * Resolves a whole battle between <code>attackerCountry</code> and
+     * <code>defenderCountry</code>: both sides keep fighting with the maximum
+     * number of armies until the defender is conquered, the attacker is left
+     * with <code>minArmies</code> armies (at least 1) or <code>maxRounds</code>
+     * rounds have been fought (no limit if <code>maxRounds</code> is not
+     * positive). The dice of every round are recorded in the blitz log.
+     *
+     * @param minArmies
+     * @param maxRounds
+     * @throws PlayerLossException if the defender country has been conquered.
+     */
+    public void blitz(int minArmies, int maxRounds) throws PlayerLossException {
+        int threshold = Math.max(1, minArmies);
+        attackInProgress = false;
+        blitzRounds = 0;
+        while ((maxRounds <= 0 || blitzRounds < maxRounds) && attackerCountry.getArmies() > threshold && !map.isConquered(defenderCountry)) {
+            nrA = attackerCountry.getMaxArmies(true);
+            nrD = defenderCountry.getMaxArmies(false);
+            fight();
+            recordBlitzRound();
+        }
+        checkCountryConquest();
+    }
+
+    /**
+     * Appends the dice of the last round to the blitz log.
+     */
+    private void recordBlitzRound() {
+        int offset = blitzRounds * DICE_PER_ROUND;
+        if (offset + DICE_PER_ROUND > blitzLog.length) {
+            blitzLog = Arrays.copyOf(blitzLog, blitzLog.length * 2);
+        }
+        dice.copyDice(blitzLog, offset);
+        blitzRounds++;
+    }
+
+    /**
+     * Returns the number of rounds fought in the last blitz.
+     *
+     * @return
+     */
+    public int getBlitzRounds() {
+        return blitzRounds;
+    }
+
+    /**
+     * Returns a copy of the dice of the rounds fought in the last blitz,
+     * <code>DICE_PER_ROUND</code> values for each round.
+     *
+     * @return
+     */
+    public int[] getBlitzLog() {
+        return Arrays.copyOf(blitzLog, blitzRounds * DICE_PER_ROUND);
+    }
+
     /**
      * Returns the 2 sets of dice.
      *
@@ -190,7 +276,7 @@ public class FightPhase extends Phase {
      * @param aiCaller
      * @return true if it has the right to call confirmAttack, false otherwise.
      */
-    private boolean canCallDefenseMethods(ArtificialPlayer... aiCaller) {
+    public boolean canCallDefenseMethods(ArtificialPlayer... aiCaller) {
         boolean artificialDefender = defenderCountry.getOwner() instanceof ArtificialPlayer;
         boolean rightCaller = (aiCaller.length == 0) ? !artificialDefender : artificialDefender && aiCaller[0].equals(defenderCountry.getOwner());
         return attackInProgress && rightCaller;
@@ -1,15 +1,19 @@
 package risiko.phase;
 
+import risiko.map.CompactMapState;
 import risiko.map.Country;
 import risiko.map.RisikoMap;
 
 /**
  * Class that represents the phase of the game in which the active player can
- * move its armies from one of its countries to another adjacent country.
+ * move its armies from one of its countries to another adjacent country. If
+ * the connected movement rule is enabled, the armies can be moved to any
+ * country that can be reached through countries held by the active player.
  */
 public class MovePhase extends Phase {
 
     private Country fromCountry, toCountry;
+    private boolean connectedMovement;
 
     public MovePhase(RisikoMap map) {
         super(map);
@@ -36,6 +40,19 @@ public class MovePhase extends Phase {
         this.toCountry = toCountry;
     }
 
+    public boolean isConnectedMovement() {
+        return connectedMovement;
+    }
+
+    /**
+     * Enables or disables the connected movement rule.
+     *
+     * @param connectedMovement
+     */
+    public void setConnectedMovement(boolean connectedMovement) {
+        this.connectedMovement = connectedMovement;
+    }
+
     /**
      * Moves <code> nrArmies</code> from <code>fromCountry</code> to
      * <code>toCountry</code>.
@@ -65,7 +82,7 @@ public class MovePhase extends Phase {
      * @return
      */
     public boolean controlMovement() {
-        return fromCountry.canMoveTo(toCountry);
+        return controlMovement(toCountry);
     }
 
     /**
@@ -75,9 +92,39 @@ public class MovePhase extends Phase {
      * @return
      */
     public boolean controlMovement(Country toCountry) {
+        if (connectedMovement) {
+            return fromCountry != toCountry && map.areConnected(fromCountry, toCountry);
+        }
         return fromCountry.canMoveTo(toCountry);
     }
 
+    /**
+     * Moves <code>nrArmies</code> from <code>fromCountry</code> to
+     * <code>toCountry</code> in the compact state <code>state</code>.
+     *
+     * @param state
+     * @param fromCountry
+     * @param toCountry
+     * @param nrArmies
+     */
+    public void move(CompactMapState state, int fromCountry, int toCountry, int nrArmies) {
+        state.removeArmies(fromCountry, nrArmies);
+        state.addArmies(toCountry, nrArmies);
+    }
+
+    /**
+     * Checks if it is legal to move from <code>fromCountry</code> to
+     * <code>toCountry</code> in the compact state <code>state</code>.
+     *
+     * @param state
+     * @param fromCountry
+     * @param toCountry
+     * @return
+     */
+    public boolean controlMovement(CompactMapState state, int fromCountry, int toCountry) {
+        return state.canMoveTo(fromCountry, toCountry);
+    }
+
     @Override
     public void clear() {
         fromCountry = null;
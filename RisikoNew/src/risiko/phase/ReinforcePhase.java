@@ -1,5 +1,6 @@
 package risiko.phase;
 
+import risiko.map.CompactMapState;
 import risiko.map.Country;
 import risiko.map.RisikoMap;
 
@@ -18,6 +19,17 @@ public class ReinforcePhase extends Phase {
         country.reinforce();
     }
 
+    /**
+     * Adds an army on the country which id is <code>country</code> in the
+     * compact state <code>state</code>.
+     *
+     * @param state
+     * @param country
+     */
+    public void reinforce(CompactMapState state, int country) {
+        state.addArmies(country, 1);
+    }
+
     @Override
     public String toString() {
         return "REINFORCE";
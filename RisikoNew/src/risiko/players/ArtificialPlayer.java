@@ -3,29 +3,47 @@ package risiko.players;
 import exceptions.PendingOperationsException;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import risiko.equipment.RandomStream;
 import risiko.game.GameProxy;
+import risiko.game.TurnScheduler;
 import shared.AttackResultInfo;
 import shared.CountryInfo;
+import shared.PlayerInfo;
 import utils.BasicGameObserver;
 
 /**
  * An IA player.
+ *
+ * The player doesn't have a thread: it's a task run by the game's
+ * <code>TurnScheduler</code> when one of the events it reacts to is notified
+ * (the start of its turn, a request to defend, the result of its attack or the
+ * end of the game). The task plays a step at a time and returns as soon as the
+ * player has to wait, either for an event or for the delay between two
+ * actions, which is another run of the task scheduled later. So the player
+ * doesn't use any CPU nor any thread while the others play.
  */
 public class ArtificialPlayer extends Player implements Runnable, BasicGameObserver {
 
     private GameProxy game;
 
-    private static final int DEFAULT_DELAY = 10, LOOP_DELAY = 100;
+    private static final long WAIT = -1; // Returned by a step when the player has to wait for an event.
+    private static final double BLITZ_ODDS = 0.6; // Minimum odds of winning to resolve a battle with a blitz.
     private final Object maxArmiesLock = new Object();
     private int maxArmiesAttack;
     private int maxArmiesDefense;
     private boolean maxArmiesSet;
-    private boolean canAttack;
-    private Action currentAction;
-    private ArtificialPlayerSettings setting;
+    private volatile boolean canAttack;
+    private volatile Action currentAction;
+    private volatile ArtificialPlayerSettings setting;
+    private final RandomStream random;
+    private int attacksLeft; // Attacks still to do in the current fight phase, -1 if not chosen yet.
+    private String[] target; // The attacker and the defender of the next attack, null if not chosen.
+    private double targetOdds;
+    private final Object mailbox = new Object(); // Guards the fields below.
+    private TurnScheduler scheduler;
+    private boolean scheduled, pendingEvent; // If the task is scheduled (or running) and if an event came since it started.
 
     /**
      * Create a new artificial player.
@@ -35,16 +53,41 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
      * @param game proxy used to call the various action
      */
     public ArtificialPlayer(String name, String color, GameProxy game) {
+        this(name, color, game, new RandomStream());
+    }
+
+    /**
+     * Create a new artificial player that takes its random decisions using
+     * the stream <code>random</code>.
+     *
+     * @param name name of the player
+     * @param color color assigned to the player
+     * @param game proxy used to call the various action
+     * @param random stream of the player's decisions
+     */
+    public ArtificialPlayer(String name, String color, GameProxy game, RandomStream random) {
         super(name, color);
         this.game = game;
+        this.random = random;
         currentAction = Action.NOACTION;
         setting = new ArtificialPlayerSettings("Lento");
+        canAttack = true;
+        attacksLeft = -1;
     }
 
-    public synchronized void setSetting(ArtificialPlayerSettings setting) {
+    public void setSetting(ArtificialPlayerSettings setting) {
         this.setting = setting;
     }
 
+    /**
+     * Returns the stream of the player's decisions, e.g. to save its state.
+     *
+     * @return
+     */
+    public RandomStream getRandom() {
+        return random;
+    }
+
     /**
      * Plays a tris. In case the player can play more than one tris, it chooses
      * the best one (the one that awards more armies).
@@ -72,16 +115,16 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
      * Moves armies between two adjacent territories.
      */
     private synchronized void moveArmies() {
-        if (new Random().nextBoolean()) {
+        if (random.nextBoolean()) {
 
             List<String> myCountries = game.getMyCountries(this);
-            String fromCountry = myCountries.get(new Random().nextInt(myCountries.size()));
+            String fromCountry = myCountries.get(random.nextInt(myCountries.size()));
             List<String> neighbors = game.getNeighbors(this, fromCountry);
-            String toCountry = neighbors.get(new Random().nextInt(neighbors.size()));
+            String toCountry = neighbors.get(random.nextInt(neighbors.size()));
 
             int max = game.getMaxArmiesForMovement(fromCountry, this);
             if (max > 0) {
-                int nArmies = new Random().nextInt(max) + 1;
+                int nArmies = random.nextInt(max) + 1;
                 game.move(fromCountry, toCountry, nArmies, this);
                 return;
             }
@@ -90,118 +133,211 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
     }
 
     /**
-     * Uses its bonusArmies to reinforce random territories. If the player runs
+     * Uses a bonus army to reinforce a random territory. If the player runs
      * out of bonus armies, it changes the phase.
+     *
+     * @return the delay before the next step.
      */
-    private synchronized void randomReinforce() {
+    private synchronized long randomReinforce() {
         if (bonusArmies == 0) {
-            tryNextPhase();
-            return;
+            return tryNextPhase() ? 0 : WAIT;
         }
         List<String> myCountries = game.getMyCountries(this);
-        for (int i = 0; i < bonusArmies; i++) {
-            game.reinforce(myCountries.get(new Random().nextInt(myCountries.size())), this);
-            waitMs(setting.getReinforceDelay());
-        }
+        game.reinforce(myCountries.get(random.nextInt(myCountries.size())), this);
+        return setting.getReinforceDelay();
     }
 
     /**
-     * Executes a series of random attacks.
+     * Executes the next step of a series of random attacks: waits for the
+     * result of the last attack, declares the attack chosen by the previous
+     * step or chooses a new one. When the attacks are over, changes the
+     * phase.
+     *
+     * @return the delay before the next step.
      */
-    private synchronized void randomAttack() {
-        int nrAttacks = new Random().nextInt(setting.getBaseAttack()) + 1;
-        while (nrAttacks > 0 && game.getAllAttackers(this).length != 0) {
-            if (canAttack) {
-                randomSingleAttack();
-                nrAttacks--;
-            }
+    private synchronized long randomAttack() {
+        if (!canAttack) {
+            return WAIT; // Waits for the result of the last attack, so that the next one doesn't overlap it.
+        }
+        if (target != null) {
+            return declareAttack();
+        }
+        if (attacksLeft < 0) {
+            attacksLeft = random.nextInt(setting.getBaseAttack()) + 1;
+        }
+        if (attacksLeft > 0 && game.countAttackers(this) != 0) {
+            attacksLeft--;
+            return chooseAttack();
         }
+        attacksLeft = -1;
+        return tryNextPhase() ? 0 : WAIT;
     }
 
     /**
-     * Executes a single attack.
+     * Chooses an attack from a random country, against the neighbor that it
+     * has the best odds to conquer.
+     *
+     * @return the delay before the attack is declared.
      */
-    private synchronized void randomSingleAttack() {
+    private long chooseAttack() {
         setMaxArmiesSet(false);
-        canAttack = false;
         String[] myCountries = game.getAllAttackers(this);
         String[] opponentCountries;
         int index, defendIndex;
+        if (myCountries.length == 0) {
+            return 0;
+        }
 
-        index = new Random().nextInt(myCountries.length);
+        index = random.nextInt(myCountries.length);
         game.setAttackerCountry(myCountries[index], this);
         opponentCountries = game.getAllDefenders(myCountries[index]);
 
-        defendIndex = new Random().nextInt(opponentCountries.length);
+        defendIndex = 0;
+        double bestOdds = -1;
+        for (int i = 0; i < opponentCountries.length; i++) {
+            double odds = game.getBattleOdds(myCountries[index], opponentCountries[i], this).getWinProbability();
+            if (odds > bestOdds) {
+                bestOdds = odds;
+                defendIndex = i;
+            }
+        }
         game.setDefenderCountry(opponentCountries[defendIndex], this);
+        target = new String[]{myCountries[index], opponentCountries[defendIndex]};
+        targetOdds = bestOdds;
+        return setting.getActionDelay();
+    }
 
-        waitMs(DEFAULT_DELAY);
+    /**
+     * Declares the attack chosen by <code>chooseAttack</code>. If the odds
+     * are good enough the whole battle is resolved at once.
+     *
+     * @return the delay before the next step.
+     */
+    private long declareAttack() {
+        String[] attack = target;
+        target = null;
+        if (targetOdds >= BLITZ_ODDS) {
+            game.blitzAttack(attack[0], attack[1], 1, 0, this);
+            return setting.getAttackDeclarationDelay(); // The blitz is over, even if it has been refused.
+        }
 
+        canAttack = false;
         if (maxArmiesSet) {
-            int nrA = new Random().nextInt(maxArmiesAttack) + 1;
+            int nrA = random.nextInt(maxArmiesAttack) + 1;
             game.setAttackerArmies(nrA, this);
         } else {
             game.setAttackerArmies(-1, this);
         }
 
         game.declareAttack(this);
-
-        waitMs(setting.getAttackDeclarationDelay());
+        return setting.getAttackDeclarationDelay();
     }
 
     /**
      * Chooses the number of armies for the defense and confirms the attack.
+     * The request to defend is consumed before confirming, because the
+     * attacker can declare its next attack (against this player too) before
+     * <code>confirmAttack</code> returns.
+     *
+     * @return false if the armies of the defender aren't known yet.
      */
-    private synchronized void defend() {
+    private synchronized boolean defend() {
+        int nrD;
         synchronized (maxArmiesLock) {
             if (!maxArmiesSet) {
-                return;
+                return false;
             }
-            int nrD = new Random().nextInt(this.maxArmiesDefense) + 1;
-            game.confirmAttack(nrD, this);
+            nrD = random.nextInt(this.maxArmiesDefense) + 1;
             this.currentAction = Action.NOACTION;
-
             setMaxArmiesSet(false);
         }
+        game.confirmAttack(nrD, this);
+        return true;
+    }
+
+    /**
+     * Starts playing: the player's task is run by <code>scheduler</code>
+     * after the loop delay and then whenever the player has to act.
+     *
+     * @param scheduler
+     */
+    public void start(TurnScheduler scheduler) {
+        synchronized (mailbox) {
+            this.scheduler = scheduler;
+            this.scheduled = true;
+            scheduler.schedule(this, setting.getLoopDelay());
+        }
     }
 
     /**
-     * Contains the loop for the artificial player to act. The player keeps
-     * checking if it's its turn and in case acts accodingly to the phase of the
-     * game.
+     * The player's task: plays the steps that don't need to wait, then
+     * schedules itself again after the delay requested by the last step, or
+     * at once if an event has come while it was playing. Otherwise it will be
+     * run by the next event, which is also the case if a step fails.
      */
     @Override
     public void run() {
-        synchronized (this) {
-            waitMs(LOOP_DELAY);
+        synchronized (mailbox) {
+            pendingEvent = false;
         }
-        while (currentAction != Action.ENDGAME) {
-            if (game.checkMyIdentity(this)) {
-                switch (game.getPhase()) {
-                    case "PLAY_CARDS":
-                        playHighestTris();
-                        break;
-                    case "REINFORCE":
-                        randomReinforce();
-                        break;
-                    case "FIGHT":
-                        canAttack = true;
-                        this.randomAttack();
-                        tryNextPhase();
-                        break;
-                    case "MOVE":
-                        moveArmies();
-                        synchronized (this) {
-                            waitMs(LOOP_DELAY);
-                        }
-                        break;
+        long delay = WAIT; // Unless all the steps succeed.
+        try {
+            long stepDelay = 0;
+            while (stepDelay == 0 && currentAction != Action.ENDGAME) {
+                stepDelay = step();
+            }
+            delay = stepDelay;
+        } finally {
+            synchronized (mailbox) {
+                if (currentAction == Action.ENDGAME || (delay == WAIT && !pendingEvent)) {
+                    scheduled = false;
+                } else {
+                    scheduler.schedule(this, (delay == WAIT) ? 0 : delay);
                 }
-            } else if (this.currentAction == Action.DEFEND) {
-                this.defend();
             }
         }
     }
 
+    /**
+     * Plays a step: when it's its turn the player acts accodingly to the
+     * phase of the game, otherwise it defends if it's attacked.
+     *
+     * @return the delay before the next step, 0 to play it at once or
+     * <code>WAIT</code> if the player has to wait for an event.
+     */
+    private long step() {
+        if (game.checkMyIdentity(this)) {
+            switch (game.getPhase()) {
+                case "PLAY_CARDS":
+                    playHighestTris();
+                    return 0;
+                case "REINFORCE":
+                    return randomReinforce();
+                case "FIGHT":
+                    return randomAttack();
+                case "MOVE":
+                    moveArmies();
+                    return setting.getLoopDelay();
+            }
+        } else if (this.currentAction == Action.DEFEND && this.defend()) {
+            return 0;
+        }
+        return WAIT;
+    }
+
+    /**
+     * Wakes the player up when its turn starts.
+     *
+     * @param player
+     * @param phase
+     */
+    @Override
+    public void updateOnPhaseChange(PlayerInfo player, String phase) {
+        if (this.getName().equals(player.getName())) {
+            signalEvent();
+        }
+    }
+
     /**
      * Updates maxArmiesAttack and maxArmiesDefense.
      *
@@ -213,6 +349,9 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
         this.maxArmiesAttack = countries[0].getMaxArmies();
         this.maxArmiesDefense = countries[1].getMaxArmies();
         setMaxArmiesSet(true);
+        if (this.getName().equals(countries[1].getPlayerName())) {
+            signalEvent();
+        }
     }
 
     private void setMaxArmiesSet(boolean cond) {
@@ -222,20 +361,20 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
     }
 
     /**
-     * Updates currentAction. If it has conquered a country moves some armies
-     * from attacker to defender.
+     * If it has conquered a country moves some armies from attacker to
+     * defender.
      *
      * @param ar
      */
     @Override
     public void updateOnAttackResult(AttackResultInfo ar) {
-        if (this.currentAction == Action.DEFEND) {
-            this.currentAction = Action.NOACTION;
-        }
         if (ar.hasConquered()) {
             game.move(ar.getAttackerCountryName(), ar.getDefenderCountryName(), ar.getMaxArmiesAttacker(), this);
         }
         canAttack = true;
+        if (this.getName().equals(ar.getAttackerInfo().getPlayerName())) {
+            signalEvent();
+        }
     }
 
     /**
@@ -246,6 +385,7 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
     @Override
     public void updateOnVictory(String winner) {
         this.currentAction = Action.ENDGAME;
+        signalEvent();
     }
 
     /**
@@ -258,6 +398,7 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
     public void updateOnDefend(CountryInfo defenderCountryInfo, int nrArmiesAttacker) {
         if (this.getName().equals(defenderCountryInfo.getPlayerName())) {
             this.currentAction = Action.DEFEND;
+            signalEvent();
         }
     }
 
@@ -272,6 +413,7 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
     public void updateOnElimination(String defenderName, boolean artificialAttack) {
         if (this.getName().equals(defenderName)) {
             this.currentAction = Action.ENDGAME;
+            signalEvent();
         }
     }
 
@@ -281,27 +423,36 @@ public class ArtificialPlayer extends Player implements Runnable, BasicGameObser
     @Override
     public void updateOnEndGame() {
         this.currentAction = Action.ENDGAME;
+        signalEvent();
     }
 
     /**
      * Tries to change the phase.
+     *
+     * @return false if the phase can't be changed yet.
      */
-    private void tryNextPhase() {
+    private boolean tryNextPhase() {
         try {
             game.nextPhase(this);
+            return true;
         } catch (PendingOperationsException ex) {
+            return false;
         }
     }
 
     /**
-     * Waits <code>ms</code> milliseconds.
-     *
-     * @param ms
+     * Tells the player that an event it reacts to has been notified: its task
+     * is scheduled, unless it's already scheduled or running, in which case
+     * it will play again before waiting. It doesn't lock the player, which
+     * can be waiting for the game while the game notifies.
      */
-    private void waitMs(int ms) {
-        try {
-            this.wait(ms);
-        } catch (InterruptedException ex) {
+    private void signalEvent() {
+        synchronized (mailbox) {
+            pendingEvent = true;
+            if (!scheduled && scheduler != null) {
+                scheduled = true;
+                scheduler.schedule(this, 0);
+            }
         }
     }
 
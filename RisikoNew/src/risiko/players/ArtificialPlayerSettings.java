@@ -8,6 +8,8 @@ public class ArtificialPlayerSettings {
     private int baseAttack; // the number of attacks
     private int reinforceDelay; 
     private int attackDeclarationDelay;
+    private int actionDelay; // pause between the choices of an attack
+    private int loopDelay; // pause of the player's loop while it waits for its turn
 
     /**
      * Creates a new ArtificialPlayerSettings.
@@ -15,9 +17,29 @@ public class ArtificialPlayerSettings {
      */
     public ArtificialPlayerSettings(String speed) {
         this.baseAttack = 5;
+        this.actionDelay = 10;
+        this.loopDelay = 100;
         setSettingsForSpeed(speed);
     }
 
+    /**
+     * Creates a new ArtificialPlayerSettings with the given delays (in
+     * milliseconds). A delay of 0 means no pause at all: it's meant for games
+     * that nobody watches.
+     * @param baseAttack
+     * @param reinforceDelay
+     * @param attackDeclarationDelay
+     * @param actionDelay
+     * @param loopDelay 
+     */
+    public ArtificialPlayerSettings(int baseAttack, int reinforceDelay, int attackDeclarationDelay, int actionDelay, int loopDelay) {
+        this.baseAttack = baseAttack;
+        this.reinforceDelay = reinforceDelay;
+        this.attackDeclarationDelay = attackDeclarationDelay;
+        this.actionDelay = actionDelay;
+        this.loopDelay = loopDelay;
+    }
+
     /**
      * Sets different settings relative to the speed.
      * @param speed 
@@ -50,4 +72,12 @@ public class ArtificialPlayerSettings {
     public int getAttackDeclarationDelay() {
         return attackDeclarationDelay;
     }
+
+    public int getActionDelay() {
+        return actionDelay;
+    }
+
+    public int getLoopDelay() {
+        return loopDelay;
+    }
 }
@@ -3,12 +3,13 @@ package risiko.players;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import risiko.equipment.BonusDeck;
 import risiko.equipment.Card;
 import risiko.map.Country;
+import risiko.map.CountrySet;
 import risiko.missions.Mission;
 
 /**
@@ -105,7 +106,7 @@ public class Player {
      * @return
      */
     public Map<Card[], Integer> getPlayableTris(Map<Card[], Integer> tris) {
-        Map<Card[], Integer> playable = new HashMap<>(tris);
+        Map<Card[], Integer> playable = new LinkedHashMap<>(tris);
         for (Card[] cards : tris.keySet()) {
             if (!(canPlayThisTris(cards))) {
                 playable.remove(cards);
@@ -141,6 +142,16 @@ public class Player {
         return mission.isCompleted(myCountries);
     }
 
+    /**
+     * Checks if the player's mission is completed.
+     *
+     * @param myCountries the set of the ids of the player's countries.
+     * @return
+     */
+    public boolean checkIfWinner(CountrySet myCountries) {
+        return mission.isCompleted(myCountries);
+    }
+
     public void setConqueredACountry(boolean flag) {
         conqueredACountry = flag;
     }
@@ -31,8 +31,10 @@ public class FileManager {
     private final String LABELS = "resources/files/countriesLabels.txt";
     private final String COLORS = "resources/files/countriesColors.txt";
     private final String TRIS = "resources/files/bonusTris.txt";
+    private final String MAP_PACK = "resources/files/map.pack";
     private final String VOCABULARY = "resources/files/vocabulary";
     private final String INFO = "resources/files/info";
+    private MapPack mapPack; // Read on the first request, then shared.
 
     private FileManager() {
     }
@@ -61,8 +63,19 @@ public class FileManager {
      * @return
      */
     public Map<String, List<String>> getCountryNeighbors() {
-        InputStream stream = getClass().getClassLoader().getResourceAsStream(COUNTRIES);
-        Map<String, List<String>> countryNeighbors = new HashMap();
+        return getCountryNeighbors(getClass().getClassLoader().getResourceAsStream(COUNTRIES));
+    }
+
+    /**
+     * Reads a file in the format of <code>COUNTRIES</code> from
+     * <code>stream</code> and builds an HashMap to map each country with the
+     * list of its neighbors.
+     *
+     * @param stream
+     * @return
+     */
+    public Map<String, List<String>> getCountryNeighbors(InputStream stream) {
+        Map<String, List<String>> countryNeighbors = new HashMap<>();
         try (BufferedReader br = new BufferedReader(new InputStreamReader(stream))) {
             String line;
             String subject;
@@ -92,7 +105,18 @@ public class FileManager {
      * continent.
      */
     public List<Map<String, Object>> getContinents() {
-        InputStream stream = getClass().getClassLoader().getResourceAsStream(COUNTRIES);
+        return getContinents(getClass().getClassLoader().getResourceAsStream(COUNTRIES));
+    }
+
+    /**
+     * Reads a file in the format of <code>COUNTRIES</code> from
+     * <code>stream</code> and retrieves the list of continents.
+     *
+     * @param stream
+     * @return the list of continents, as described in
+     * <code>getContinents()</code>.
+     */
+    public List<Map<String, Object>> getContinents(InputStream stream) {
         List<Map<String, Object>> continents = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new InputStreamReader(stream))) {
             String line;
@@ -117,6 +141,35 @@ public class FileManager {
         return continents;
     }
 
+    //------------------------ MAP PACK ----------------------------------//
+    /**
+     * Reads the compiled map pack <code>MAP_PACK</code>, generated at build
+     * time from the text files. If the pack is missing or can't be read (e.g.
+     * when the classes haven't been built by the build script), the pack is
+     * compiled from the text files. The pack is read once: the following
+     * calls return the same (immutable) pack.
+     *
+     * @return
+     */
+    public synchronized MapPack getMapPack() {
+        if (mapPack == null) {
+            mapPack = readMapPack();
+        }
+        return mapPack;
+    }
+
+    private MapPack readMapPack() {
+        InputStream stream = getClass().getClassLoader().getResourceAsStream(MAP_PACK);
+        if (stream != null) {
+            try (InputStream in = stream) {
+                return MapPack.read(in);
+            } catch (IOException ex) {
+                Logger.getLogger(FileManager.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+        return MapPack.compile(this);
+    }
+
     //------------------------ MISSIONS ----------------------------------//
     /**
      * Reads the file at url <code>MISSIONS</code>.
@@ -129,7 +182,17 @@ public class FileManager {
      * "description"-> String - mission description.
      */
     public List<Map<String, Object>> getMissions() {
-        InputStream stream = getClass().getClassLoader().getResourceAsStream(MISSIONS);
+        return getMissions(getClass().getClassLoader().getResourceAsStream(MISSIONS));
+    }
+
+    /**
+     * Reads a file in the format of <code>MISSIONS</code> from
+     * <code>stream</code>.
+     *
+     * @param stream
+     * @return the list of missions, as described in <code>getMissions()</code>.
+     */
+    public List<Map<String, Object>> getMissions(InputStream stream) {
         List<Map<String, Object>> missions = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new InputStreamReader(stream))) {
             Map<String, Object> mission;
@@ -377,7 +440,7 @@ public class FileManager {
     public List<Map<String, Object>> getCountriesColors() {
         InputStream stream = getClass().getClassLoader().getResourceAsStream(COLORS);
 
-        List<Map<String, Object>> countriesColors = new ArrayList();
+        List<Map<String, Object>> countriesColors = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(new InputStreamReader(stream))) {
             Map<String, Object> row;
             String[] tokens, RGB;
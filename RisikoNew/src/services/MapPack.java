@@ -0,0 +1,415 @@
+package services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of the text files that describe the map: countries and their
+ * neighbors, continents, missions, the labels and the colors of the countries
+ * on the map image, and the tris of cards. Countries and continents are
+ * identified by their position (their id) and neighbors are stored in CSR
+ * form: the neighbors of country <code>i</code> are the elements of
+ * <code>neighbors</code> from <code>neighborsStart[i]</code> (inclusive) to
+ * <code>neighborsStart[i + 1]</code> (exclusive).
+ *
+ * The pack is generated from the text resources at build time (see
+ * <code>main</code>) and read with a single buffered read, so that building a
+ * map doesn't need to parse any text.
+ */
+public class MapPack {
+
+    private static final int MAGIC = 0x52534B50; // "RSKP"
+    public static final int VERSION = 1;
+    public static final int NONE = -1;
+
+    private final String[] countryNames;
+    private final int[] neighborsStart;
+    private final int[] neighbors;
+    private final int[] continentOf;
+    private final String[] continentNames;
+    private final int[] continentBonus;
+    private final String[] missionTypes;
+    private final String[] missionDescriptions;
+    private final int[] missionPoints;
+    private final int[] labelX, labelY; // NONE if the country has no label.
+    private final int[] colors; // RGB color of each country on the map image, NONE if it has no color.
+    private final String[][] trisCards;
+    private final int[] trisBonus;
+
+    private MapPack(String[] countryNames, int[] neighborsStart, int[] neighbors, int[] continentOf,
+            String[] continentNames, int[] continentBonus, String[] missionTypes, String[] missionDescriptions,
+            int[] missionPoints, int[] labelX, int[] labelY, int[] colors, String[][] trisCards, int[] trisBonus) {
+        this.countryNames = countryNames;
+        this.neighborsStart = neighborsStart;
+        this.neighbors = neighbors;
+        this.continentOf = continentOf;
+        this.continentNames = continentNames;
+        this.continentBonus = continentBonus;
+        this.missionTypes = missionTypes;
+        this.missionDescriptions = missionDescriptions;
+        this.missionPoints = missionPoints;
+        this.labelX = labelX;
+        this.labelY = labelY;
+        this.colors = colors;
+        this.trisCards = trisCards;
+        this.trisBonus = trisBonus;
+    }
+
+    // ---------------------------- Countries ------------------------------//
+    public int getCountriesCount() {
+        return countryNames.length;
+    }
+
+    public String getCountryName(int country) {
+        return countryNames[country];
+    }
+
+    /**
+     * Returns the offsets of each country's neighbors in
+     * <code>getNeighbors()</code>. The array is shared and must not be
+     * modified.
+     *
+     * @return
+     */
+    public int[] getNeighborsStart() {
+        return neighborsStart;
+    }
+
+    /**
+     * Returns the ids of the neighbors of all the countries. The array is
+     * shared and must not be modified.
+     *
+     * @return
+     */
+    public int[] getNeighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Returns the id of the continent of each country. The array is shared and
+     * must not be modified.
+     *
+     * @return
+     */
+    public int[] getContinentOf() {
+        return continentOf;
+    }
+
+    public int getLabelX(int country) {
+        return labelX[country];
+    }
+
+    public int getLabelY(int country) {
+        return labelY[country];
+    }
+
+    public int getColor(int country) {
+        return colors[country];
+    }
+
+    // ---------------------------- Continents -----------------------------//
+    public int getContinentsCount() {
+        return continentNames.length;
+    }
+
+    public String getContinentName(int continent) {
+        return continentNames[continent];
+    }
+
+    /**
+     * Returns the bonus of each continent. The array is shared and must not be
+     * modified.
+     *
+     * @return
+     */
+    public int[] getContinentBonus() {
+        return continentBonus;
+    }
+
+    // ----------------------------- Missions ------------------------------//
+    public int getMissionsCount() {
+        return missionTypes.length;
+    }
+
+    /**
+     * Returns the type of the mission ("Countries" or "Continents").
+     *
+     * @param mission
+     * @return
+     */
+    public String getMissionType(int mission) {
+        return missionTypes[mission];
+    }
+
+    public String getMissionDescription(int mission) {
+        return missionDescriptions[mission];
+    }
+
+    public int getMissionPoints(int mission) {
+        return missionPoints[mission];
+    }
+
+    // ------------------------------- Tris --------------------------------//
+    public int getTrisCount() {
+        return trisCards.length;
+    }
+
+    /**
+     * Returns the names of the 3 cards of the tris.
+     *
+     * @param tris
+     * @return
+     */
+    public String[] getTrisCards(int tris) {
+        return trisCards[tris].clone();
+    }
+
+    public int getTrisBonus(int tris) {
+        return trisBonus[tris];
+    }
+
+    // --------------------------- Compilation -----------------------------//
+    /**
+     * Builds a pack from the text resources read by <code>fileManager</code>.
+     * The ids of the countries follow the order of the countries file.
+     *
+     * @param fileManager
+     * @return
+     */
+    public static MapPack compile(FileManager fileManager) {
+        return compile(fileManager.getContinents(), fileManager.getCountryNeighbors(), fileManager.getMissions(),
+                fileManager.getLabelsProperties(), fileManager.getCountriesColors(), fileManager.getTris());
+    }
+
+    /**
+     * Builds a pack from the content of a countries file and of a missions
+     * file, in the same format of the text resources (e.g. the files written
+     * by <code>simulation.MapGenerator</code>), parsed by
+     * <code>fileManager</code>. The tris are the ones of the resources read by
+     * <code>fileManager</code>, while the countries have no labels and no
+     * colors.
+     *
+     * @param fileManager
+     * @param countries
+     * @param missions
+     * @return
+     */
+    public static MapPack compile(FileManager fileManager, byte[] countries, byte[] missions) {
+        return compile(fileManager.getContinents(new ByteArrayInputStream(countries)),
+                fileManager.getCountryNeighbors(new ByteArrayInputStream(countries)),
+                fileManager.getMissions(new ByteArrayInputStream(missions)),
+                Collections.<Map<String, Object>>emptyList(), Collections.<Map<String, Object>>emptyList(),
+                fileManager.getTris());
+    }
+
+    private static MapPack compile(List<Map<String, Object>> continents, Map<String, List<String>> countryNeighbors,
+            List<Map<String, Object>> missions, List<Map<String, Object>> labels, List<Map<String, Object>> countriesColors,
+            List<Map<String, Object>> tris) {
+        List<String> names = new ArrayList<>();
+        List<Integer> continentIds = new ArrayList<>();
+        String[] continentNames = new String[continents.size()];
+        int[] continentBonus = new int[continents.size()];
+        for (int i = 0; i < continents.size(); i++) {
+            continentNames[i] = (String) continents.get(i).get("name");
+            continentBonus[i] = (Integer) continents.get(i).get("bonus");
+            for (Object countryName : (List<?>) continents.get(i).get("countries")) {
+                names.add((String) countryName);
+                continentIds.add(i);
+            }
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            ids.put(names.get(i), i);
+        }
+
+        int[] neighborsStart = new int[names.size() + 1];
+        List<Integer> neighbors = new ArrayList<>();
+        int[] continentOf = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            for (String neighbor : countryNeighbors.get(names.get(i))) {
+                neighbors.add(ids.get(neighbor));
+            }
+            neighborsStart[i + 1] = neighbors.size();
+            continentOf[i] = continentIds.get(i);
+        }
+
+        String[] missionTypes = new String[missions.size()];
+        String[] missionDescriptions = new String[missions.size()];
+        int[] missionPoints = new int[missions.size()];
+        for (int i = 0; i < missions.size(); i++) {
+            missionTypes[i] = (String) missions.get(i).get("type");
+            missionDescriptions[i] = (String) missions.get(i).get("description");
+            missionPoints[i] = (Integer) missions.get(i).get("points");
+        }
+
+        int[] labelX = filled(names.size(), NONE), labelY = filled(names.size(), NONE);
+        for (Map<String, Object> label : labels) {
+            Integer id = ids.get((String) label.get("country"));
+            if (id != null) {
+                labelX[id] = (Integer) label.get("x");
+                labelY[id] = (Integer) label.get("y");
+            }
+        }
+        int[] colors = filled(names.size(), NONE);
+        for (Map<String, Object> color : countriesColors) {
+            Integer id = ids.get((String) color.get("country"));
+            if (id != null) {
+                colors[id] = ((Integer) color.get("R") << 16) | ((Integer) color.get("G") << 8) | (Integer) color.get("B");
+            }
+        }
+
+        String[][] trisCards = new String[tris.size()][];
+        int[] trisBonus = new int[tris.size()];
+        for (int i = 0; i < tris.size(); i++) {
+            trisCards[i] = (String[]) tris.get(i).get("cards");
+            trisBonus[i] = (Integer) tris.get(i).get("bonus");
+        }
+
+        return new MapPack(names.toArray(new String[names.size()]), neighborsStart, toArray(neighbors), continentOf,
+                continentNames, continentBonus, missionTypes, missionDescriptions, missionPoints, labelX, labelY, colors,
+                trisCards, trisBonus);
+    }
+
+    private static int[] filled(int length, int value) {
+        int[] array = new int[length];
+        java.util.Arrays.fill(array, value);
+        return array;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    // ------------------------- Binary format -----------------------------//
+    /**
+     * Writes the pack to <code>out</code>.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        writeStrings(data, countryNames);
+        writeInts(data, neighborsStart);
+        writeInts(data, neighbors);
+        writeInts(data, continentOf);
+        writeStrings(data, continentNames);
+        writeInts(data, continentBonus);
+        writeStrings(data, missionTypes);
+        writeStrings(data, missionDescriptions);
+        writeInts(data, missionPoints);
+        writeInts(data, labelX);
+        writeInts(data, labelY);
+        writeInts(data, colors);
+        data.writeInt(trisCards.length);
+        for (String[] cards : trisCards) {
+            writeStrings(data, cards);
+        }
+        writeInts(data, trisBonus);
+        data.flush();
+    }
+
+    /**
+     * Reads a pack from <code>in</code>. The whole content of the stream is
+     * read at once, then decoded from memory.
+     *
+     * @param in
+     * @return
+     * @throws IOException if the stream doesn't contain a valid pack.
+     */
+    public static MapPack read(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, n);
+        }
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a map pack");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported map pack version " + version);
+        }
+        String[] countryNames = readStrings(data);
+        int[] neighborsStart = readInts(data);
+        int[] neighbors = readInts(data);
+        int[] continentOf = readInts(data);
+        String[] continentNames = readStrings(data);
+        int[] continentBonus = readInts(data);
+        String[] missionTypes = readStrings(data);
+        String[] missionDescriptions = readStrings(data);
+        int[] missionPoints = readInts(data);
+        int[] labelX = readInts(data);
+        int[] labelY = readInts(data);
+        int[] colors = readInts(data);
+        String[][] trisCards = new String[data.readInt()][];
+        for (int i = 0; i < trisCards.length; i++) {
+            trisCards[i] = readStrings(data);
+        }
+        int[] trisBonus = readInts(data);
+        return new MapPack(countryNames, neighborsStart, neighbors, continentOf, continentNames, continentBonus,
+                missionTypes, missionDescriptions, missionPoints, labelX, labelY, colors, trisCards, trisBonus);
+    }
+
+    private static void writeInts(DataOutputStream data, int[] array) throws IOException {
+        data.writeInt(array.length);
+        for (int value : array) {
+            data.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream data) throws IOException {
+        int[] array = new int[data.readInt()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = data.readInt();
+        }
+        return array;
+    }
+
+    private static void writeStrings(DataOutputStream data, String[] array) throws IOException {
+        data.writeInt(array.length);
+        for (String value : array) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream data) throws IOException {
+        String[] array = new String[data.readInt()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = data.readUTF();
+        }
+        return array;
+    }
+
+    /**
+     * Compiles the text resources into a pack and writes it to the file which
+     * path is the first argument. Called by the build after the compilation.
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        try (OutputStream out = new java.io.BufferedOutputStream(new FileOutputStream(args[0]))) {
+            compile(FileManager.getInstance()).write(out);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package services;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -52,7 +52,7 @@ public interface Stringify {
      * @return
      */
     public static <T1, T2> Map<String[], T2> toString(Map<T1[], T2> map) {
-        Map<String[], T2> strings = new HashMap<>();
+        Map<String[], T2> strings = new LinkedHashMap<>();
         for (Map.Entry<T1[], T2> row : map.entrySet()) {
             strings.put(toString(row.getKey()), row.getValue());
         }
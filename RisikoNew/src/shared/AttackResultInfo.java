@@ -1,23 +1,44 @@
 package shared;
 
+import java.util.Arrays;
+
 /**
  * Class used to communicate between the model and the view the result of a
  * fight.
  */
 public class AttackResultInfo {
 
+    public static final int DICE_PER_SIDE = 3; // The most dice a side rolls in a round.
+    public static final int DICE_PER_ROUND = 2 * DICE_PER_SIDE;
     private final CountryInfo[] countries;
     /*Array with 2 elements, the first represents the attacker, the second reperesents the defender.
     Their armies represent the maximum number of armies that can be used for an hypothetical future attack.*/
     private final int[][] dice;
     private final boolean conquered;
     private final String conqueredContinent;
+    private final int[] roundsDice; // Dice of every round of a blitz, DICE_PER_ROUND values for each round (the attacker's, then the defender's, 0 if not rolled).
 
     public AttackResultInfo(CountryInfo[] countries, int[][] dice, boolean conquered, String conqueredContinent) {
+        this(countries, dice, conquered, conqueredContinent, null);
+    }
+
+    /**
+     * Constructs the result of a blitz, i.e. of a battle made of several
+     * rounds. <code>dice</code> are the dice of the last round.
+     *
+     * @param countries
+     * @param dice
+     * @param conquered
+     * @param conqueredContinent
+     * @param roundsDice the dice of every round, <code>DICE_PER_ROUND</code>
+     * values for each round.
+     */
+    public AttackResultInfo(CountryInfo[] countries, int[][] dice, boolean conquered, String conqueredContinent, int[] roundsDice) {
         this.countries = countries;
         this.dice = dice;
         this.conquered = conquered;
         this.conqueredContinent = conqueredContinent;
+        this.roundsDice = roundsDice;
     }
     
     public CountryInfo getAttackerInfo(){
@@ -56,6 +77,39 @@ public class AttackResultInfo {
         return conquered;
     }
 
+    /**
+     * Returns the number of rounds of the battle: 1 for a single attack.
+     *
+     * @return
+     */
+    public int getRounds() {
+        return (roundsDice == null) ? 1 : roundsDice.length / DICE_PER_ROUND;
+    }
+
+    /**
+     * Returns the dice of the round <code>round</code> of the battle: the
+     * element at index 0 contains the attacker's dice, the one at index 1 the
+     * defender's dice.
+     *
+     * @param round
+     * @return
+     */
+    public int[][] getRoundDice(int round) {
+        if (roundsDice == null) {
+            return dice;
+        }
+        int[][] roundDice = new int[2][];
+        for (int side = 0; side < 2; side++) {
+            int offset = round * DICE_PER_ROUND + side * DICE_PER_SIDE;
+            int nrDice = 0;
+            while (nrDice < DICE_PER_SIDE && roundsDice[offset + nrDice] != 0) {
+                nrDice++;
+            }
+            roundDice[side] = Arrays.copyOfRange(roundsDice, offset, offset + nrDice);
+        }
+        return roundDice;
+    }
+
     public String getConqueredContinent() {
         return conqueredContinent;
     }
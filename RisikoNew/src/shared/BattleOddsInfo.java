@@ -0,0 +1,49 @@
+package shared;
+
+/**
+ * Class used to communicate between the model and the view the odds of a
+ * battle between two countries, fought until the defender is conquered or the
+ * attacker can't attack anymore.
+ */
+public class BattleOddsInfo {
+
+    private final String attackerCountryName;
+    private final String defenderCountryName;
+    private final double winProbability;
+    private final double expectedAttackerLosses;
+    private final double expectedDefenderLosses;
+
+    public BattleOddsInfo(String attackerCountryName, String defenderCountryName, double winProbability,
+            double expectedAttackerLosses, double expectedDefenderLosses) {
+        this.attackerCountryName = attackerCountryName;
+        this.defenderCountryName = defenderCountryName;
+        this.winProbability = winProbability;
+        this.expectedAttackerLosses = expectedAttackerLosses;
+        this.expectedDefenderLosses = expectedDefenderLosses;
+    }
+
+    public String getAttackerCountryName() {
+        return attackerCountryName;
+    }
+
+    public String getDefenderCountryName() {
+        return defenderCountryName;
+    }
+
+    /**
+     * Returns the probability that the attacker conquers the defender country.
+     *
+     * @return
+     */
+    public double getWinProbability() {
+        return winProbability;
+    }
+
+    public double getExpectedAttackerLosses() {
+        return expectedAttackerLosses;
+    }
+
+    public double getExpectedDefenderLosses() {
+        return expectedDefenderLosses;
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import risiko.map.Country;
 import risiko.map.RisikoMap;
+import risiko.phase.BattleOdds;
 import risiko.phase.FightPhase;
 import risiko.players.ArtificialPlayer;
 import risiko.players.Player;
@@ -66,6 +67,22 @@ public interface InfoFactory {
         return playerInfos;
     }
 
+    /**
+     * Builds an object <code>BattleOddsInfo</code> with the odds of a battle
+     * between <code>attacker</code> and <code>defender</code>.
+     *
+     * @param attacker
+     * @param defender
+     * @return
+     */
+    public static BattleOddsInfo buildBattleOddsInfo(Country attacker, Country defender) {
+        int attackerArmies = attacker.getArmies(), defenderArmies = defender.getArmies();
+        return new BattleOddsInfo(attacker.getName(), defender.getName(),
+                BattleOdds.getWinProbability(attackerArmies, defenderArmies),
+                BattleOdds.getExpectedAttackerLosses(attackerArmies, defenderArmies),
+                BattleOdds.getExpectedDefenderLosses(attackerArmies, defenderArmies));
+    }
+
     /**
      * Builds an object <code>PlayerInfo</code> which containts the info about a
      * certain player.
@@ -104,4 +121,16 @@ public interface InfoFactory {
         return new AttackResultInfo(buildFightingCountriesInfo(fightPhase), fightPhase.getDice(), fightPhase.hasConquered(), fightPhase.checkContinentConquest());
     }
 
+    /**
+     * Builds an object <code>AttackResultInfo</code> with the aggregated
+     * result of the last blitz of <code>fightPhase</code>.
+     *
+     * @param fightPhase
+     * @param map
+     * @return
+     */
+    public static AttackResultInfo buildBlitzResultInfo(FightPhase fightPhase, RisikoMap map) {
+        return new AttackResultInfo(buildFightingCountriesInfo(fightPhase), fightPhase.getDice(), fightPhase.hasConquered(), fightPhase.checkContinentConquest(), fightPhase.getBlitzLog());
+    }
+
 }
@@ -0,0 +1,326 @@
+package shared;
+
+import java.util.Arrays;
+
+/**
+ * Class used to communicate between the model and the view all the changes
+ * of the countries and of the players made by a command, in primitive arrays:
+ * for each changed country its armies and its owner, for each changed player
+ * its bonus armies and whether it has been eliminated. The countries are
+ * identified by their id and the players by their seat (their position in the
+ * initial turn order); their names and colors come from tables shared by all
+ * the deltas of a game.
+ *
+ * The reinforcement, the phase change and the choice of the fighting
+ * countries notified by the command are folded into its delta, so that the
+ * command sends a single notification: only the last one of each kind is
+ * kept, in the order in which they were sent.
+ */
+public final class StateDelta {
+
+    /**
+     * The kinds of notifications folded into a delta.
+     */
+    public enum Notification {
+        REINFORCE, PHASE_CHANGE, FIGHTING_COUNTRIES
+    }
+
+    private static final Notification[] NO_NOTIFICATIONS = new Notification[0];
+
+    private final String[] countryNames; // By id.
+    private final String[] playerNames, playerColors; // By seat.
+    private final int[] countries, armies, owners; // The changed countries, by id, and their new state.
+    private final int[] players, bonusArmies; // The changed players, by seat, and their new state.
+    private final boolean[] eliminated;
+    private final Notification[] notifications; // Each kind at most once, in the order in which it was last sent.
+    private final int reinforcement; // The bonus armies left to the active player.
+    private final PlayerInfo activePlayer;
+    private final String phase;
+    private final CountryInfo[] fightingCountries; // The attacker (or null), or the attacker and the defender.
+    private final boolean reattack;
+
+    /**
+     * Constructs a delta. The arrays are not copied.
+     *
+     * @param countryNames the names of all the countries, by id.
+     * @param playerNames the names of all the players, by seat.
+     * @param playerColors the colors of all the players, by seat.
+     * @param countries the ids of the changed countries.
+     * @param armies the armies of each changed country.
+     * @param owners the seat of the owner of each changed country.
+     * @param players the seats of the changed players.
+     * @param bonusArmies the bonus armies of each changed player.
+     * @param eliminated whether each changed player has been eliminated.
+     */
+    public StateDelta(String[] countryNames, String[] playerNames, String[] playerColors,
+            int[] countries, int[] armies, int[] owners, int[] players, int[] bonusArmies, boolean[] eliminated) {
+        this(countryNames, playerNames, playerColors, countries, armies, owners, players, bonusArmies, eliminated,
+                NO_NOTIFICATIONS, 0, null, null, null, false);
+    }
+
+    private StateDelta(String[] countryNames, String[] playerNames, String[] playerColors,
+            int[] countries, int[] armies, int[] owners, int[] players, int[] bonusArmies, boolean[] eliminated,
+            Notification[] notifications, int reinforcement, PlayerInfo activePlayer, String phase,
+            CountryInfo[] fightingCountries, boolean reattack) {
+        this.countryNames = countryNames;
+        this.playerNames = playerNames;
+        this.playerColors = playerColors;
+        this.countries = countries;
+        this.armies = armies;
+        this.owners = owners;
+        this.players = players;
+        this.bonusArmies = bonusArmies;
+        this.eliminated = eliminated;
+        this.notifications = notifications;
+        this.reinforcement = reinforcement;
+        this.activePlayer = activePlayer;
+        this.phase = phase;
+        this.fightingCountries = fightingCountries;
+        this.reattack = reattack;
+    }
+
+    /**
+     * Returns a delta with only the bonus armies left to the active player
+     * after a reinforcement, to be merged into a delta of the game.
+     *
+     * @param bonusArmies
+     * @return
+     */
+    public static StateDelta ofReinforce(int bonusArmies) {
+        return ofNotification(Notification.REINFORCE, bonusArmies, null, null, null, false);
+    }
+
+    /**
+     * Returns a delta with only a phase change, to be merged into a delta of
+     * the game.
+     *
+     * @param player the active player.
+     * @param phase
+     * @return
+     */
+    public static StateDelta ofPhaseChange(PlayerInfo player, String phase) {
+        return ofNotification(Notification.PHASE_CHANGE, 0, player, phase, null, false);
+    }
+
+    /**
+     * Returns a delta with only the choice of the attacker, or its reset if
+     * <code>attackerInfo</code> is null, to be merged into a delta of the
+     * game.
+     *
+     * @param attackerInfo
+     * @return
+     */
+    public static StateDelta ofSetAttacker(CountryInfo attackerInfo) {
+        return ofNotification(Notification.FIGHTING_COUNTRIES, 0, null, null, new CountryInfo[]{attackerInfo}, false);
+    }
+
+    /**
+     * Returns a delta with only the choice of the defender, to be merged into
+     * a delta of the game.
+     *
+     * @param fightingCountries the attacker and the defender.
+     * @param reattack
+     * @return
+     */
+    public static StateDelta ofSetDefender(CountryInfo[] fightingCountries, boolean reattack) {
+        return ofNotification(Notification.FIGHTING_COUNTRIES, 0, null, null, fightingCountries, reattack);
+    }
+
+    private static StateDelta ofNotification(Notification notification, int reinforcement, PlayerInfo activePlayer, String phase,
+            CountryInfo[] fightingCountries, boolean reattack) {
+        return new StateDelta(null, null, null, new int[0], new int[0], new int[0], new int[0], new int[0], new boolean[0],
+                new Notification[]{notification}, reinforcement, activePlayer, phase, fightingCountries, reattack);
+    }
+
+    public boolean isEmpty() {
+        return countries.length == 0 && players.length == 0 && notifications.length == 0;
+    }
+
+    public int getCountriesCount() {
+        return countries.length;
+    }
+
+    /**
+     * Returns the id of the <code>i</code>-th changed country.
+     *
+     * @param i
+     * @return
+     */
+    public int getCountryId(int i) {
+        return countries[i];
+    }
+
+    public String getCountryName(int i) {
+        return countryNames[countries[i]];
+    }
+
+    public int getArmies(int i) {
+        return armies[i];
+    }
+
+    public String getOwnerName(int i) {
+        return playerNames[owners[i]];
+    }
+
+    public String getOwnerColor(int i) {
+        return playerColors[owners[i]];
+    }
+
+    public int getPlayersCount() {
+        return players.length;
+    }
+
+    /**
+     * Returns the seat of the <code>i</code>-th changed player.
+     *
+     * @param i
+     * @return
+     */
+    public int getPlayerSeat(int i) {
+        return players[i];
+    }
+
+    public String getPlayerName(int i) {
+        return playerNames[players[i]];
+    }
+
+    public int getBonusArmies(int i) {
+        return bonusArmies[i];
+    }
+
+    public boolean isEliminated(int i) {
+        return eliminated[i];
+    }
+
+    public int getNotificationsCount() {
+        return notifications.length;
+    }
+
+    /**
+     * Returns the <code>i</code>-th folded notification, in the order in
+     * which they have to be delivered.
+     *
+     * @param i
+     * @return
+     */
+    public Notification getNotification(int i) {
+        return notifications[i];
+    }
+
+    public int getReinforcement() {
+        return reinforcement;
+    }
+
+    public PlayerInfo getActivePlayer() {
+        return activePlayer;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the attacker (null if it's been reset), or the attacker and the
+     * defender if the defender has been chosen.
+     *
+     * @return
+     */
+    public CountryInfo[] getFightingCountries() {
+        return fightingCountries;
+    }
+
+    public boolean isReattack() {
+        return reattack;
+    }
+
+    /**
+     * Returns the delta of the changes of this delta followed by the ones of
+     * <code>next</code>, which must come from the same game.
+     *
+     * @param next
+     * @return
+     */
+    public StateDelta merge(StateDelta next) {
+        int[] mergedCountries = mergeIds(countries, next.countries);
+        int[] mergedArmies = new int[mergedCountries.length], mergedOwners = new int[mergedCountries.length];
+        System.arraycopy(armies, 0, mergedArmies, 0, armies.length);
+        System.arraycopy(owners, 0, mergedOwners, 0, owners.length);
+        for (int i = 0; i < next.countries.length; i++) {
+            int j = indexOf(mergedCountries, next.countries[i]);
+            mergedArmies[j] = next.armies[i];
+            mergedOwners[j] = next.owners[i];
+        }
+        int[] mergedPlayers = mergeIds(players, next.players);
+        int[] mergedBonusArmies = new int[mergedPlayers.length];
+        boolean[] mergedEliminated = new boolean[mergedPlayers.length];
+        System.arraycopy(bonusArmies, 0, mergedBonusArmies, 0, bonusArmies.length);
+        System.arraycopy(eliminated, 0, mergedEliminated, 0, eliminated.length);
+        for (int i = 0; i < next.players.length; i++) {
+            int j = indexOf(mergedPlayers, next.players[i]);
+            mergedBonusArmies[j] = next.bonusArmies[i];
+            mergedEliminated[j] = next.eliminated[i];
+        }
+        boolean reinforced = next.hasNotification(Notification.REINFORCE);
+        boolean phaseChanged = next.hasNotification(Notification.PHASE_CHANGE);
+        boolean fightingChanged = next.hasNotification(Notification.FIGHTING_COUNTRIES);
+        return new StateDelta((countryNames != null) ? countryNames : next.countryNames,
+                (playerNames != null) ? playerNames : next.playerNames, (playerColors != null) ? playerColors : next.playerColors,
+                mergedCountries, mergedArmies, mergedOwners, mergedPlayers, mergedBonusArmies, mergedEliminated,
+                mergeNotifications(notifications, next.notifications),
+                reinforced ? next.reinforcement : reinforcement,
+                phaseChanged ? next.activePlayer : activePlayer, phaseChanged ? next.phase : phase,
+                fightingChanged ? next.fightingCountries : fightingCountries, fightingChanged ? next.reattack : reattack);
+    }
+
+    private boolean hasNotification(Notification notification) {
+        for (Notification folded : notifications) {
+            if (folded == notification) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the notifications of <code>previous</code> that aren't in
+     * <code>next</code>, followed by <code>next</code>.
+     */
+    private static Notification[] mergeNotifications(Notification[] previous, Notification[] next) {
+        Notification[] merged = new Notification[previous.length + next.length];
+        int length = 0;
+        for (Notification notification : previous) {
+            if (!Arrays.asList(next).contains(notification)) {
+                merged[length++] = notification;
+            }
+        }
+        System.arraycopy(next, 0, merged, length, next.length);
+        return Arrays.copyOf(merged, length + next.length);
+    }
+
+    /**
+     * Returns <code>ids</code> followed by the ids of <code>other</code> that
+     * aren't in <code>ids</code>.
+     */
+    private static int[] mergeIds(int[] ids, int[] other) {
+        int[] merged = new int[ids.length + other.length];
+        System.arraycopy(ids, 0, merged, 0, ids.length);
+        int length = ids.length;
+        for (int id : other) {
+            if (indexOf(ids, id) < 0) {
+                merged[length++] = id;
+            }
+        }
+        int[] result = new int[length];
+        System.arraycopy(merged, 0, result, 0, length);
+        return result;
+    }
+
+    private static int indexOf(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
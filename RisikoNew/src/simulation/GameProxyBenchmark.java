@@ -0,0 +1,66 @@
+package simulation;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import risiko.game.Game;
+import risiko.game.GameInvocationHandler;
+import risiko.game.GameProxy;
+import risiko.game.GuardedGame;
+import risiko.map.MapTopology;
+import shared.PlayerInfo;
+
+/**
+ * Compares the cost of a call to the game through the dynamic proxy of
+ * <code>GameInvocationHandler</code>, through <code>GuardedGame</code> and
+ * directly. Each round calls 2 methods filtered by the access control
+ * (<code>isCountryOwner</code> and <code>canReinforce</code>) and one that
+ * isn't (<code>getPhase</code>), as the active player.
+ */
+public class GameProxyBenchmark {
+
+    private static final int CALLS_PER_ROUND = 3;
+
+    /**
+     * Prints the average time of a call for each way to call the game.
+     * Arguments (all optional): rounds and repetitions.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 2000000;
+        int repetitions = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        List<PlayerInfo> players = new ArrayList<>();
+        players.add(new PlayerInfo("player1", "RED", "NORMAL"));
+        players.add(new PlayerInfo("player2", "BLUE", "NORMAL"));
+        Game game = new Game(players, new RecordingObserver(0), 0);
+        String[] names = {"direct", "proxy", "guarded"};
+        GameProxy[] targets = {game,
+            (GameProxy) Proxy.newProxyInstance(GameProxy.class.getClassLoader(), new Class<?>[]{GameProxy.class}, new GameInvocationHandler(game)),
+            new GuardedGame(game)};
+        String country = MapTopology.getDefault().getMapPack().getCountryName(0);
+        long checksum = 0;
+        for (int r = 0; r < repetitions; r++) {
+            StringBuilder line = new StringBuilder();
+            for (int t = 0; t < targets.length; t++) {
+                long start = System.nanoTime();
+                checksum += play(targets[t], country, rounds);
+                double nanos = (System.nanoTime() - start) / (double) (rounds * CALLS_PER_ROUND);
+                line.append(String.format("%s %.1f ns/call  ", names[t], nanos));
+            }
+            System.out.println(line.toString().trim());
+        }
+        System.out.println("checksum " + checksum);
+        game.endGame();
+    }
+
+    private static long play(GameProxy game, String country, int rounds) {
+        long hits = 0;
+        for (int i = 0; i < rounds; i++) {
+            hits += game.isCountryOwner(country) ? 1 : 0;
+            hits += game.canReinforce() ? 1 : 0;
+            hits += game.getPhase().length();
+        }
+        return hits;
+    }
+}
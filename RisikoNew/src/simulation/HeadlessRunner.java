@@ -0,0 +1,230 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import risiko.game.Game;
+import risiko.map.MapTopology;
+import risiko.players.ArtificialPlayerSettings;
+import shared.PlayerInfo;
+
+/**
+ * Runs a whole game without the GUI: the game is observed by a
+ * <code>RecordingObserver</code> and played by artificial players without any
+ * delay, until a player wins or the turns reach a limit. It can be used by
+ * tests and batch jobs.
+ */
+public class HeadlessRunner {
+
+    private static final String[] COLORS = {"RED", "GREEN", "BLUE", "YELLOW", "BLACK", "PURPLE"};
+    private static final ArtificialPlayerSettings NO_DELAY = new ArtificialPlayerSettings(5, 0, 0, 0, 0);
+    private final List<PlayerInfo> playersInfo;
+    private final long seed;
+    private final int maxTurns;
+    private final MapTopology topology;
+
+    /**
+     * Creates a runner for a game between the players
+     * <code>playersInfo</code>, who must all be artificial.
+     *
+     * @param playersInfo
+     * @param seed the seed of the game.
+     * @param maxTurns the maximum number of turns (a turn is a single
+     * player's turn), no limit if not positive.
+     */
+    public HeadlessRunner(List<PlayerInfo> playersInfo, long seed, int maxTurns) {
+        this(playersInfo, seed, maxTurns, MapTopology.getDefault());
+    }
+
+    /**
+     * Creates a runner for a game on the map <code>topology</code>.
+     *
+     * @param playersInfo
+     * @param seed
+     * @param maxTurns
+     * @param topology
+     */
+    public HeadlessRunner(List<PlayerInfo> playersInfo, long seed, int maxTurns, MapTopology topology) {
+        for (PlayerInfo info : playersInfo) {
+            if (!"ARTIFICIAL".equals(info.getType())) {
+                throw new IllegalArgumentException("Player " + info.getName() + " is not artificial");
+            }
+        }
+        this.playersInfo = playersInfo;
+        this.seed = seed;
+        this.maxTurns = maxTurns;
+        this.topology = topology;
+    }
+
+    /**
+     * Returns the info of <code>nrPlayers</code> artificial players.
+     *
+     * @param nrPlayers
+     * @return
+     */
+    public static List<PlayerInfo> buildArtificialPlayers(int nrPlayers) {
+        List<PlayerInfo> players = new ArrayList<>();
+        for (int i = 0; i < nrPlayers; i++) {
+            players.add(new PlayerInfo("player" + (i + 1), COLORS[i % COLORS.length], "ARTIFICIAL"));
+        }
+        return players;
+    }
+
+    /**
+     * The result of a game.
+     */
+    public static class Result {
+
+        private final String winner;
+        private final int turns;
+        private final long nanos;
+        private final int[] counts;
+        private final boolean timedOut;
+        private final String[] seats, missions;
+
+        Result(String winner, int turns, long nanos, int[] counts, boolean timedOut, String[] seats, String[] missions) {
+            this.winner = winner;
+            this.turns = turns;
+            this.nanos = nanos;
+            this.counts = counts;
+            this.timedOut = timedOut;
+            this.seats = seats;
+            this.missions = missions;
+        }
+
+        /**
+         * Returns the name of the winner, or null if nobody won.
+         *
+         * @return
+         */
+        public String getWinner() {
+            return winner;
+        }
+
+        /**
+         * Returns the position of the winner in the initial turn order, or -1
+         * if nobody won.
+         *
+         * @return
+         */
+        public int getWinnerSeat() {
+            for (int i = 0; i < seats.length; i++) {
+                if (seats[i].equals(winner)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the mission of the winner, or null if nobody won.
+         *
+         * @return
+         */
+        public String getWinnerMission() {
+            int seat = getWinnerSeat();
+            return (seat < 0) ? null : missions[seat];
+        }
+
+        public int getNrSeats() {
+            return seats.length;
+        }
+
+        /**
+         * Returns the name of the player that played <code>seat</code>-th in
+         * the initial turn order.
+         *
+         * @param seat
+         * @return
+         */
+        public String getSeat(int seat) {
+            return seats[seat];
+        }
+
+        /**
+         * Returns the mission description of the player that played
+         * <code>seat</code>-th.
+         *
+         * @param seat
+         * @return
+         */
+        public String getMission(int seat) {
+            return missions[seat];
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        public long getDurationNanos() {
+            return nanos;
+        }
+
+        public int getCount(RecordingObserver.Event event) {
+            return counts[event.ordinal()];
+        }
+
+        /**
+         * Returns true if the game was stopped because it took too long.
+         *
+         * @return
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("winner=%s turns=%d time=%.1fms attacks=%d%s", winner, turns, nanos / 1e6,
+                    getCount(RecordingObserver.Event.ATTACK_RESULT), timedOut ? " (timed out)" : "");
+        }
+    }
+
+    /**
+     * Plays the game and waits for its end, i.e. a victory, the turns limit
+     * or <code>timeoutMs</code> milliseconds. The game is ended if nobody
+     * won, so that the artificial players stop, and their last tasks are
+     * waited for.
+     *
+     * @param timeoutMs
+     * @return
+     * @throws InterruptedException
+     */
+    public Result run(long timeoutMs) throws InterruptedException {
+        RecordingObserver observer = new RecordingObserver(maxTurns);
+        long start = System.nanoTime();
+        Game game = new Game(playersInfo, observer, seed, NO_DELAY, topology);
+        boolean over = observer.getOverLatch().await(timeoutMs, TimeUnit.MILLISECONDS);
+        long nanos = System.nanoTime() - start;
+        if (observer.getWinner() == null) {
+            game.endGame();
+        }
+        game.awaitArtificialPlayers(timeoutMs);
+        int turns = Math.min(observer.getTurns(), (maxTurns > 0) ? maxTurns : Integer.MAX_VALUE);
+        String[] seats = observer.getSeats().toArray(new String[0]);
+        String[] missions = new String[seats.length];
+        for (int i = 0; i < seats.length; i++) {
+            missions[i] = game.getMissionDescription(seats[i]);
+        }
+        return new Result(observer.getWinner(), turns, nanos, observer.getCounts(), !over, seats, missions);
+    }
+
+    /**
+     * Plays some games and prints their results. Arguments (all optional):
+     * number of players, number of games, maximum turns and seed of the first
+     * game.
+     *
+     * @param args
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int nrPlayers = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int nrGames = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        int maxTurns = (args.length > 2) ? Integer.parseInt(args[2]) : 400;
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+        for (int i = 0; i < nrGames; i++) {
+            Result result = new HeadlessRunner(buildArtificialPlayers(nrPlayers), seed + i, maxTurns).run(60000);
+            System.out.println("game " + (seed + i) + ": " + result);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import risiko.game.CommandJournal;
+import risiko.game.Game;
+import risiko.map.MapTopology;
+import risiko.players.ArtificialPlayerSettings;
+
+/**
+ * Measures the cost of recording the commands of a game in a
+ * <code>CommandJournal</code>: each game is played by artificial players
+ * without any delay, once without a journal and once with it, then it's
+ * recovered from its journal, checking that the recovered state is the same.
+ * It prints the time of the games with and without the journal, the write
+ * throughput of the journals (commands and bytes per second, commands per
+ * fsync) and the recovery time.
+ */
+public class JournalBenchmark {
+
+    private static final ArtificialPlayerSettings NO_DELAY = new ArtificialPlayerSettings(5, 0, 0, 0, 0);
+    private static final long TIMEOUT_MS = 60000;
+
+    /**
+     * Arguments (all optional): number of games, number of players, maximum
+     * turns and seed of the first game.
+     *
+     * @param args
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int nrGames = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        int nrPlayers = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int maxTurns = (args.length > 2) ? Integer.parseInt(args[2]) : 200;
+        long firstSeed = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+        MapTopology topology = MapTopology.getDefault();
+        Path dir = Files.createTempDirectory("journals");
+        long plainNanos = 0, journaledNanos = 0, recoveryNanos = 0, records = 0, bytes = 0, batches = 0;
+        int mismatches = 0;
+        for (int i = 0; i < nrGames; i++) {
+            long seed = firstSeed + i;
+            if (i % 2 == 0) { // The games with and without journal take turns to be played first.
+                plainNanos += playWithoutJournal(seed, nrPlayers, maxTurns, topology);
+            }
+            Path path = dir.resolve("game" + seed + ".journal");
+            Game game;
+            try (CommandJournal journal = CommandJournal.open(path)) {
+                long start = System.nanoTime();
+                game = play(seed, nrPlayers, maxTurns, topology, journal);
+                journal.sync();
+                journaledNanos += System.nanoTime() - start;
+                records += journal.getRecordsCount();
+                bytes += journal.getSize();
+                batches += journal.getBatchesCount();
+            }
+            if (i % 2 != 0) {
+                plainNanos += playWithoutJournal(seed, nrPlayers, maxTurns, topology);
+            }
+
+            long start = System.nanoTime();
+            try (CommandJournal journal = CommandJournal.open(path)) {
+                Game recovered = Game.recover(journal, new RecordingObserver(0), NO_DELAY, topology);
+                recoveryNanos += System.nanoTime() - start;
+                if (!recovered.getSnapshot().hasSameState(game.getSnapshot())) {
+                    mismatches++;
+                    System.out.println("game " + seed + ": the recovered state is different");
+                }
+                recovered.endGame();
+                recovered.awaitArtificialPlayers(TIMEOUT_MS);
+            }
+            Files.delete(path);
+        }
+        Files.delete(dir);
+
+        double journaledSeconds = journaledNanos / 1e9;
+        System.out.println(String.format("games: %d, without journal %.1f ms, with journal %.1f ms (%+.1f%%)", nrGames,
+                plainNanos / 1e6, journaledNanos / 1e6, 100.0 * (journaledNanos - plainNanos) / plainNanos));
+        System.out.println(String.format("journal: %d commands, %d bytes, %d fsyncs (%.1f commands/fsync), %.0f commands/s, %.1f kB/s",
+                records, bytes, batches, (double) records / Math.max(1, batches), records / journaledSeconds, bytes / journaledSeconds / 1024));
+        System.out.println(String.format("recovery: %.2f ms/game, %.0f commands/s, %d mismatches",
+                recoveryNanos / 1e6 / nrGames, records / (recoveryNanos / 1e9), mismatches));
+    }
+
+    /**
+     * Plays a game without journal and returns its duration, in nanoseconds.
+     *
+     * @param seed
+     * @param nrPlayers
+     * @param maxTurns
+     * @param topology
+     * @return
+     * @throws InterruptedException
+     */
+    private static long playWithoutJournal(long seed, int nrPlayers, int maxTurns, MapTopology topology) throws InterruptedException {
+        long start = System.nanoTime();
+        play(seed, nrPlayers, maxTurns, topology, null);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Plays a game until its end (a victory or <code>maxTurns</code> turns),
+     * then ends it and waits for its artificial players.
+     *
+     * @param seed
+     * @param nrPlayers
+     * @param maxTurns
+     * @param topology
+     * @param journal null to play without journal.
+     * @return
+     * @throws InterruptedException
+     */
+    private static Game play(long seed, int nrPlayers, int maxTurns, MapTopology topology, CommandJournal journal) throws InterruptedException {
+        RecordingObserver observer = new RecordingObserver(maxTurns);
+        Game game = new Game(HeadlessRunner.buildArtificialPlayers(nrPlayers), observer, seed, NO_DELAY, topology, journal);
+        observer.getOverLatch().await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        game.endGame();
+        game.awaitArtificialPlayers(TIMEOUT_MS);
+        return game;
+    }
+}
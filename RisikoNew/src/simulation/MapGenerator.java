@@ -0,0 +1,225 @@
+package simulation;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import services.FileManager;
+import services.MapPack;
+
+/**
+ * Generates random maps, used to see how the game scales on maps much bigger
+ * than the standard one. The generated maps are written in the same format of
+ * the files <code>countries.txt</code> and <code>missions.txt</code>, so that
+ * they can be read by <code>FileManager</code> and compiled into a
+ * <code>MapPack</code>.
+ *
+ * A generated map is always valid: the adjacency is symmetric, every continent
+ * is connected (the countries of each continent are joined by a random tree)
+ * and so is the whole map (each continent is joined to one of the previous
+ * ones). The remaining edges are added at random between countries with close
+ * ids, until the requested average degree is reached.
+ */
+public class MapGenerator {
+
+    private static final int MIN_WINDOW = 8; // Maximum distance between the ids of two neighbors, at least.
+    private final int nrCountries;
+    private final int nrContinents;
+    private final double averageDegree;
+    private final int nrMissions;
+    private final Random random;
+    private final List<List<Integer>> neighbors;
+    private final Set<Long> edges;
+    private final int[] continentStart; // Countries of continent c go from continentStart[c] to continentStart[c + 1] - 1.
+    private final String countryFormat, continentFormat;
+    private final String missionsFile;
+
+    /**
+     * Creates a generator.
+     *
+     * @param nrCountries the number of countries, at least 2.
+     * @param nrContinents the number of continents, between 1 and
+     * <code>nrCountries</code>.
+     * @param averageDegree the average number of neighbors of a country, at
+     * least 2.
+     * @param nrPlayers the maximum number of players of the games played on
+     * the map (there's a mission for each of them).
+     * @param seed the seed of the random generator: the same parameters and
+     * seed generate the same map.
+     */
+    public MapGenerator(int nrCountries, int nrContinents, double averageDegree, int nrPlayers, long seed) {
+        if (nrCountries < 2 || nrContinents < 1 || nrContinents > nrCountries) {
+            throw new IllegalArgumentException("Invalid number of countries or continents");
+        }
+        if (averageDegree < 2 || averageDegree > nrCountries - 1) {
+            throw new IllegalArgumentException("Invalid average degree " + averageDegree);
+        }
+        this.nrCountries = nrCountries;
+        this.nrContinents = nrContinents;
+        this.averageDegree = averageDegree;
+        this.nrMissions = Math.max(nrPlayers, 2);
+        this.random = new Random(seed);
+        this.neighbors = new ArrayList<>(nrCountries);
+        this.edges = new HashSet<>();
+        this.continentStart = new int[nrContinents + 1];
+        // Names with the same number of digits, so that no name contains another one.
+        this.countryFormat = "Territorio %0" + Integer.toString(nrCountries).length() + "d";
+        this.continentFormat = "Continente %0" + Integer.toString(nrContinents).length() + "d";
+        generate();
+        this.missionsFile = buildMissions();
+    }
+
+    /**
+     * Generates the adjacency of the countries.
+     */
+    private void generate() {
+        for (int i = 0; i < nrCountries; i++) {
+            neighbors.add(new ArrayList<Integer>());
+        }
+        for (int c = 0; c <= nrContinents; c++) {
+            continentStart[c] = (int) ((long) c * nrCountries / nrContinents);
+        }
+        int window = Math.max(MIN_WINDOW, (int) Math.ceil(averageDegree) * 2);
+        for (int c = 0; c < nrContinents; c++) {
+            for (int i = continentStart[c] + 1; i < continentStart[c + 1]; i++) {
+                int from = Math.max(continentStart[c], i - window);
+                addEdge(i, from + random.nextInt(i - from));
+            }
+            if (c > 0) {
+                int other = random.nextInt(c);
+                addEdge(randomCountry(c), randomCountry(other));
+            }
+        }
+        long nrEdges = Math.round(nrCountries * averageDegree / 2);
+        long attempts = 0;
+        while (edges.size() < nrEdges && attempts++ < nrEdges * 100) {
+            int country = random.nextInt(nrCountries);
+            int other = country + random.nextInt(2 * window + 1) - window;
+            if (other >= 0 && other < nrCountries && other != country) {
+                addEdge(country, other);
+            }
+        }
+    }
+
+    private int randomCountry(int continent) {
+        return continentStart[continent] + random.nextInt(continentStart[continent + 1] - continentStart[continent]);
+    }
+
+    private void addEdge(int country, int other) {
+        long key = (long) Math.min(country, other) * nrCountries + Math.max(country, other);
+        if (edges.add(key)) {
+            neighbors.get(country).add(other);
+            neighbors.get(other).add(country);
+        }
+    }
+
+    public String getCountryName(int country) {
+        return String.format(countryFormat, country + 1);
+    }
+
+    public String getContinentName(int continent) {
+        return String.format(continentFormat, continent + 1);
+    }
+
+    /**
+     * Returns the content of the countries file: a line for each country with
+     * the name of the country followed by the names of its neighbors, and
+     * after the countries of each continent the line
+     * <code>-name-bonus</code>. The bonus of a continent is half the number of
+     * its countries.
+     *
+     * @return
+     */
+    public String getCountriesFile() {
+        StringBuilder builder = new StringBuilder();
+        for (int c = 0; c < nrContinents; c++) {
+            for (int i = continentStart[c]; i < continentStart[c + 1]; i++) {
+                builder.append(getCountryName(i));
+                for (int neighbor : neighbors.get(i)) {
+                    builder.append(',').append(getCountryName(neighbor));
+                }
+                builder.append('\n');
+            }
+            int size = continentStart[c + 1] - continentStart[c];
+            builder.append('-').append(getContinentName(c)).append('-').append(Math.max(1, size / 2)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the content of the missions file: missions to conquer a number
+     * of countries alternate with missions to conquer two continents (or one,
+     * if the map has only one).
+     *
+     * @return
+     */
+    public String getMissionsFile() {
+        return missionsFile;
+    }
+
+    private String buildMissions() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < nrMissions; i++) {
+            if (i % 2 == 0) {
+                int target = nrCountries / 2 + i * nrCountries / (8 * nrMissions) + 1;
+                builder.append("Countries=Conquistare ").append(Math.min(target, nrCountries)).append(" territori-")
+                        .append(150 + 10 * i);
+            } else {
+                int first = random.nextInt(nrContinents);
+                int second = (first + 1 + random.nextInt(Math.max(1, nrContinents - 1))) % nrContinents;
+                builder.append("Continents=Conquistare ").append(getContinentName(first));
+                if (second != first) {
+                    builder.append(" e ").append(getContinentName(second));
+                }
+                builder.append("-").append(150 + 10 * i);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Compiles the generated map into a pack, with the tris of the resources
+     * read by <code>fileManager</code>.
+     *
+     * @param fileManager
+     * @return
+     */
+    public MapPack toMapPack(FileManager fileManager) {
+        return MapPack.compile(fileManager, getCountriesFile().getBytes(StandardCharsets.UTF_8),
+                getMissionsFile().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Generates a map and writes it into the current directory as
+     * <code>countries.txt</code>, <code>missions.txt</code> and
+     * <code>map.pack</code>. Arguments: number of countries, number of
+     * continents, average degree, number of players and (optionally) seed.
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: MapGenerator countries continents averageDegree players [seed]");
+            return;
+        }
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : System.nanoTime();
+        MapGenerator generator = new MapGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Double.parseDouble(args[2]), Integer.parseInt(args[3]), seed);
+        try (OutputStream out = new FileOutputStream("countries.txt")) {
+            out.write(generator.getCountriesFile().getBytes(StandardCharsets.UTF_8));
+        }
+        try (OutputStream out = new FileOutputStream("missions.txt")) {
+            out.write(generator.getMissionsFile().getBytes(StandardCharsets.UTF_8));
+        }
+        try (OutputStream out = new java.io.BufferedOutputStream(new FileOutputStream("map.pack"))) {
+            generator.toMapPack(FileManager.getInstance()).write(out);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import shared.AttackResultInfo;
+import shared.CountryInfo;
+import shared.PlayerInfo;
+import shared.StateDelta;
+import utils.GameObserver;
+
+/**
+ * An observer that doesn't show anything: it only counts the notifications of
+ * each type, the turns played and records the players order and the winner.
+ * It's used to run games without the GUI. The notifications can come from any thread.
+ */
+public class RecordingObserver implements GameObserver {
+
+    /**
+     * The types of notification, one for each method of
+     * <code>GameObserver</code>.
+     */
+    public enum Event {
+        REINFORCE, PHASE_CHANGE, SET_ATTACKER, COUNTRIES_ASSIGNMENT, ARMIES_CHANGE, PLAY_CARDS, PLAYED_TRIS,
+        SET_FROM_COUNTRY, DRAWN_CARD, PLAYERS_ORDER, SET_DEFENDER, VICTORY, ATTACK_RESULT, DEFEND, ELIMINATION, END_GAME,
+        STATE_DELTA
+    }
+
+    private final AtomicIntegerArray counts;
+    private final int maxTurns;
+    private final CountDownLatch over;
+    private volatile int turns;
+    private volatile String activePlayer, lastPhase, winner;
+    private volatile List<String> seats; // The names of the players in the initial turn order.
+
+    /**
+     * Creates an observer that considers the game over when a player wins or
+     * when <code>maxTurns</code> turns have been played.
+     *
+     * @param maxTurns the maximum number of turns (a turn is a single
+     * player's turn), no limit if not positive.
+     */
+    public RecordingObserver(int maxTurns) {
+        this.counts = new AtomicIntegerArray(Event.values().length);
+        this.maxTurns = maxTurns;
+        this.over = new CountDownLatch(1);
+    }
+
+    /**
+     * Counts a notification. The counts are frozen when the game is over, so
+     * that the actions still running when the game is stopped aren't counted.
+     */
+    private void record(Event event) {
+        if (over.getCount() > 0) {
+            counts.incrementAndGet(event.ordinal());
+        }
+    }
+
+    public int getCount(Event event) {
+        return counts.get(event.ordinal());
+    }
+
+    /**
+     * Returns the number of notifications of each type, indexed by the
+     * ordinal of the type.
+     *
+     * @return
+     */
+    public int[] getCounts() {
+        int[] result = new int[counts.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of turns started.
+     *
+     * @return
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Returns the name of the winner, or null if nobody has won.
+     *
+     * @return
+     */
+    public String getWinner() {
+        return winner;
+    }
+
+    /**
+     * Returns the names of the players in the turn order of the start of the
+     * game, or null if it hasn't been notified yet.
+     *
+     * @return
+     */
+    public List<String> getSeats() {
+        return seats;
+    }
+
+    /**
+     * Returns the latch released when the game is over, i.e. when a player
+     * wins, the game ends or the turns reach the limit.
+     *
+     * @return
+     */
+    public CountDownLatch getOverLatch() {
+        return over;
+    }
+
+    @Override
+    public void updateOnReinforce(int bonusArmies) {
+        record(Event.REINFORCE);
+    }
+
+    /**
+     * Counts a turn each time a player starts it, i.e. when the phase goes to
+     * the cards phase or to the reinforcement phase without passing by the
+     * cards one.
+     *
+     * @param player
+     * @param phase
+     */
+    @Override
+    public synchronized void updateOnPhaseChange(PlayerInfo player, String phase) {
+        record(Event.PHASE_CHANGE);
+        boolean newTurn = phase.equals("PLAY_CARDS") || (phase.equals("REINFORCE") && !"PLAY_CARDS".equals(lastPhase));
+        activePlayer = player.getName();
+        lastPhase = phase;
+        if (newTurn) {
+            turns++;
+            if (maxTurns > 0 && turns > maxTurns) {
+                over.countDown();
+            }
+        }
+    }
+
+    @Override
+    public void updateOnSetAttacker(CountryInfo attackerInfo) {
+        record(Event.SET_ATTACKER);
+    }
+
+    @Override
+    public void updateOnCountriesAssignment(CountryInfo[] countriesInfo) {
+        record(Event.COUNTRIES_ASSIGNMENT);
+    }
+
+    @Override
+    public void updateOnArmiesChange(CountryInfo country) {
+        record(Event.ARMIES_CHANGE);
+    }
+
+    @Override
+    public void updateOnStateDelta(StateDelta delta) {
+        record(Event.STATE_DELTA);
+    }
+
+    @Override
+    public void updateOnPlayCards(List<String> cards) {
+        record(Event.PLAY_CARDS);
+    }
+
+    @Override
+    public void updateOnPlayedTris() {
+        record(Event.PLAYED_TRIS);
+    }
+
+    @Override
+    public void updateOnSetFromCountry(String country) {
+        record(Event.SET_FROM_COUNTRY);
+    }
+
+    @Override
+    public void updateOnDrawnCard(String card, boolean isArtificialPlayer) {
+        record(Event.DRAWN_CARD);
+    }
+
+    /**
+     * Records the players order, the first time it's notified.
+     *
+     * @param players
+     */
+    @Override
+    public synchronized void updatePlayersOrder(List<PlayerInfo> players) {
+        record(Event.PLAYERS_ORDER);
+        if (seats == null) {
+            List<String> names = new ArrayList<>();
+            for (PlayerInfo player : players) {
+                names.add(player.getName());
+            }
+            seats = names;
+        }
+    }
+
+    @Override
+    public void updateOnSetDefender(CountryInfo[] fightingCountries, boolean reattack) {
+        record(Event.SET_DEFENDER);
+    }
+
+    /**
+     * Records the winner, i.e. the active player when the victory is
+     * notified, unless the game is already over because of the turns limit.
+     *
+     * @param winMessage
+     */
+    @Override
+    public synchronized void updateOnVictory(String winMessage) {
+        if (over.getCount() > 0) {
+            winner = activePlayer;
+        }
+        record(Event.VICTORY);
+        over.countDown();
+    }
+
+    @Override
+    public void updateOnAttackResult(AttackResultInfo attackResult) {
+        record(Event.ATTACK_RESULT);
+    }
+
+    @Override
+    public void updateOnDefend(CountryInfo defenderCountryInfo, int nrArmiesAttacker) {
+        record(Event.DEFEND);
+    }
+
+    @Override
+    public void updateOnElimination(String defenderName, boolean artificialAttack) {
+        record(Event.ELIMINATION);
+    }
+
+    @Override
+    public void updateOnEndGame() {
+        record(Event.END_GAME);
+        over.countDown();
+    }
+}
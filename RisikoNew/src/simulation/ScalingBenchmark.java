@@ -0,0 +1,254 @@
+package simulation;
+
+import exceptions.PlayerLossException;
+import exceptions.WrongCallerException;
+import java.util.ArrayList;
+import java.util.List;
+import risiko.equipment.RandomStream;
+import risiko.map.Country;
+import risiko.map.CountrySet;
+import risiko.map.MapTopology;
+import risiko.map.RisikoMap;
+import risiko.phase.FightPhase;
+import risiko.phase.MovePhase;
+import risiko.phase.ReinforcePhase;
+import risiko.players.Player;
+import services.FileManager;
+
+/**
+ * Plays games between random players on maps of growing size and reports the
+ * average cost of each operation, to see how the map and the phases scale.
+ *
+ * The players follow the same random strategy of <code>ArtificialPlayer</code>
+ * (random reinforcements, a few random attacks with the maximum number of
+ * armies, a random movement), but they act directly on the map and the phases:
+ * the benchmark bypasses <code>Game</code> and <code>ArtificialPlayer</code>
+ * (their commands, notifications, scheduler and delays), so it measures the
+ * engine alone and not how the artificial players scale. All the randomness
+ * comes from the seed, so the same seed plays the same games.
+ */
+public class ScalingBenchmark {
+
+    private static final String[] OPERATIONS = {"build", "init", "bonus", "reinforce", "attack", "move", "winCheck"};
+    public static final int BUILD = 0, INIT = 1, BONUS = 2, REINFORCE = 3, ATTACK = 4, MOVE = 5, WIN_CHECK = 6;
+    private static final String[] COLORS = {"RED", "GREEN", "BLUE", "YELLOW", "BLACK", "PURPLE"};
+    private static final int MAX_ATTACKS = 5;
+    private final long[] nanos;
+    private final long[] counts;
+    private final RandomStream random;
+
+    public ScalingBenchmark(long seed) {
+        this.nanos = new long[OPERATIONS.length];
+        this.counts = new long[OPERATIONS.length];
+        this.random = new RandomStream(seed);
+    }
+
+    /**
+     * Adds the time elapsed since <code>start</code> to the operation
+     * <code>operation</code>.
+     *
+     * @param operation
+     * @param start
+     */
+    private void record(int operation, long start) {
+        nanos[operation] += System.nanoTime() - start;
+        counts[operation]++;
+    }
+
+    /**
+     * Returns the average cost of the operation in nanoseconds.
+     *
+     * @param operation
+     * @return
+     */
+    public double getAverageNanos(int operation) {
+        return (counts[operation] == 0) ? 0 : (double) nanos[operation] / counts[operation];
+    }
+
+    /**
+     * Plays a game on a map with the topology <code>topology</code>.
+     *
+     * @param topology
+     * @param nrPlayers
+     * @param maxTurns the maximum number of turns of each player.
+     * @return the winner, or null if nobody won within
+     * <code>maxTurns</code>.
+     */
+    public Player playGame(MapTopology topology, int nrPlayers, int maxTurns) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < nrPlayers; i++) {
+            players.add(new Player("player" + (i + 1), COLORS[i % COLORS.length]));
+        }
+        long start = System.nanoTime();
+        RisikoMap map = new RisikoMap(topology, random.split());
+        record(BUILD, start);
+        start = System.nanoTime();
+        map.initGame(players);
+        record(INIT, start);
+
+        ReinforcePhase reinforcePhase = new ReinforcePhase(map);
+        FightPhase fightPhase = new FightPhase(map, random.split());
+        MovePhase movePhase = new MovePhase(map);
+        for (int turn = 0; turn < maxTurns; turn++) {
+            for (Player player : players) {
+                if (map.hasLost(player)) {
+                    continue;
+                }
+                if (playTurn(map, player, reinforcePhase, fightPhase, movePhase)) {
+                    return player;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Plays a turn of <code>player</code>.
+     *
+     * @return true if the player has won.
+     */
+    private boolean playTurn(RisikoMap map, Player player, ReinforcePhase reinforcePhase, FightPhase fightPhase, MovePhase movePhase) {
+        long start = System.nanoTime();
+        map.computeBonusArmies(player);
+        record(BONUS, start);
+
+        start = System.nanoTime();
+        List<Country> myCountries = map.getMyCountries(player);
+        while (player.getBonusArmies() > 0) {
+            reinforcePhase.reinforce(myCountries.get(random.nextInt(myCountries.size())));
+        }
+        record(REINFORCE, start);
+
+        for (int i = 0; i < MAX_ATTACKS; i++) {
+            start = System.nanoTime();
+            boolean attacked = randomAttack(map, player, fightPhase, movePhase);
+            if (!attacked) {
+                break;
+            }
+            record(ATTACK, start);
+            start = System.nanoTime();
+            boolean winner = map.checkIfWinner(player);
+            record(WIN_CHECK, start);
+            if (winner) {
+                return true;
+            }
+        }
+
+        start = System.nanoTime();
+        randomMove(map, player, movePhase);
+        record(MOVE, start);
+        return false;
+    }
+
+    /**
+     * Attacks a random enemy neighbor from a random country of the player's
+     * frontier.
+     *
+     * @return false if the player can't attack.
+     */
+    private boolean randomAttack(RisikoMap map, Player player, FightPhase fightPhase, MovePhase movePhase) {
+        CountrySet frontier = map.getFrontier(player);
+        if (frontier.isEmpty()) {
+            return false;
+        }
+        int id = frontier.nextId(random.nextInt(map.getCountriesCount()));
+        Country attacker = map.getCountryById(id >= 0 ? id : frontier.nextId(0));
+        List<Country> defenders = new ArrayList<>();
+        for (Country neighbor : attacker.getNeighbors()) {
+            if (neighbor.getOwner() != player) {
+                defenders.add(neighbor);
+            }
+        }
+        Country defender = defenders.get(random.nextInt(defenders.size()));
+        fightPhase.setAttackerCountry(attacker.getName());
+        fightPhase.setDefenderCountry(defender.getName());
+        fightPhase.setAttackerArmies(-1);
+        fightPhase.declareAttack();
+        try {
+            fightPhase.confirmAttack(defender.getMaxArmies(false));
+        } catch (PlayerLossException ex) {
+            movePhase.move(attacker, defender, Math.min(fightPhase.getAttackerArmies(), attacker.getArmies() - 1));
+        } catch (WrongCallerException ex) {
+            throw new IllegalStateException(ex);
+        }
+        fightPhase.clear();
+        return true;
+    }
+
+    /**
+     * Moves a random number of armies between two random adjacent countries
+     * of the player, if it can.
+     */
+    private void randomMove(RisikoMap map, Player player, MovePhase movePhase) {
+        List<Country> myCountries = map.getMyCountries(player);
+        Country fromCountry = myCountries.get(random.nextInt(myCountries.size()));
+        if (!fromCountry.canMove(player)) {
+            return;
+        }
+        List<Country> neighbors = fromCountry.getNeighbors();
+        Country toCountry = neighbors.get(random.nextInt(neighbors.size()));
+        if (fromCountry.canMoveTo(toCountry)) {
+            movePhase.move(fromCountry, toCountry, random.nextInt(movePhase.getMaxArmiesForMovement(fromCountry)) + 1);
+        }
+    }
+
+    private static void printHeader() {
+        System.out.printf("%10s", "countries");
+        for (String operation : OPERATIONS) {
+            System.out.printf("%14s", operation + "(ns)");
+        }
+        System.out.println();
+    }
+
+    private void printRow(int nrCountries) {
+        System.out.printf("%10d", nrCountries);
+        for (int operation = 0; operation < OPERATIONS.length; operation++) {
+            System.out.printf("%14.0f", getAverageNanos(operation));
+        }
+        System.out.println();
+    }
+
+    /**
+     * Plays the games on the standard map and on generated maps of growing
+     * size, then prints the average cost of each operation. Arguments (all
+     * optional): number of players, games per map, turns per game, average
+     * degree and sizes of the generated maps.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int nrPlayers = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int nrGames = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        int maxTurns = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+        double averageDegree = (args.length > 3) ? Double.parseDouble(args[3]) : 4.5;
+        int[] sizes = {250, 1000, 5000, 20000};
+        if (args.length > 4) {
+            sizes = new int[args.length - 4];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = Integer.parseInt(args[i + 4]);
+            }
+        }
+
+        List<MapTopology> topologies = new ArrayList<>();
+        topologies.add(MapTopology.getDefault());
+        FileManager fileManager = FileManager.getInstance();
+        for (int size : sizes) {
+            topologies.add(new MapTopology(new MapGenerator(size, Math.max(1, size / 7), averageDegree, nrPlayers, size).toMapPack(fileManager)));
+        }
+
+        // Warm-up on the standard map, so that the first row isn't dominated by the compilation.
+        ScalingBenchmark warmUp = new ScalingBenchmark(0);
+        for (int i = 0; i < nrGames; i++) {
+            warmUp.playGame(topologies.get(0), nrPlayers, maxTurns);
+        }
+
+        printHeader();
+        for (MapTopology topology : topologies) {
+            ScalingBenchmark benchmark = new ScalingBenchmark(topology.getCountriesCount());
+            for (int i = 0; i < nrGames; i++) {
+                benchmark.playGame(topology, nrPlayers, maxTurns);
+            }
+            benchmark.printRow(topology.getCountriesCount());
+        }
+    }
+}
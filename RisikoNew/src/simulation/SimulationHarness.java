@@ -0,0 +1,142 @@
+package simulation;
+
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import risiko.map.MapTopology;
+
+/**
+ * Plays many games between artificial players in parallel and aggregates
+ * their results in a <code>SimulationStats</code>, printed every few games
+ * while the simulation runs.
+ *
+ * The games are the tasks of a fork/join pool. Every game is isolated: it has
+ * its own seed (the first seed plus its index), so the results don't depend on
+ * the scheduling, and it shares with the others only the topology of the map,
+ * which is immutable and loaded before the games start, so the games never
+ * touch the <code>FileManager</code>. A game is played by its artificial
+ * players on the turn scheduler shared by the games, while the worker that
+ * runs it waits for its end, so the pool's parallelism is the number of games
+ * played at the same time.
+ */
+public class SimulationHarness {
+
+    private final int nrPlayers, maxTurns;
+    private final long firstSeed;
+    private final MapTopology topology;
+    private final long timeoutMs;
+
+    /**
+     * Creates a harness for games on the default map.
+     *
+     * @param nrPlayers
+     * @param maxTurns
+     * @param firstSeed
+     */
+    public SimulationHarness(int nrPlayers, int maxTurns, long firstSeed) {
+        this(nrPlayers, maxTurns, firstSeed, MapTopology.getDefault(), 60000);
+    }
+
+    /**
+     * Creates a harness for games between <code>nrPlayers</code> artificial
+     * players on the map <code>topology</code>.
+     *
+     * @param nrPlayers
+     * @param maxTurns the maximum number of turns of a game, no limit if not
+     * positive.
+     * @param firstSeed the seed of the first game.
+     * @param topology
+     * @param timeoutMs the time after which a game is stopped.
+     */
+    public SimulationHarness(int nrPlayers, int maxTurns, long firstSeed, MapTopology topology, long timeoutMs) {
+        this.nrPlayers = nrPlayers;
+        this.maxTurns = maxTurns;
+        this.firstSeed = firstSeed;
+        this.topology = topology;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Plays <code>nrGames</code> games on <code>pool</code> and returns their
+     * statistics.
+     *
+     * @param nrGames
+     * @param pool
+     * @param reportEvery the statistics are printed to <code>out</code> every
+     * <code>reportEvery</code> games.
+     * @param out where the statistics are printed, null to not print them.
+     * @return
+     */
+    public SimulationStats run(int nrGames, ForkJoinPool pool, int reportEvery, PrintStream out) {
+        SimulationStats stats = new SimulationStats(nrPlayers);
+        if (nrGames > 0) {
+            pool.invoke(new GamesTask(stats, reportEvery, out, 0, nrGames));
+        }
+        return stats;
+    }
+
+    /**
+     * Plays the games from <code>from</code> (inclusive) to <code>to</code>
+     * (exclusive), splitting them in halves until a single game is left.
+     */
+    private final class GamesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final SimulationStats stats;
+        private final int reportEvery;
+        private final PrintStream out;
+        private final int from, to;
+
+        GamesTask(SimulationStats stats, int reportEvery, PrintStream out, int from, int to) {
+            this.stats = stats;
+            this.reportEvery = reportEvery;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GamesTask(stats, reportEvery, out, from, middle), new GamesTask(stats, reportEvery, out, middle, to));
+                return;
+            }
+            HeadlessRunner.Result result;
+            try {
+                result = new HeadlessRunner(HeadlessRunner.buildArtificialPlayers(nrPlayers), firstSeed + from, maxTurns, topology).run(timeoutMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            synchronized (stats) {
+                long games = stats.add(result);
+                if (out != null && reportEvery > 0 && games % reportEvery == 0) {
+                    out.println(stats);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays some games in parallel and prints their statistics. Arguments
+     * (all optional): number of games, number of players, maximum turns,
+     * parallelism and seed of the first game.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int nrGames = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int nrPlayers = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int maxTurns = (args.length > 2) ? Integer.parseInt(args[2]) : 400;
+        int parallelism = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 0;
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        SimulationStats stats = new SimulationHarness(nrPlayers, maxTurns, seed).run(nrGames, pool, Math.max(1, nrGames / 20), System.out);
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(stats.toReport());
+        System.out.printf("%d games in %.1f s, %.1f games/s%n", nrGames, seconds, nrGames / seconds);
+    }
+}
@@ -0,0 +1,155 @@
+package simulation;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The statistics of many games: the win rate of each seat (the position in
+ * the initial turn order) and of each mission, the average number of turns and
+ * of attacks per game. The results can be added from any thread and the
+ * statistics can be read while the games are still running.
+ */
+public class SimulationStats {
+
+    private long games, wins, timedOut, turns, attacks;
+    private final long[] seatGames, seatWins;
+    private final Map<String, long[]> missions; // For each mission: games in which it was assigned and wins.
+
+    /**
+     * Creates the statistics of games with up to <code>maxSeats</code>
+     * players.
+     *
+     * @param maxSeats
+     */
+    public SimulationStats(int maxSeats) {
+        this.seatGames = new long[maxSeats];
+        this.seatWins = new long[maxSeats];
+        this.missions = new TreeMap<>();
+    }
+
+    /**
+     * Adds the result of a game.
+     *
+     * @param result
+     * @return the number of games added so far.
+     */
+    public synchronized long add(HeadlessRunner.Result result) {
+        games++;
+        turns += result.getTurns();
+        attacks += result.getCount(RecordingObserver.Event.ATTACK_RESULT);
+        if (result.isTimedOut()) {
+            timedOut++;
+        }
+        int winnerSeat = result.getWinnerSeat();
+        if (winnerSeat >= 0) {
+            wins++;
+        }
+        for (int seat = 0; seat < result.getNrSeats(); seat++) {
+            long[] mission = missions.get(result.getMission(seat));
+            if (mission == null) {
+                mission = new long[2];
+                missions.put(result.getMission(seat), mission);
+            }
+            seatGames[seat]++;
+            mission[0]++;
+            if (seat == winnerSeat) {
+                seatWins[seat]++;
+                mission[1]++;
+            }
+        }
+        return games;
+    }
+
+    public synchronized long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games won by a player, i.e. not stopped by the
+     * turns limit or by the timeout.
+     *
+     * @return
+     */
+    public synchronized long getWins() {
+        return wins;
+    }
+
+    public synchronized long getTimedOut() {
+        return timedOut;
+    }
+
+    public synchronized double getAverageTurns() {
+        return (games == 0) ? 0 : (double) turns / games;
+    }
+
+    public synchronized double getAverageAttacks() {
+        return (games == 0) ? 0 : (double) attacks / games;
+    }
+
+    /**
+     * Returns the fraction of the games played in <code>seat</code> that
+     * were won.
+     *
+     * @param seat
+     * @return
+     */
+    public synchronized double getSeatWinRate(int seat) {
+        return (seatGames[seat] == 0) ? 0 : (double) seatWins[seat] / seatGames[seat];
+    }
+
+    public synchronized long getSeatGames(int seat) {
+        return seatGames[seat];
+    }
+
+    /**
+     * Returns the fraction of the players with the mission
+     * <code>mission</code> that won.
+     *
+     * @param mission the description of the mission.
+     * @return
+     */
+    public synchronized double getMissionWinRate(String mission) {
+        long[] counts = missions.get(mission);
+        return (counts == null || counts[0] == 0) ? 0 : (double) counts[1] / counts[0];
+    }
+
+    /**
+     * Returns the descriptions of the missions assigned so far.
+     *
+     * @return
+     */
+    public synchronized String[] getMissions() {
+        return missions.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Returns a line with the totals and the win rate of each seat.
+     *
+     * @return
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("games=%d won=%d timedOut=%d turns=%.1f attacks=%.1f seats=[", games, wins, timedOut,
+                getAverageTurns(), getAverageAttacks()));
+        for (int seat = 0; seat < seatGames.length && seatGames[seat] > 0; seat++) {
+            sb.append(String.format((seat == 0) ? "%.3f" : " %.3f", getSeatWinRate(seat)));
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * Returns the summary of <code>toString</code> followed by a line with
+     * the win rate of each mission.
+     *
+     * @return
+     */
+    public synchronized String toReport() {
+        StringBuilder sb = new StringBuilder(toString());
+        for (Map.Entry<String, long[]> entry : missions.entrySet()) {
+            sb.append(String.format("%n%.3f (%d/%d) %s", getMissionWinRate(entry.getKey()), entry.getValue()[1],
+                    entry.getValue()[0], entry.getKey().replaceAll("\\s+", " ")));
+        }
+        return sb.toString();
+    }
+}
@@ -1,10 +1,19 @@
 package utils;
 
+import java.util.concurrent.Executor;
 import shared.AttackResultInfo;
 import shared.CountryInfo;
+import shared.PlayerInfo;
 
 public interface BasicGameObserver {
 
+    /**
+     * Updates the observer when the phase changes.
+     * @param player
+     * @param phase
+     */
+    public void updateOnPhaseChange(PlayerInfo player, String phase);
+
     /**
      * Method that updates the observer as soon as the attacker has chosen which
      * country to attack.
@@ -49,4 +58,14 @@ public interface BasicGameObserver {
      * Method called to update the observer when the game ends.
      */
     public void updateOnEndGame();
+
+    /**
+     * Returns the executor on which the observer is notified, or null to be
+     * notified by the thread that sends the notifications (the default).
+     *
+     * @return
+     */
+    public default Executor getNotificationExecutor() {
+        return null;
+    }
 }
@@ -1,31 +1,101 @@
 package utils;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import risiko.players.ArtificialPlayer;
 import shared.AttackResultInfo;
 import shared.CountryInfo;
+import shared.PlayerInfo;
 
 public class BasicObservable {
 
+    private static final int MAILBOX_CAPACITY = 1024;
+
     protected List<BasicGameObserver> obs;
+    private final Map<BasicGameObserver, Mailbox> mailboxes = new ConcurrentHashMap<>(); // The observers with their own executor.
 
     /**
-     * Construct an Observable with zero Observers.
+     * Construct an Observable with zero Observers. The list is copied on
+     * write, so the notifications sent by different threads (e.g. the end of
+     * the game while an artificial player is acting) never see it changing.
      */
     public BasicObservable() {
-        obs = new ArrayList<>();
+        obs = new CopyOnWriteArrayList<>();
     }
 
     /**
-     * Notifies the defender that it's being attacked.
+     * Sends <code>notification</code> to the observers. Every notification
+     * goes through here, so a subclass can hold it back (e.g. until the end of
+     * the operation that sent it) and then deliver it with
+     * <code>deliver</code>.
      *
+     * @param notification
      */
-    public void notifyDefender(CountryInfo defenderCountryInfo, int nrArmiesAttacker) {
+    protected void publish(Consumer<BasicGameObserver> notification) {
+        deliver(notification);
+    }
+
+    /**
+     * Returns true if <code>notification</code> can't be missed by the
+     * observers (see <code>Essential</code>), and so it must be sent on its
+     * own.
+     *
+     * @param notification
+     * @return
+     */
+    protected static boolean isEssential(Consumer<BasicGameObserver> notification) {
+        return notification instanceof Essential;
+    }
+
+    /**
+     * Delivers <code>notification</code> to each observer, in order: it's
+     * queued to the observers with their own executor, and the others are
+     * updated by the calling thread.
+     *
+     * @param notification
+     */
+    protected final void deliver(Consumer<BasicGameObserver> notification) {
         for (BasicGameObserver ob : this.obs) {
-            ob.updateOnDefend(defenderCountryInfo, nrArmiesAttacker);
+            Mailbox mailbox = mailboxes.get(ob);
+            if (mailbox == null) {
+                notification.accept(ob);
+            } else {
+                mailbox.post(notification);
+            }
         }
+    }
+
+    /**
+     * Sends the current state to <code>observer</code>, on its executor, when
+     * it has fallen so far behind that its pending notifications have been
+     * discarded. Nothing is sent by default.
+     *
+     * @param observer
+     */
+    protected void resynchronize(BasicGameObserver observer) {
+    }
+
+    /**
+     * Notifies that the phase has changed.
+     *
+     * @param player
+     * @param phase
+     */
+    public void notifyPhaseChange(PlayerInfo player, String phase) {
+        publish(ob -> ob.updateOnPhaseChange(player, phase));
+    }
+
+    /**
+     * Notifies the defender that it's being attacked.
+     *
+     */
+    public void notifyDefender(CountryInfo defenderCountryInfo, int nrArmiesAttacker) {
+        publish(ob -> ob.updateOnDefend(defenderCountryInfo, nrArmiesAttacker));
 
     }
 
@@ -35,9 +105,7 @@ public class BasicObservable {
      * @param attackResult
      */
     public void notifyAttackResult(AttackResultInfo attackResult) {
-        for (BasicGameObserver ob : this.obs) {
-            ob.updateOnAttackResult(attackResult);
-        }
+        publish(ob -> ob.updateOnAttackResult(attackResult));
     }
 
     /**
@@ -46,9 +114,9 @@ public class BasicObservable {
      * @param winner
      */
     public void notifyVictory(String winner) {
-        this.obs.sort(new Comparator() {
+        this.obs.sort(new Comparator<BasicGameObserver>() {
             @Override
-            public int compare(Object o1, Object o2) {
+            public int compare(BasicGameObserver o1, BasicGameObserver o2) {
                 if (o1 instanceof ArtificialPlayer) {
                     return -1;
                 }
@@ -56,9 +124,7 @@ public class BasicObservable {
             }
 
         });
-        for (BasicGameObserver ob : this.obs) {
-            ob.updateOnVictory(winner);
-        }
+        publish(new Essential(ob -> ob.updateOnVictory(winner)));
     }
 
     /**
@@ -69,9 +135,7 @@ public class BasicObservable {
      * @param reattack
      */
     public void notifySetDefender(CountryInfo[] fightingCountries, boolean reattack) {
-        for (BasicGameObserver ob : this.obs) {
-            ob.updateOnSetDefender(fightingCountries, reattack);
-        }
+        publish(ob -> ob.updateOnSetDefender(fightingCountries, reattack));
     }
     
     /**
@@ -80,18 +144,16 @@ public class BasicObservable {
      * @param artificialAttack 
      */
     public void notifyElimination(String defender, boolean artificialAttack) {
-        for (BasicGameObserver ob : this.obs) {
-            ob.updateOnElimination(defender, artificialAttack);
-        }
+        publish(new Essential(ob -> ob.updateOnElimination(defender, artificialAttack)));
     }
 
     /**
      * Notifies the end of the game.
      */
     public void notifyEndGame() {
-        this.obs.sort(new Comparator() {
+        this.obs.sort(new Comparator<BasicGameObserver>() {
             @Override
-            public int compare(Object o1, Object o2) {
+            public int compare(BasicGameObserver o1, BasicGameObserver o2) {
                 if (o1 instanceof ArtificialPlayer) {
                     return -1;
                 }
@@ -99,9 +161,7 @@ public class BasicObservable {
             }
 
         });
-        for (BasicGameObserver ob : this.obs) {
-            ob.updateOnEndGame();
-        }
+        publish(new Essential(ob -> ob.updateOnEndGame()));
     }
 
     /**
@@ -110,14 +170,36 @@ public class BasicObservable {
      * which notifications will be delivered to multiple observers is not
      * specified. See the class comment.
      *
+     * The notifications are delivered on the executor returned by
+     * <code>o.getNotificationExecutor()</code>.
+     *
      * @param o an observer to be added.
      * @throws NullPointerException if the parameter o is null.
      */
-    public synchronized void addObserver(BasicGameObserver o) {
+    public void addObserver(BasicGameObserver o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        addObserver(o, o.getNotificationExecutor());
+    }
+
+    /**
+     * Adds an observer which notifications are delivered on
+     * <code>executor</code>, so that a slow observer never holds back the
+     * thread that sends them, or by the sending thread if null.
+     *
+     * @param o an observer to be added.
+     * @param executor
+     * @throws NullPointerException if the parameter o is null.
+     */
+    public synchronized void addObserver(BasicGameObserver o, Executor executor) {
         if (o == null) {
             throw new NullPointerException();
         }
         if (!obs.contains(o)) {
+            if (executor != null) {
+                mailboxes.put(o, new Mailbox(o, executor, MAILBOX_CAPACITY, this::resynchronize));
+            }
             obs.add(o);
         }
     }
@@ -130,6 +212,9 @@ public class BasicObservable {
      */
     public synchronized void deleteObserver(BasicGameObserver o) {
         obs.remove(o);
+        if (o != null) {
+            mailboxes.remove(o);
+        }
     }
 
     /**
@@ -137,6 +222,7 @@ public class BasicObservable {
      */
     public synchronized void deleteObservers() {
         obs.clear();
+        mailboxes.clear();
     }
 
     /**
@@ -148,4 +234,23 @@ public class BasicObservable {
         return obs.size();
     }
 
+    /**
+     * A notification that an observer can't miss, because the
+     * resynchronization doesn't replace it (e.g. the victory): a mailbox
+     * keeps it even when it discards the other pending notifications.
+     */
+    static final class Essential implements Consumer<BasicGameObserver> {
+
+        private final Consumer<BasicGameObserver> notification;
+
+        Essential(Consumer<BasicGameObserver> notification) {
+            this.notification = notification;
+        }
+
+        @Override
+        public void accept(BasicGameObserver ob) {
+            notification.accept(ob);
+        }
+    }
+
 }
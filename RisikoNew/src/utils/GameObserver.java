@@ -5,6 +5,7 @@ import java.util.List;
 import risiko.players.Player;
 import shared.CountryInfo;
 import shared.PlayerInfo;
+import shared.StateDelta;
 
 /**
  * A class can implement the <code>GameObserver</code> interface when it wants
@@ -19,13 +20,6 @@ public interface GameObserver extends BasicGameObserver {
      */
     public void updateOnReinforce(int bonusArmies);
 
-    /**
-     * Updates the observer when the phase changes.
-     * @param player
-     * @param phase
-     */
-    public void updateOnPhaseChange(PlayerInfo player, String phase);
-
     /**
      * Updates the observer whenever the active player chooses the attacker for
      * a fight.
@@ -75,4 +69,13 @@ public interface GameObserver extends BasicGameObserver {
      * @param players 
      */
     public void updatePlayersOrder(List<PlayerInfo> players);
+
+    /**
+     * Method called once after each command that has changed some countries
+     * or players, with all their changes. The reinforcement, the phase change
+     * and the choice of the fighting countries folded into the delta are then
+     * delivered by their own methods.
+     * @param delta
+     */
+    public void updateOnStateDelta(StateDelta delta);
 }
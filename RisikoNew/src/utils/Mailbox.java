@@ -0,0 +1,121 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The notifications waiting to be delivered to an observer on its own
+ * executor (e.g. the Event Dispatch Thread for the GUI), so the thread that
+ * sends them never waits for the observer.
+ *
+ * A delta that doesn't carry the other notifications of its command is
+ * merged into the one still waiting in the queue, if any, even when other
+ * notifications have been queued after it: since a delta carries
+ * the new state of what has changed, the observer gets the latest state
+ * sooner, and a single delta per batch of commands. At most
+ * <code>capacity</code> notifications are kept: if the observer falls further
+ * behind, the pending ones are discarded, together with the ones sent until
+ * it catches up, and it's resynchronized with the state of the observable
+ * instead. The essential notifications (the victory, the eliminations and
+ * the end of the game) are never discarded: they're delivered after the
+ * resynchronization.
+ */
+final class Mailbox implements Runnable {
+
+    private static final int BATCH = 64; // The notifications delivered by each task, so the executor runs its other tasks in between.
+
+    private final BasicGameObserver observer;
+    private final Executor executor;
+    private final int capacity;
+    private final Consumer<BasicGameObserver> resynchronization;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private Entry delta; // The delta waiting in the queue, if any.
+    private boolean scheduled; // True while a task is queued to the executor or running.
+    private boolean overflowed;
+
+    Mailbox(BasicGameObserver observer, Executor executor, int capacity, Consumer<BasicGameObserver> resynchronization) {
+        this.observer = observer;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.resynchronization = resynchronization;
+    }
+
+    /**
+     * Queues <code>notification</code> and, if needed, a task to deliver it.
+     *
+     * @param notification
+     */
+    void post(Consumer<BasicGameObserver> notification) {
+        synchronized (this) {
+            boolean essential = notification instanceof BasicObservable.Essential;
+            if (overflowed && !essential) {
+                return;
+            }
+            if (notification instanceof Observable.DeltaNotification && ((Observable.DeltaNotification) notification).isDeltaOnly() && delta != null) {
+                delta.notification = ((Observable.DeltaNotification) delta.notification).merge((Observable.DeltaNotification) notification);
+                return;
+            }
+            if (entries.size() < capacity || essential) {
+                Entry entry = new Entry(notification);
+                entries.add(entry);
+                if (notification instanceof Observable.DeltaNotification) {
+                    delta = entry;
+                }
+            } else {
+                entries.removeIf(entry -> !(entry.notification instanceof BasicObservable.Essential));
+                delta = null;
+                overflowed = true;
+            }
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        executor.execute(this);
+    }
+
+    /**
+     * Delivers the next notifications, then queues another task if some are
+     * left.
+     */
+    @Override
+    public void run() {
+        for (int i = 0; i < BATCH; i++) {
+            Consumer<BasicGameObserver> notification;
+            synchronized (this) {
+                if (overflowed) {
+                    overflowed = false;
+                    notification = resynchronization;
+                } else {
+                    Entry entry = entries.poll();
+                    if (entry == null) {
+                        scheduled = false;
+                        return;
+                    }
+                    if (entry == delta) {
+                        delta = null;
+                    }
+                    notification = entry.notification;
+                }
+            }
+            try {
+                notification.accept(observer);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(Mailbox.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        executor.execute(this);
+    }
+
+    private static final class Entry {
+
+        private Consumer<BasicGameObserver> notification; // Replaced when a delta is merged.
+
+        private Entry(Consumer<BasicGameObserver> notification) {
+            this.notification = notification;
+        }
+    }
+}
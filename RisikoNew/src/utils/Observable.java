@@ -1,8 +1,11 @@
 package utils;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import shared.CountryInfo;
 import shared.PlayerInfo;
+import shared.StateDelta;
 
 public class Observable extends BasicObservable {
 
@@ -19,11 +22,11 @@ public class Observable extends BasicObservable {
      * @param countriesInfo
      */
     public void notifyCountriesAssignment(CountryInfo[] countriesInfo) {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updateOnCountriesAssignment(countriesInfo);
             }
-        }
+        });
     }
 
     /**
@@ -32,12 +35,11 @@ public class Observable extends BasicObservable {
      * @param bonusArmies
      */
     public void notifyReinforce(int bonusArmies) {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updateOnReinforce(bonusArmies);
             }
-        }
-
+        });
     }
 
     /**
@@ -46,11 +48,11 @@ public class Observable extends BasicObservable {
      * @param attackerInfo
      */
     public void notifySetAttacker(CountryInfo attackerInfo) {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updateOnSetAttacker(attackerInfo);
             }
-        }
+        });
     }
 
     /**
@@ -60,40 +62,45 @@ public class Observable extends BasicObservable {
      * @param countryName
      */
     public void notifySetFromCountry(String countryName) {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updateOnSetFromCountry(countryName);
             }
-        }
-
+        });
     }
 
     /**
-     * Notifies that the phase has changed.
+     * Notifies a change in some country's armies.
      *
-     * @param player
-     * @param phase
+     * @param countryInfo
      */
-    public void notifyPhaseChange(PlayerInfo player, String phase) {
-        for (BasicGameObserver ob : this.obs) {
+    public void notifyArmiesChange(CountryInfo countryInfo) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
-                ((GameObserver) ob).updateOnPhaseChange(player, phase);
+                ((GameObserver) ob).updateOnArmiesChange(countryInfo);
             }
-        }
+        });
     }
 
     /**
-     * Notifies a change in some country's armies.
+     * Notifies all the changes of the countries and of the players made by a
+     * command.
      *
-     * @param countryInfo
+     * @param delta
      */
-    public void notifyArmiesChange(CountryInfo countryInfo) {
-        for (BasicGameObserver ob : this.obs) {
-            if (ob instanceof GameObserver) {
-                ((GameObserver) ob).updateOnArmiesChange(countryInfo);
-            }
-        }
+    public void notifyStateDelta(StateDelta delta) {
+        publish(new DeltaNotification(delta, Collections.emptyList()));
+    }
 
+    /**
+     * Notifies all the changes made by a command, followed by its other
+     * <code>notifications</code>, as a single notification.
+     *
+     * @param delta
+     * @param notifications
+     */
+    protected void notifyStateDelta(StateDelta delta, List<Consumer<BasicGameObserver>> notifications) {
+        publish(new DeltaNotification(delta, notifications));
     }
 
     /**
@@ -102,11 +109,11 @@ public class Observable extends BasicObservable {
      * @param cards
      */
     public void notifyPlayCards(List<String> cards) {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updateOnPlayCards(cards);
             }
-        }
+        });
     }
 
     /**
@@ -116,22 +123,22 @@ public class Observable extends BasicObservable {
      * @param isArtificialPlayer
      */
     public void notifyDrawnCard(String cardName, boolean isArtificialPlayer) {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updateOnDrawnCard(cardName, isArtificialPlayer);
             }
-        }
+        });
     }
 
     /**
      * Notifies that the player has played a tris.
      */
     public void notifyPlayedTris() {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updateOnPlayedTris();
             }
-        }
+        });
     }
 
     /**
@@ -139,10 +146,84 @@ public class Observable extends BasicObservable {
      * @param players
      */
     public void notifyPlayersOrder(List<PlayerInfo> players) {
-        for (BasicGameObserver ob : this.obs) {
+        publish(ob -> {
             if (ob instanceof GameObserver) {
                 ((GameObserver) ob).updatePlayersOrder(players);
             }
+        });
+    }
+
+    /**
+     * The notification of a <code>StateDelta</code> and of the other
+     * notifications of the same command, which the observers with their own
+     * executor merge with the deltas that follow it.
+     */
+    static final class DeltaNotification implements Consumer<BasicGameObserver> {
+
+        private final StateDelta delta;
+        private final List<Consumer<BasicGameObserver>> notifications;
+
+        DeltaNotification(StateDelta delta, List<Consumer<BasicGameObserver>> notifications) {
+            this.delta = delta;
+            this.notifications = notifications;
+        }
+
+        /**
+         * Returns true if it carries only a delta.
+         *
+         * @return
+         */
+        boolean isDeltaOnly() {
+            return notifications.isEmpty();
+        }
+
+        /**
+         * Returns the notification of the changes of this one followed by the
+         * ones of <code>next</code>, which must carry only a delta.
+         *
+         * @param next
+         * @return
+         */
+        DeltaNotification merge(DeltaNotification next) {
+            return new DeltaNotification(delta.merge(next.delta), notifications);
+        }
+
+        /**
+         * Delivers the delta, if something has changed, then the
+         * notifications folded into it and the other notifications of the
+         * command.
+         *
+         * @param ob
+         */
+        @Override
+        public void accept(BasicGameObserver ob) {
+            GameObserver gameObserver = (ob instanceof GameObserver) ? (GameObserver) ob : null;
+            if (gameObserver != null && delta.getCountriesCount() + delta.getPlayersCount() > 0) {
+                gameObserver.updateOnStateDelta(delta);
+            }
+            for (int i = 0; i < delta.getNotificationsCount(); i++) {
+                switch (delta.getNotification(i)) {
+                    case REINFORCE:
+                        if (gameObserver != null) {
+                            gameObserver.updateOnReinforce(delta.getReinforcement());
+                        }
+                        break;
+                    case PHASE_CHANGE:
+                        ob.updateOnPhaseChange(delta.getActivePlayer(), delta.getPhase());
+                        break;
+                    case FIGHTING_COUNTRIES:
+                        CountryInfo[] fightingCountries = delta.getFightingCountries();
+                        if (fightingCountries.length == 2) {
+                            ob.updateOnSetDefender(fightingCountries, delta.isReattack());
+                        } else if (gameObserver != null) {
+                            gameObserver.updateOnSetAttacker(fightingCountries[0]);
+                        }
+                        break;
+                }
+            }
+            for (Consumer<BasicGameObserver> notification : notifications) {
+                notification.accept(ob);
+            }
         }
     }
 }
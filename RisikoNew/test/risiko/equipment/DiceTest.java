@@ -0,0 +1,107 @@
+package risiko.equipment;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DiceTest {
+
+    private final int N_ROLLS = 100000;
+
+    public DiceTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of rollAllDice method, of class Dice.
+     */
+    @Test
+    public void testRollAllDice() {
+        System.out.println("rollAllDice");
+        Dice instance = new Dice(new RandomStream(1));
+        for (int i = 0; i < N_ROLLS; i++) {
+            int nrA = i % 3 + 1, nrD = i / 3 % 3 + 1;
+            instance.rollAllDice(nrA, nrD);
+            int[][] dice = instance.getDice();
+            assertEquals(nrA, dice[0].length);
+            assertEquals(nrD, dice[1].length);
+            for (int[] set : dice) {
+                for (int j = 0; j < set.length; j++) {
+                    assertTrue(set[j] >= 1 && set[j] <= 6);
+                    assertTrue(j == 0 || set[j - 1] >= set[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of rollBattle method, of class Dice.
+     */
+    @Test
+    public void testRollBattle() {
+        System.out.println("rollBattle");
+        Dice instance = new Dice(new RandomStream(2));
+        for (int i = 0; i < N_ROLLS; i++) {
+            int nrA = i % 3 + 1, nrD = i / 3 % 3 + 1;
+            int losses = instance.rollBattle(nrA, nrD);
+            int[][] dice = instance.getDice();
+            int lostA = 0;
+            for (int j = 0; j < Math.min(nrA, nrD); j++) {
+                lostA += (dice[0][j] <= dice[1][j]) ? 1 : 0;
+            }
+            assertEquals(lostA, Dice.getAttackerLosses(losses));
+            assertEquals(Math.min(nrA, nrD) - lostA, Dice.getDefenderLosses(losses));
+        }
+    }
+
+    /**
+     * Test of the allocations of rollBattle method, of class Dice: resolving a
+     * battle doesn't allocate any object.
+     */
+    @Test
+    public void testRollBattleAllocations() {
+        System.out.println("rollBattleAllocations");
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long thread = Thread.currentThread().getId();
+        Dice instance = new Dice(new RandomStream(3));
+        long sum = 0;
+        for (int i = 0; i < N_ROLLS; i++) {
+            sum += instance.rollBattle(3, 2);
+        }
+        // The cost of measuring, subtracted from the measure of the rolls.
+        long start = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - start;
+        start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < N_ROLLS; i++) {
+            sum += instance.rollBattle(i % 3 + 1, i / 3 % 3 + 1);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - start - overhead;
+        assertTrue(sum > 0);
+        // One-off allocations of the runtime (e.g. by the compiler) are possible, but no roll allocates.
+        assertEquals(0, allocated / N_ROLLS);
+    }
+}
@@ -0,0 +1,112 @@
+package risiko.equipment;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RandomStreamTest {
+
+    public RandomStreamTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of the seed of class RandomStream.
+     */
+    @Test
+    public void testSeed() {
+        System.out.println("seed");
+        RandomStream stream = new RandomStream(42), sameStream = new RandomStream(42), otherStream = new RandomStream(43);
+        boolean different = false;
+        for (int i = 0; i < 100; i++) {
+            long value = stream.nextLong();
+            assertEquals(value, sameStream.nextLong());
+            different = different || value != otherStream.nextLong();
+        }
+        assertTrue(different);
+    }
+
+    /**
+     * Test of nextInt method, of class RandomStream.
+     */
+    @Test
+    public void testNextInt() {
+        System.out.println("nextInt");
+        RandomStream stream = new RandomStream(1);
+        int[] counts = new int[6];
+        for (int i = 0; i < 60000; i++) {
+            counts[stream.nextInt(6)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 9000 && count < 11000);
+        }
+    }
+
+    /**
+     * Test of split method, of class RandomStream.
+     */
+    @Test
+    public void testSplit() {
+        System.out.println("split");
+        RandomStream stream = new RandomStream(7), sameStream = new RandomStream(7);
+        RandomStream first = stream.split(), second = stream.split();
+        RandomStream sameFirst = sameStream.split();
+        long value = first.nextLong();
+        assertEquals(value, sameFirst.nextLong());
+        assertNotEquals(value, second.nextLong());
+    }
+
+    /**
+     * Test of getState and setState methods, of class RandomStream.
+     */
+    @Test
+    public void testState() {
+        System.out.println("state");
+        RandomStream stream = new RandomStream(3);
+        stream.nextLong();
+        long state = stream.getState();
+        long value = stream.nextLong();
+        RandomStream restored = new RandomStream(0);
+        restored.setState(state);
+        assertEquals(value, restored.nextLong());
+    }
+
+    /**
+     * Test of shuffle method, of class RandomStream.
+     */
+    @Test
+    public void testShuffle() {
+        System.out.println("shuffle");
+        List<Integer> list = new ArrayList<>(), sameList = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            list.add(i);
+            sameList.add(i);
+        }
+        new RandomStream(5).shuffle(list);
+        new RandomStream(5).shuffle(sameList);
+        assertEquals(list, sameList);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(list.contains(i));
+        }
+    }
+}
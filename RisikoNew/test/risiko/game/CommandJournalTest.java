@@ -0,0 +1,177 @@
+package risiko.game;
+
+import exceptions.PendingOperationsException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import risiko.map.MapTopology;
+import risiko.players.ArtificialPlayerSettings;
+import simulation.HeadlessRunner;
+import simulation.RecordingObserver;
+
+public class CommandJournalTest {
+
+    private Path path;
+
+    public CommandJournalTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("game", ".journal");
+        Files.delete(path);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Test of recover method, of class Game: a game played by artificial
+     * players is rebuilt from its journal.
+     */
+    @Test
+    public void testRecover() throws IOException, InterruptedException {
+        System.out.println("recover");
+        ArtificialPlayerSettings noDelay = new ArtificialPlayerSettings(5, 0, 0, 0, 0);
+        RecordingObserver observer = new RecordingObserver(40);
+        Game game;
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            game = new Game(HeadlessRunner.buildArtificialPlayers(3), observer, 7, noDelay, MapTopology.getDefault(), journal);
+            assertTrue(observer.getOverLatch().await(60, TimeUnit.SECONDS));
+            game.endGame();
+            assertTrue(game.awaitArtificialPlayers(60000));
+            assertTrue(journal.getRecordsCount() > 0);
+        }
+
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            assertTrue(journal.hasBeginning());
+            assertEquals(7, journal.getSeed());
+            assertEquals(3, journal.getPlayers().size());
+            RecordingObserver recoveredObserver = new RecordingObserver(0);
+            Game recovered = Game.recover(journal, recoveredObserver, noDelay, MapTopology.getDefault());
+            assertTrue(recovered.getSnapshot().hasSameState(game.getSnapshot()));
+            assertEquals(1, recoveredObserver.getCount(RecordingObserver.Event.COUNTRIES_ASSIGNMENT));
+            recovered.endGame();
+            recovered.awaitArtificialPlayers(60000);
+        }
+    }
+
+    /**
+     * Test of open method, of class CommandJournal: the frame written during
+     * a crash is removed.
+     */
+    @Test
+    public void testOpen() throws IOException {
+        System.out.println("open");
+        Game game;
+        long size, records;
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            game = new Game(TestGames.buildPlayers(), new RecordingObserver(0), 3, null, MapTopology.getDefault(), journal);
+            TestGames.reinforceAttacker(game);
+            journal.sync();
+            assertEquals(journal.getRecordsCount(), journal.getDurableCount());
+            size = journal.getSize();
+            records = journal.getRecordsCount();
+            assertEquals(size, Files.size(path));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            ByteBuffer torn = ByteBuffer.allocate(12);
+            torn.putInt(100).putInt(42).putInt(1).flip();
+            channel.write(torn);
+        }
+
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            assertEquals(size, Files.size(path));
+            assertEquals(records, journal.getRecords().size());
+            Game recovered = Game.recover(journal, new RecordingObserver(0), null, MapTopology.getDefault());
+            assertTrue(recovered.getSnapshot().hasSameState(game.getSnapshot()));
+            recovered.endGame();
+        }
+        game.endGame();
+    }
+
+    /**
+     * Test of recover method, of class Game: an attack declared and not
+     * confirmed before the crash is withdrawn.
+     */
+    @Test
+    public void testRecoverDeclaredAttack() throws IOException {
+        System.out.println("recoverDeclaredAttack");
+        Game game;
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            game = new Game(TestGames.buildPlayers(), new RecordingObserver(0), 5, null, MapTopology.getDefault(), journal);
+            String attacker = TestGames.reinforceAttacker(game);
+            assertEquals("FIGHT", game.getPhase());
+            game.setAttackerCountry(attacker);
+            game.setDefenderCountry(game.getSnapshot().getAllDefenders(attacker)[0]);
+            game.setAttackerArmies(-1);
+            game.declareAttack();
+        }
+        game.endGame();
+
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            Game recovered = Game.recover(journal, new RecordingObserver(0), null, MapTopology.getDefault());
+            assertEquals("FIGHT", recovered.getPhase());
+            try {
+                recovered.nextPhase();
+            } catch (PendingOperationsException ex) {
+                fail("The attack hasn't been withdrawn");
+            }
+            assertEquals("MOVE", recovered.getPhase());
+            recovered.endGame();
+        }
+    }
+
+    /**
+     * Test of recover method, of class Game: a command refused when it was
+     * recorded is refused again when it's replayed.
+     */
+    @Test
+    public void testRecoverRefusedCommand() throws IOException {
+        System.out.println("recoverRefusedCommand");
+        Game game;
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            game = new Game(TestGames.buildPlayers(), new RecordingObserver(0), 5, null, MapTopology.getDefault(), journal);
+            String attacker = TestGames.reinforceAttacker(game);
+            game.setAttackerCountry(attacker);
+            game.setDefenderCountry(game.getSnapshot().getAllDefenders(attacker)[0]);
+            game.setAttackerArmies(-1);
+            game.declareAttack();
+            long records = journal.getRecordsCount();
+            try {
+                game.nextPhase();
+                fail("PendingOperationsException not thrown");
+            } catch (PendingOperationsException ex) {
+            }
+            assertEquals(records + 1, journal.getRecordsCount());
+            game.confirmAttack(1);
+        }
+        game.endGame();
+
+        try (CommandJournal journal = CommandJournal.open(path)) {
+            Game recovered = Game.recover(journal, new RecordingObserver(0), null, MapTopology.getDefault());
+            assertTrue(recovered.getSnapshot().hasSameState(game.getSnapshot()));
+            recovered.endGame();
+        }
+    }
+}
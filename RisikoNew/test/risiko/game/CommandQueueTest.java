@@ -0,0 +1,129 @@
+package risiko.game;
+
+import exceptions.PendingOperationsException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CommandQueueTest {
+
+    private int counter; // Changed only by the commands.
+
+    public CommandQueueTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        counter = 0;
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of execute method, of class CommandQueue: the commands sent by
+     * many threads at the same time run one at a time.
+     */
+    @Test
+    public void testExecute() throws InterruptedException {
+        System.out.println("execute");
+        final AtomicInteger committed = new AtomicInteger();
+        final CommandQueue commands = new CommandQueue(committed::incrementAndGet);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    commands.execute(() -> counter++);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, counter);
+        assertEquals(40000, committed.get());
+        assertEquals(Integer.valueOf(40000), commands.query(() -> counter));
+    }
+
+    /**
+     * Test of post method, of class CommandQueue: the notifications are
+     * delivered after the command, by the thread that has sent it, and a
+     * command sent by a running command runs at once.
+     */
+    @Test
+    public void testPost() {
+        System.out.println("post");
+        final CommandQueue commands = new CommandQueue(() -> {
+        });
+        final List<String> events = new ArrayList<>();
+        assertFalse(commands.post(() -> events.add("outside")));
+        commands.execute(() -> {
+            assertTrue(commands.isWriter());
+            assertTrue(commands.post(() -> events.add("notification " + commands.isWriter())));
+            commands.execute(() -> events.add("nested"));
+            events.add("command");
+        });
+        assertEquals("[nested, command, notification false]", events.toString());
+        assertFalse(commands.isWriter());
+    }
+
+    /**
+     * Test of submit method, of class CommandQueue: the exception of a
+     * command is thrown to the thread that has sent it.
+     */
+    @Test
+    public void testSubmit() {
+        System.out.println("submit");
+        CommandQueue commands = new CommandQueue(() -> {
+        });
+        try {
+            commands.submit(() -> {
+                throw new PendingOperationsException("pending");
+            });
+            fail("PendingOperationsException not thrown");
+        } catch (PendingOperationsException ex) {
+            assertEquals("pending", ex.getMessage());
+        }
+        assertEquals(Integer.valueOf(1), commands.query(() -> 1));
+    }
+
+    /**
+     * Test of submit method, of class CommandQueue: the exception of the
+     * action run after a command is thrown to the thread that has sent the
+     * command, not to the writer.
+     */
+    @Test
+    public void testSubmitAfterCommandFailure() {
+        System.out.println("submitAfterCommandFailure");
+        CommandQueue commands = new CommandQueue(() -> {
+            if (counter == 1) {
+                throw new IllegalStateException("after");
+            }
+        });
+        try {
+            commands.execute(() -> counter++);
+            fail("IllegalStateException not thrown");
+        } catch (IllegalStateException ex) {
+            assertEquals("after", ex.getMessage());
+        }
+        assertFalse(commands.isWriter());
+        commands.execute(() -> counter++);
+        assertEquals(Integer.valueOf(2), commands.query(() -> counter));
+    }
+}
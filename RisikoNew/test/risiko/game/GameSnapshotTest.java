@@ -0,0 +1,170 @@
+package risiko.game;
+
+import exceptions.PendingOperationsException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import shared.CountryInfo;
+import shared.PlayerInfo;
+import simulation.RecordingObserver;
+
+public class GameSnapshotTest {
+
+    private Game game;
+
+    public GameSnapshotTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        game = new Game(TestGames.buildPlayers(), new RecordingObserver(0), 0);
+    }
+
+    @After
+    public void tearDown() {
+        game.endGame();
+    }
+
+    /**
+     * Test of getSnapshot method, of class Game: each command publishes a new
+     * version, while the old snapshots don't change.
+     */
+    @Test
+    public void testGetSnapshot() {
+        System.out.println("getSnapshot");
+        GameSnapshot before = game.getSnapshot();
+        assertEquals("REINFORCE", before.getPhase());
+        String country = before.getMyCountries(before.getActivePlayer()).get(0);
+        int armies = before.getArmies(country);
+        int bonusArmies = before.getActivePlayerBonusArmies();
+
+        game.reinforce(country);
+
+        GameSnapshot after = game.getSnapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(armies + 1, after.getArmies(country));
+        assertEquals(bonusArmies - 1, after.getActivePlayerBonusArmies());
+        assertEquals(armies, before.getArmies(country));
+        assertEquals(bonusArmies, before.getActivePlayerBonusArmies());
+        assertEquals(before.getActivePlayer(), after.getOwner(country));
+        assertTrue(after.isCountryOwner(country));
+    }
+
+    /**
+     * Test of getAllDefenders and controlAttacker methods, of class
+     * GameSnapshot.
+     */
+    @Test
+    public void testFight() {
+        System.out.println("fight");
+        GameSnapshot snapshot = game.getSnapshot();
+        for (String country : snapshot.getMyCountries(snapshot.getActivePlayer())) {
+            for (String defender : snapshot.getAllDefenders(country)) {
+                assertFalse(snapshot.isCountryOwner(defender));
+                assertTrue(snapshot.getNeighbors(country).contains(defender));
+            }
+            assertEquals(snapshot.getArmies(country) > 1, snapshot.controlAttacker(country));
+        }
+        assertNull(snapshot.getAttackerCountryName());
+        assertFalse(snapshot.isReadyToFight());
+    }
+
+    /**
+     * Test of getAllAttackers and countAttackers methods, of class
+     * GameSnapshot: the frontier copied from the map has the countries of the
+     * player that can attack, and keeps them after the map changes.
+     */
+    @Test
+    public void testGetAllAttackers() {
+        System.out.println("getAllAttackers");
+        TestGames.reinforceAttacker(game);
+        GameSnapshot snapshot = game.getSnapshot();
+        String player = snapshot.getActivePlayer();
+        List<String> expected = new ArrayList<>();
+        for (String country : snapshot.getMyCountries(player)) {
+            assertEquals(player, snapshot.getOwner(country));
+            if (snapshot.canAttackFromCountry(country)) {
+                expected.add(country);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, Arrays.asList(snapshot.getAllAttackers(player)));
+        assertEquals(expected.size(), snapshot.countAttackers(player));
+
+        String attacker = expected.get(0);
+        game.blitzAttack(attacker, snapshot.getAllDefenders(attacker)[0], 1, 0);
+        assertEquals(expected, Arrays.asList(snapshot.getAllAttackers(player)));
+    }
+
+    /**
+     * Test of controlMovement method, of class GameSnapshot: a country can
+     * reach its own neighbors, or its whole territory with a connected
+     * movement.
+     */
+    @Test
+    public void testControlMovement() throws PendingOperationsException {
+        System.out.println("controlMovement");
+        String from = TestGames.reinforceAttacker(game);
+        game.nextPhase();
+        game.setFromCountry(from);
+        GameSnapshot snapshot = game.getSnapshot();
+        assertEquals("MOVE", snapshot.getPhase());
+        List<String> neighbors = snapshot.getNeighbors(from);
+        for (String country : snapshot.getNeighbors(from)) {
+            assertEquals(snapshot.isCountryOwner(country), snapshot.controlMovement(country));
+        }
+        assertFalse(snapshot.controlMovement(from));
+
+        game.setConnectedMovement(true);
+        snapshot = game.getSnapshot();
+        assertFalse(snapshot.controlMovement(from));
+        for (String country : snapshot.getMyCountries(snapshot.getActivePlayer())) {
+            if (neighbors.contains(country)) {
+                assertTrue(snapshot.controlMovement(country));
+            }
+        }
+        for (String country : neighbors) {
+            if (!snapshot.isCountryOwner(country)) {
+                assertFalse(snapshot.controlMovement(country));
+            }
+        }
+    }
+
+    /**
+     * Test of getPlayersInfo, getCountriesInfo and getMissionDescription
+     * methods, of class GameSnapshot.
+     */
+    @Test
+    public void testPlayersInfo() {
+        System.out.println("playersInfo");
+        GameSnapshot snapshot = game.getSnapshot();
+        List<PlayerInfo> players = snapshot.getPlayersInfo();
+        assertEquals(2, players.size());
+        for (PlayerInfo player : players) {
+            assertEquals(player.getName().equals("player1") ? "RED" : "BLUE", player.getColor());
+        }
+        assertEquals(snapshot.getActivePlayer(), snapshot.getActivePlayerInfo().getName());
+        assertEquals(snapshot.getActivePlayerMission(), snapshot.getMissionDescription(snapshot.getActivePlayer()));
+        assertNull(snapshot.getMissionDescription("nobody"));
+        for (CountryInfo country : snapshot.getCountriesInfo()) {
+            assertEquals(snapshot.getArmies(country.getName()), country.getArmies());
+            assertEquals(snapshot.getOwner(country.getName()), country.getPlayer().getName());
+        }
+        assertNull(snapshot.getDefenderInfo());
+        assertTrue(snapshot.getPlayableTris().isEmpty());
+    }
+}
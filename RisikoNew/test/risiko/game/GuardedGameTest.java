@@ -0,0 +1,83 @@
+package risiko.game;
+
+import java.lang.reflect.Method;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import risiko.players.ArtificialPlayer;
+import simulation.RecordingObserver;
+
+public class GuardedGameTest {
+
+    private Game game;
+
+    public GuardedGameTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        game = new Game(TestGames.buildPlayers(), new RecordingObserver(0), 0);
+    }
+
+    @After
+    public void tearDown() {
+        game.endGame();
+    }
+
+    /**
+     * Test of the access control of class GuardedGame: the methods filtered
+     * by GameInvocationHandler aren't forwarded to the game if the caller
+     * isn't the active player.
+     */
+    @Test
+    public void testFilter() throws Exception {
+        System.out.println("filter");
+        GuardedGame guarded = new GuardedGame(game);
+        ArtificialPlayer[] notActive = {new ArtificialPlayer("ai", "GREEN", null)};
+        String phase = game.getPhase();
+        int filtered = 0;
+        for (Method method : GameProxy.class.getMethods()) {
+            if (!GameInvocationHandler.doFilter(method)) {
+                continue;
+            }
+            Class<?>[] types = method.getParameterTypes();
+            Object[] args = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == int.class) {
+                    args[i] = 1;
+                } else if (types[i] == boolean.class) {
+                    args[i] = true;
+                }
+            }
+            args[args.length - 1] = notActive;
+            Object result = method.invoke(guarded, args);
+            assertTrue(method.getName(), result == null || Boolean.FALSE.equals(result));
+            filtered++;
+        }
+        assertTrue(filtered > 0);
+        assertEquals(phase, game.getPhase());
+        assertNull(game.getAttackerCountryName());
+    }
+
+    /**
+     * Test of checkMyIdentity method, of class GuardedGame.
+     */
+    @Test
+    public void testCheckMyIdentity() {
+        System.out.println("checkMyIdentity");
+        GuardedGame guarded = new GuardedGame(game);
+        assertTrue(guarded.checkMyIdentity());
+        assertFalse(guarded.checkMyIdentity(new ArtificialPlayer("ai", "GREEN", null)));
+    }
+}
@@ -0,0 +1,184 @@
+package risiko.game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import risiko.map.MapTopology;
+import risiko.players.ArtificialPlayerSettings;
+import simulation.HeadlessRunner;
+import simulation.RecordingObserver;
+
+public class SavedGameTest {
+
+    private Game game;
+
+    public SavedGameTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        game = new Game(TestGames.buildPlayers(), new RecordingObserver(0), 11);
+    }
+
+    @After
+    public void tearDown() {
+        game.endGame();
+    }
+
+    private static Game saveAndLoad(Game game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        game.save(Channels.newChannel(bytes));
+        return Game.load(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), new RecordingObserver(0), null, MapTopology.getDefault());
+    }
+
+    /**
+     * Test of save and load methods, of class Game: the loaded game has the
+     * same state, and goes on in the same way with the same commands.
+     */
+    @Test
+    public void testSaveLoad() throws IOException {
+        System.out.println("saveLoad");
+        String attacker = game.getSnapshot().getMyCountries(game.getSnapshot().getActivePlayer()).get(0);
+        while (game.canReinforce()) {
+            game.reinforce(attacker);
+        }
+        assertEquals("FIGHT", game.getPhase());
+        game.setAttackerCountry(TestGames.findAttacker(game.getSnapshot()));
+
+        Game loaded = saveAndLoad(game);
+        assertTrue(loaded.getSnapshot().hasSameState(game.getSnapshot()));
+        assertEquals(game.getAttackerCountryName(), loaded.getAttackerCountryName());
+        for (String player : new String[]{"player1", "player2"}) {
+            assertEquals(game.getMissionDescription(player), loaded.getMissionDescription(player));
+        }
+
+        for (Game g : new Game[]{game, loaded}) {
+            String from = TestGames.findAttacker(g.getSnapshot());
+            g.blitzAttack(from, g.getSnapshot().getAllDefenders(from)[0], 1, 0);
+            g.setFromCountry(from);
+        }
+        assertTrue(loaded.getSnapshot().hasSameState(game.getSnapshot()));
+        assertEquals(game.getFromCountryName(), loaded.getFromCountryName());
+        loaded.endGame();
+    }
+
+    /**
+     * Test of load method, of class Game: a game between artificial players
+     * goes on after being loaded.
+     */
+    @Test
+    public void testLoadArtificialGame() throws IOException, InterruptedException {
+        System.out.println("loadArtificialGame");
+        ArtificialPlayerSettings noDelay = new ArtificialPlayerSettings(5, 0, 0, 0, 0);
+        RecordingObserver observer = new RecordingObserver(10);
+        Game played = new Game(HeadlessRunner.buildArtificialPlayers(3), observer, 2, noDelay, MapTopology.getDefault());
+        assertTrue(observer.getOverLatch().await(60, TimeUnit.SECONDS));
+        Path path = Files.createTempFile("game", ".save");
+        try {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                played.save(channel);
+            }
+            played.endGame();
+            assertTrue(played.awaitArtificialPlayers(60000));
+
+            RecordingObserver loadedObserver = new RecordingObserver(10);
+            Game loaded;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                loaded = Game.load(channel, loadedObserver, noDelay, MapTopology.getDefault());
+            }
+            assertTrue(loadedObserver.getOverLatch().await(60, TimeUnit.SECONDS));
+            loaded.endGame();
+            assertTrue(loaded.awaitArtificialPlayers(60000));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Test of load method, of class Game: the artificial players of a game
+     * saved after its end aren't started.
+     */
+    @Test
+    public void testLoadEndedGame() throws IOException, InterruptedException {
+        System.out.println("loadEndedGame");
+        ArtificialPlayerSettings noDelay = new ArtificialPlayerSettings(5, 0, 0, 0, 0);
+        RecordingObserver observer = new RecordingObserver(10);
+        Game played = new Game(HeadlessRunner.buildArtificialPlayers(3), observer, 2, noDelay, MapTopology.getDefault());
+        assertTrue(observer.getOverLatch().await(60, TimeUnit.SECONDS));
+        played.endGame();
+        assertTrue(played.awaitArtificialPlayers(60000));
+        assertTrue(played.isOver());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        played.save(Channels.newChannel(bytes));
+        Game loaded = Game.load(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), new RecordingObserver(0), noDelay, MapTopology.getDefault());
+        assertTrue(loaded.isOver());
+        assertTrue(loaded.awaitArtificialPlayers(60000));
+        assertTrue(loaded.getSnapshot().hasSameState(played.getSnapshot()));
+    }
+
+    /**
+     * Test of read method, of class SavedGame: data that isn't a saved game is
+     * refused.
+     */
+    @Test
+    public void testRead() {
+        System.out.println("read");
+        try {
+            SavedGame.read(Channels.newChannel(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10})));
+            fail("The data has been read as a saved game");
+        } catch (IOException ex) {
+        }
+    }
+
+    /**
+     * Test of read method, of class SavedGame: a header announcing more data
+     * than there is is refused, without allocating it.
+     */
+    @Test
+    public void testReadTruncated() throws IOException {
+        System.out.println("readTruncated");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        game.save(Channels.newChannel(bytes));
+        byte[] data = bytes.toByteArray();
+        for (int i = 6; i < 10; i++) {
+            data[i] = (i == 6) ? 0x7f : (byte) 0xff; // The length, Integer.MAX_VALUE.
+        }
+        try {
+            SavedGame.read(Channels.newChannel(new ByteArrayInputStream(data)));
+            fail("A truncated saved game has been read");
+        } catch (IOException ex) {
+        }
+        Path path = Files.createTempFile("game", ".save");
+        try {
+            Files.write(path, data);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                SavedGame.read(channel);
+                fail("A truncated saved game has been read");
+            } catch (IOException ex) {
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
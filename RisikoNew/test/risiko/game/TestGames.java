@@ -0,0 +1,63 @@
+package risiko.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import shared.PlayerInfo;
+
+/**
+ * The games and the moves shared by the tests of a game.
+ */
+public final class TestGames {
+
+    private TestGames() {
+    }
+
+    /**
+     * Returns two human players, "player1" (red) and "player2" (blue).
+     *
+     * @return
+     */
+    public static List<PlayerInfo> buildPlayers() {
+        List<PlayerInfo> players = new ArrayList<>();
+        players.add(new PlayerInfo("player1", "RED", "NORMAL"));
+        players.add(new PlayerInfo("player2", "BLUE", "NORMAL"));
+        return players;
+    }
+
+    /**
+     * Returns a country of the active player from which it can attack, or
+     * null.
+     *
+     * @param snapshot
+     * @return
+     */
+    public static String findAttacker(GameSnapshot snapshot) {
+        for (String country : snapshot.getMyCountries(snapshot.getActivePlayer())) {
+            if (snapshot.controlAttacker(country) && snapshot.getAllDefenders(country).length > 0) {
+                return country;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Places all the bonus armies of the active player on a country that has
+     * some neighbors to attack, which is returned.
+     *
+     * @param game
+     * @return
+     */
+    public static String reinforceAttacker(Game game) {
+        GameSnapshot snapshot = game.getSnapshot();
+        String attacker = null;
+        for (String country : snapshot.getMyCountries(snapshot.getActivePlayer())) {
+            if (attacker == null && snapshot.getAllDefenders(country).length > 0) {
+                attacker = country;
+            }
+        }
+        while (game.canReinforce()) {
+            game.reinforce(attacker);
+        }
+        return attacker;
+    }
+}
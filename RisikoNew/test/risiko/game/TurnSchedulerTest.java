@@ -0,0 +1,84 @@
+package risiko.game;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TurnSchedulerTest {
+
+    public TurnSchedulerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of schedule method, of class TurnScheduler.
+     */
+    @Test
+    public void testSchedule() throws InterruptedException {
+        System.out.println("schedule");
+        final CountDownLatch done = new CountDownLatch(3);
+        TurnScheduler scheduler = new TurnScheduler();
+        for (int i = 0; i < 3; i++) {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            }, 10 * i);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test of shutdown method, of class TurnScheduler: the tasks not started
+     * yet are cancelled, the new ones refused and the other schedulers aren't
+     * touched.
+     */
+    @Test
+    public void testShutdown() throws InterruptedException {
+        System.out.println("shutdown");
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1), otherExecutor = new ScheduledThreadPoolExecutor(1);
+        TurnScheduler scheduler = new TurnScheduler(executor), otherScheduler = new TurnScheduler(otherExecutor);
+        scheduler.schedule(task, 200);
+        otherScheduler.schedule(task, 200);
+        scheduler.shutdown();
+        scheduler.schedule(task, 0);
+        assertTrue(scheduler.isShutdown());
+        assertTrue(scheduler.awaitTermination(1000));
+        // The executors run the delayed tasks that haven't been cancelled before terminating.
+        executor.shutdown();
+        otherExecutor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(otherExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+}
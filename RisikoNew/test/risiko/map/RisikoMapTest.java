@@ -1,5 +1,8 @@
 package risiko.map;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.After;
@@ -8,8 +11,11 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import risiko.equipment.RandomStream;
 import risiko.missions.ContinentsMission;
 import risiko.players.Player;
+import services.FileManager;
+import services.MapPack;
 
 public class RisikoMapTest {
 
@@ -136,7 +142,7 @@ public class RisikoMapTest {
     @Test
     public void testGetMyCountries() {
         System.out.println("getMyCountries");
-        List<Player> newPlayers = (List<Player>) ((ArrayList) players).clone();
+        List<Player> newPlayers = new ArrayList<>(players);
         for (int i = 0; i < 4; i++) {
             newPlayers.add(new Player("", ""));
             instance.initGame(newPlayers);
@@ -234,6 +240,177 @@ public class RisikoMapTest {
 
     }
 
+    /**
+     * Test of getCountryById and getCountryId methods, of class RisikoMap.
+     */
+    @Test
+    public void testGetCountryById() {
+        System.out.println("getCountryById");
+        List<Country> countries = instance.getCountriesList();
+        assertEquals(N_COUNTRIES, instance.getCountriesCount());
+        for (int id = 0; id < countries.size(); id++) {
+            Country country = instance.getCountryById(id);
+            assertEquals(id, country.getId());
+            assertEquals(id, instance.getCountryId(country.getName()));
+            assertEquals(country, instance.getCountryByName(country.getName()));
+        }
+        assertEquals(-1, instance.getCountryId("Atlantide"));
+        assertNull(instance.getCountryByName("Atlantide"));
+    }
+
+    /**
+     * Test of getOwnedCountries and countCountries methods, of class
+     * RisikoMap.
+     */
+    @Test
+    public void testOwnershipIndex() {
+        System.out.println("ownershipIndex");
+        Player player = players.get(0);
+        Player otherPlayer = players.get(1);
+        int nrCountries = instance.countCountries(player);
+        assertEquals(N_COUNTRIES, nrCountries + instance.countCountries(otherPlayer));
+        for (Country country : instance.getCountriesList()) {
+            assertEquals(country.getOwner() == player, instance.getOwnedCountries(player).contains(country.getId()));
+        }
+
+        Country country = instance.getMyCountries(otherPlayer).get(0);
+        instance.getMyCountries(player).get(0).conquer(country);
+        assertEquals(nrCountries + 1, instance.countCountries(player));
+        assertTrue(instance.getOwnedCountries(player).contains(country.getId()));
+        assertFalse(instance.getOwnedCountries(otherPlayer).contains(country.getId()));
+    }
+
+    /**
+     * Test of getContinentsBonus method, of class RisikoMap.
+     */
+    @Test
+    public void testGetContinentsBonus() {
+        System.out.println("getContinentsBonus");
+        Player player = players.get(0);
+        Player otherPlayer = players.get(1);
+        Country attackerCountry = instance.getMyCountries(player).get(0);
+        Continent continent = instance.getContinentByCountry(attackerCountry);
+        int bonus = instance.getContinentsBonus(player);
+        boolean alreadyOwned = continent.isOwnedBy(player);
+        for (Country country : continent.getCountries()) {
+            attackerCountry.conquer(country);
+        }
+        assertTrue(continent.isOwnedBy(player));
+        assertEquals(continent.getCountries().size(), continent.countCountriesOwnedBy(player));
+        assertEquals(0, continent.countCountriesOwnedBy(otherPlayer));
+        int expected = alreadyOwned ? bonus : bonus + continent.getBonus();
+        assertEquals(expected, instance.getContinentsBonus(player));
+
+        instance.getMyCountries(otherPlayer).get(0).conquer(attackerCountry);
+        assertFalse(continent.isOwnedBy(player));
+        assertEquals(expected - continent.getBonus(), instance.getContinentsBonus(player));
+    }
+
+    /**
+     * Test of toCompactState and restoreFromCompactState methods, of class
+     * RisikoMap.
+     */
+    @Test
+    public void testCompactState() {
+        System.out.println("compactState");
+        Player player = players.get(0);
+        CompactMapState state = instance.toCompactState(players);
+        assertEquals(N_COUNTRIES, state.getCountriesCount());
+        assertEquals(instance.countCountries(player), state.countCountries(0));
+        for (Country country : instance.getCountriesList()) {
+            assertEquals(country.getArmies(), state.getArmies(country.getId()));
+            assertEquals(players.indexOf(country.getOwner()), state.getOwner(country.getId()));
+            assertEquals(country.getNeighbors().size(), state.getNeighborsCount(country.getId()));
+            assertEquals(country.canAttack(), state.canAttack(country.getId()));
+        }
+
+        CompactMapState copy = state.copy();
+        Country alaska = instance.getCountryByName("Alaska");
+        state.setOwner(alaska.getId(), 1 - state.getOwner(alaska.getId()));
+        state.setArmies(alaska.getId(), 10);
+        instance.restoreFromCompactState(state, players);
+        assertEquals(10, alaska.getArmies());
+        assertEquals(players.get(state.getOwner(alaska.getId())), alaska.getOwner());
+        assertEquals(state.countCountries(0), instance.countCountries(player));
+
+        state.restore(copy);
+        assertEquals(copy.getArmies(alaska.getId()), state.getArmies(alaska.getId()));
+        assertEquals(copy.countCountries(0), state.countCountries(0));
+    }
+
+    /**
+     * Test of the adjacency checks of the countries of the map.
+     */
+    @Test
+    public void testAdjacency() {
+        System.out.println("adjacency");
+        for (Country country : instance.getCountriesList()) {
+            assertEquals(country.getNeighbors().size(), instance.getTopology().getNeighborsCount(country.getId()));
+            boolean enemy = false, friend = false;
+            for (Country neighbor : country.getNeighbors()) {
+                assertTrue(country.isNeighbor(neighbor));
+                enemy = enemy || neighbor.getOwner() != country.getOwner();
+                friend = friend || neighbor.getOwner() == country.getOwner();
+            }
+            assertFalse(country.isNeighbor(country));
+            assertEquals(enemy, country.hasEnemyNeighbor());
+            assertEquals(friend, country.hasFriendlyNeighbor());
+        }
+    }
+
+    /**
+     * Test of getFrontier method, of class RisikoMap.
+     */
+    @Test
+    public void testGetFrontier() {
+        System.out.println("getFrontier");
+        Player player = players.get(0);
+        Player otherPlayer = players.get(1);
+        Country attackerCountry = instance.getMyCountries(player).get(0);
+        attackerCountry.setArmies(5);
+        for (Country neighbor : attackerCountry.getNeighbors()) {
+            attackerCountry.conquer(neighbor);
+            neighbor.setArmies(1);
+        }
+        assertFalse(attackerCountry.canAttack());
+        assertFalse(instance.getFrontier(player).contains(attackerCountry.getId()));
+
+        Country neighbor = attackerCountry.getNeighbors().get(0);
+        instance.getMyCountries(otherPlayer).get(0).conquer(neighbor);
+        assertTrue(instance.getFrontier(player).contains(attackerCountry.getId()));
+        attackerCountry.setArmies(1);
+        assertFalse(instance.getFrontier(player).contains(attackerCountry.getId()));
+
+        for (Player p : players) {
+            for (Country country : instance.getMyCountries(p)) {
+                assertEquals(country.canAttack(), instance.getFrontier(p).contains(country.getId()));
+            }
+        }
+    }
+
+    /**
+     * Test of areConnected method, of class RisikoMap.
+     */
+    @Test
+    public void testAreConnected() {
+        System.out.println("areConnected");
+        Player player = players.get(0);
+        Player otherPlayer = players.get(1);
+        Country alaska = instance.getCountryByName("Alaska");
+        Country alberta = instance.getCountryByName("Alberta");
+        Country ontario = instance.getCountryByName("Ontario");
+        alaska.setOwner(player);
+        alberta.setOwner(player);
+        ontario.setOwner(player);
+        instance.getCountryByName("Territori del Nord Ovest").setOwner(otherPlayer);
+        instance.getCountryByName("Kamchatka").setOwner(otherPlayer);
+        assertTrue(instance.areConnected(alaska, ontario));
+
+        alberta.setOwner(otherPlayer);
+        assertFalse(instance.areConnected(alaska, ontario));
+        assertFalse(instance.areConnected(alaska, alberta));
+    }
+
     /**
      * Test of changeOwner method, of class RisikoMap.
      */
@@ -253,4 +430,76 @@ public class RisikoMapTest {
             assertEquals(country.getOwner(), newOwner);
         }
     }
+
+    /**
+     * Test of the constructor of class RisikoMap that reads a MapPack.
+     */
+    @Test
+    public void testMapPack() throws IOException {
+        System.out.println("mapPack");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapPack.compile(FileManager.getInstance()).write(out);
+        MapPack pack = MapPack.read(new ByteArrayInputStream(out.toByteArray()));
+        RisikoMap map = new RisikoMap(new MapTopology(pack));
+        assertEquals(N_COUNTRIES, map.getCountriesCount());
+        for (Country country : instance.getCountriesList()) {
+            Country other = map.getCountryByName(country.getName());
+            assertEquals(country.getId(), other.getId());
+            assertEquals(country.getNeighbors().size(), other.getNeighbors().size());
+            for (Country neighbor : country.getNeighbors()) {
+                assertTrue(other.isNeighbor(map.getCountryByName(neighbor.getName())));
+            }
+            assertEquals(country.getContinent().getName(), other.getContinent().getName());
+            assertTrue(pack.getLabelX(other.getId()) != MapPack.NONE);
+            assertTrue(pack.getColor(other.getId()) != MapPack.NONE);
+        }
+        map.initGame(players);
+        for (Player player : players) {
+            assertNotNull(player.getMission());
+        }
+    }
+
+    /**
+     * Test of getTopology method, of class RisikoMap.
+     */
+    @Test
+    public void testGetTopology() {
+        System.out.println("getTopology");
+        RisikoMap other = new RisikoMap();
+        assertSame(instance.getTopology(), other.getTopology());
+        assertNotSame(instance.getCountryByName("Alaska"), other.getCountryByName("Alaska"));
+
+        Player player = players.get(0);
+        Country alaska = other.getCountryByName("Alaska");
+        alaska.setOwner(player);
+        alaska.setArmies(7);
+        Country kamchatka = other.getCountryByName("Kamchatka");
+        kamchatka.setOwner(players.get(1));
+        assertTrue(alaska.isNeighbor(kamchatka));
+        assertTrue(other.getFrontier(player).contains(alaska.getId()));
+        assertEquals(3, instance.getCountryByName("Alaska").getArmies());
+    }
+
+    /**
+     * Test of the seeded constructor of class RisikoMap: the same seed assigns
+     * the same countries and missions.
+     */
+    @Test
+    public void testSeededInitGame() {
+        System.out.println("seededInitGame");
+        RisikoMap map = new RisikoMap(MapTopology.getDefault(), new RandomStream(11));
+        RisikoMap sameMap = new RisikoMap(MapTopology.getDefault(), new RandomStream(11));
+        List<Player> samePlayers = new ArrayList<>();
+        samePlayers.add(new Player("player1", "RED"));
+        samePlayers.add(new Player("player2", "GREEN"));
+        map.initGame(players);
+        sameMap.initGame(samePlayers);
+        for (int id = 0; id < N_COUNTRIES; id++) {
+            int owner = players.indexOf(map.getCountryById(id).getOwner());
+            assertEquals(owner, samePlayers.indexOf(sameMap.getCountryById(id).getOwner()));
+        }
+        for (int i = 0; i < players.size(); i++) {
+            assertEquals(players.get(i).getMissionDescription(), samePlayers.get(i).getMissionDescription());
+        }
+    }
 }
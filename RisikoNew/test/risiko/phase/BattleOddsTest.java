@@ -0,0 +1,89 @@
+package risiko.phase;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BattleOddsTest {
+
+    private final double DELTA = 1e-9;
+
+    public BattleOddsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of getRoundProbability method, of class BattleOdds.
+     */
+    @Test
+    public void testGetRoundProbability() {
+        System.out.println("getRoundProbability");
+        assertEquals(21.0 / 36, BattleOdds.getRoundProbability(1, 1, 1), DELTA);
+        assertEquals(2890.0 / 7776, BattleOdds.getRoundProbability(3, 2, 0), DELTA);
+        assertEquals(2611.0 / 7776, BattleOdds.getRoundProbability(3, 2, 1), DELTA);
+        assertEquals(2275.0 / 7776, BattleOdds.getRoundProbability(3, 2, 2), DELTA);
+        assertEquals(0, BattleOdds.getRoundProbability(3, 1, 2), DELTA);
+    }
+
+    /**
+     * Test of getWinProbability method, of class BattleOdds.
+     */
+    @Test
+    public void testGetWinProbability() {
+        System.out.println("getWinProbability");
+        assertEquals(15.0 / 36, BattleOdds.getWinProbability(2, 1), DELTA);
+        assertEquals(0, BattleOdds.getWinProbability(1, 1), DELTA);
+        assertEquals(1, BattleOdds.getWinProbability(5, 0), DELTA);
+        // The odds grow with the attacker's armies and decrease with the defender's ones.
+        for (int a = 2; a < 40; a++) {
+            assertTrue(BattleOdds.getWinProbability(a + 1, 10) > BattleOdds.getWinProbability(a, 10));
+            assertTrue(BattleOdds.getWinProbability(10, a + 1) < BattleOdds.getWinProbability(10, a));
+        }
+        double small = BattleOdds.getWinProbability(12, 8);
+        // Growing the table doesn't change the odds already computed.
+        assertTrue(BattleOdds.getWinProbability(301, 250) > BattleOdds.getWinProbability(300, 250));
+        assertEquals(small, BattleOdds.getWinProbability(12, 8), DELTA);
+        // Nor does growing a single side.
+        assertEquals(1, BattleOdds.getWinProbability(1001, 3), DELTA);
+        assertEquals(0, BattleOdds.getWinProbability(3, 1001), DELTA);
+        assertEquals(small, BattleOdds.getWinProbability(12, 8), DELTA);
+        assertEquals(15.0 / 36, BattleOdds.getWinProbability(2, 1), DELTA);
+    }
+
+    /**
+     * Test of getExpectedAttackerLosses and getExpectedDefenderLosses methods,
+     * of class BattleOdds.
+     */
+    @Test
+    public void testGetExpectedLosses() {
+        System.out.println("getExpectedLosses");
+        assertEquals(21.0 / 36, BattleOdds.getExpectedAttackerLosses(2, 1), DELTA);
+        assertEquals(15.0 / 36, BattleOdds.getExpectedDefenderLosses(2, 1), DELTA);
+        for (int a = 2; a < 20; a++) {
+            for (int d = 1; d < 20; d++) {
+                // The defender loses all its armies exactly when the attacker wins.
+                double win = BattleOdds.getWinProbability(a, d);
+                assertTrue(BattleOdds.getExpectedDefenderLosses(a, d) >= win * d - DELTA);
+                assertTrue(BattleOdds.getExpectedAttackerLosses(a, d) <= a - 1 + DELTA);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package risiko.phase;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BattleRolloutTest {
+
+    private final int SAMPLES = 200000;
+    private final double DELTA = 0.01;
+
+    public BattleRolloutTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of rollout method, of class BattleRollout.
+     */
+    @Test
+    public void testRollout() {
+        System.out.println("rollout");
+        int[] attackers = {2, 5, 12, 30, 1, 4};
+        int[] defenders = {1, 3, 8, 30, 5, 0};
+        double[] win = new double[6], lostA = new double[6], lostD = new double[6];
+        new BattleRollout(42).rollout(attackers, defenders, SAMPLES, win, lostA, lostD);
+        for (int i = 0; i < attackers.length; i++) {
+            assertEquals(BattleOdds.getWinProbability(attackers[i], defenders[i]), win[i], DELTA);
+            assertEquals(BattleOdds.getExpectedAttackerLosses(attackers[i], defenders[i]), lostA[i], DELTA * attackers[i]);
+            assertEquals(BattleOdds.getExpectedDefenderLosses(attackers[i], defenders[i]), lostD[i], DELTA * defenders[i]);
+        }
+        assertEquals(0, win[4], 0);
+        assertEquals(1, win[5], 0);
+    }
+
+    /**
+     * Test of the seed of class BattleRollout.
+     */
+    @Test
+    public void testSeed() {
+        System.out.println("seed");
+        int[] attackers = {10, 7}, defenders = {9, 3};
+        double[] win = new double[2], sameWin = new double[2];
+        new BattleRollout(5).rollout(attackers, defenders, 10000, win, null, null);
+        new BattleRollout(5).rollout(attackers, defenders, 10000, sameWin, null, null);
+        assertArrayEquals(win, sameWin, 0);
+    }
+}
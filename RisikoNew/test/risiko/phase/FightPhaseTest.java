@@ -0,0 +1,135 @@
+package risiko.phase;
+
+import exceptions.PlayerLossException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import risiko.map.Country;
+import risiko.map.RisikoMap;
+import risiko.players.Player;
+
+public class FightPhaseTest {
+
+    private List<Player> players;
+    private RisikoMap map;
+    private FightPhase instance;
+
+    public FightPhaseTest() {
+        players = new ArrayList<>();
+        players.add(new Player("player1", "RED"));
+        players.add(new Player("player2", "GREEN"));
+        map = new RisikoMap();
+        map.initGame(players);
+        instance = new FightPhase(map);
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Returns a country with an enemy neighbor.
+     */
+    private Country getAttacker() {
+        for (Country country : map.getCountriesList()) {
+            if (country.hasEnemyNeighbor()) {
+                return country;
+            }
+        }
+        return null;
+    }
+
+    private Country getDefender(Country attacker) {
+        for (Country neighbor : attacker.getNeighbors()) {
+            if (neighbor.getOwner() != attacker.getOwner()) {
+                return neighbor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test of blitz method, of class FightPhase.
+     */
+    @Test
+    public void testBlitz() {
+        System.out.println("blitz");
+        for (int i = 0; i < 50; i++) {
+            Country attacker = getAttacker();
+            Country defender = getDefender(attacker);
+            Player defenderOwner = defender.getOwner();
+            attacker.setArmies(20);
+            defender.setArmies(15);
+            instance.setAttackerCountry(attacker.getName());
+            instance.setDefenderCountry(defender.getName());
+            boolean conquered = false;
+            try {
+                instance.blitz(4, 0);
+            } catch (PlayerLossException ex) {
+                conquered = true;
+                assertEquals(defenderOwner.toString(), ex.getLoserPlayer());
+            }
+            int rounds = instance.getBlitzRounds();
+            int[] log = instance.getBlitzLog();
+            assertEquals(rounds * FightPhase.DICE_PER_ROUND, log.length);
+            // Each round removes as many armies as the pairs of dice compared.
+            int lostArmies = 0;
+            for (int round = 0; round < rounds; round++) {
+                int nrA = 0, nrD = 0;
+                for (int k = 0; k < FightPhase.DICE_PER_ROUND / 2; k++) {
+                    nrA += (log[round * FightPhase.DICE_PER_ROUND + k] != 0) ? 1 : 0;
+                    nrD += (log[round * FightPhase.DICE_PER_ROUND + FightPhase.DICE_PER_ROUND / 2 + k] != 0) ? 1 : 0;
+                }
+                assertTrue(nrA > 0 && nrD > 0);
+                lostArmies += Math.min(nrA, nrD);
+            }
+            if (conquered) {
+                assertEquals(0, defender.getArmies());
+                assertEquals(attacker.getOwner(), defender.getOwner());
+                assertTrue(attacker.getArmies() > 4);
+            } else {
+                assertTrue(attacker.getArmies() <= 4);
+                assertEquals(defenderOwner, defender.getOwner());
+            }
+            assertEquals(35 - lostArmies, attacker.getArmies() + defender.getArmies());
+            if (conquered) {
+                // Gives the country back, so that the next battle starts from the same map.
+                defender.setOwner(defenderOwner);
+            }
+        }
+    }
+
+    /**
+     * Test of the rounds limit of the blitz method, of class FightPhase.
+     */
+    @Test
+    public void testBlitzMaxRounds() throws PlayerLossException {
+        System.out.println("blitzMaxRounds");
+        Country attacker = getAttacker();
+        Country defender = getDefender(attacker);
+        attacker.setArmies(100);
+        defender.setArmies(100);
+        instance.setAttackerCountry(attacker.getName());
+        instance.setDefenderCountry(defender.getName());
+        instance.blitz(1, 3);
+        assertEquals(3, instance.getBlitzRounds());
+        assertEquals(191, attacker.getArmies() + defender.getArmies());
+    }
+}
@@ -0,0 +1,69 @@
+package risiko.players;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import risiko.game.Game;
+import shared.PlayerInfo;
+import simulation.HeadlessRunner;
+import simulation.RecordingObserver;
+
+public class ArtificialPlayerTest {
+
+    private final long HUMAN_FIRST_SEED = 5; // The human player starts the game.
+
+    public ArtificialPlayerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of run method, of class ArtificialPlayer: the artificial players
+     * don't use the CPU while a human player plays.
+     */
+    @Test
+    public void testIdle() throws InterruptedException {
+        System.out.println("idle");
+        List<PlayerInfo> players = HeadlessRunner.buildArtificialPlayers(3);
+        players.add(new PlayerInfo("human", "BLACK", "NORMAL"));
+        RecordingObserver observer = new RecordingObserver(0);
+        Game game = new Game(players, observer, HUMAN_FIRST_SEED, new ArtificialPlayerSettings(5, 0, 0, 0, 0));
+        Thread.sleep(200);
+        assertEquals(1, observer.getTurns());
+        long cpu = getCpuTime();
+        Thread.sleep(1000);
+        cpu = getCpuTime() - cpu;
+        game.endGame();
+        assertEquals(1, observer.getTurns());
+        assertTrue(cpu < 100000000L);
+    }
+
+    private long getCpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            total += Math.max(0, threads.getThreadCpuTime(id));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,82 @@
+package simulation;
+
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import shared.PlayerInfo;
+
+public class HeadlessRunnerTest {
+
+    private final int N_PLAYERS = 4;
+    private final int MAX_TURNS = 60;
+    private final long TIMEOUT = 60000;
+
+    public HeadlessRunnerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of run method, of class HeadlessRunner.
+     */
+    @Test
+    public void testRun() throws InterruptedException {
+        System.out.println("run");
+        HeadlessRunner.Result result = new HeadlessRunner(HeadlessRunner.buildArtificialPlayers(N_PLAYERS), 1, MAX_TURNS).run(TIMEOUT);
+        assertFalse(result.isTimedOut());
+        assertTrue(result.getWinner() != null || result.getTurns() == MAX_TURNS);
+        assertTrue(result.getTurns() <= MAX_TURNS);
+        assertEquals(1, result.getCount(RecordingObserver.Event.COUNTRIES_ASSIGNMENT));
+        assertTrue(result.getCount(RecordingObserver.Event.ATTACK_RESULT) > 0);
+    }
+
+    /**
+     * Test of the seed of class HeadlessRunner: the same seed plays the same
+     * game.
+     */
+    @Test
+    public void testSeed() throws InterruptedException {
+        System.out.println("seed");
+        HeadlessRunner.Result result = new HeadlessRunner(HeadlessRunner.buildArtificialPlayers(N_PLAYERS), 2, MAX_TURNS).run(TIMEOUT);
+        HeadlessRunner.Result sameResult = new HeadlessRunner(HeadlessRunner.buildArtificialPlayers(N_PLAYERS), 2, MAX_TURNS).run(TIMEOUT);
+        assertEquals(result.getWinner(), sameResult.getWinner());
+        assertEquals(result.getTurns(), sameResult.getTurns());
+        for (RecordingObserver.Event event : RecordingObserver.Event.values()) {
+            assertEquals(result.getCount(event), sameResult.getCount(event));
+        }
+    }
+
+    /**
+     * Test of the constructor of class HeadlessRunner: only artificial
+     * players can play without the GUI.
+     */
+    @Test
+    public void testHumanPlayer() {
+        System.out.println("humanPlayer");
+        List<PlayerInfo> players = HeadlessRunner.buildArtificialPlayers(2);
+        players.add(new PlayerInfo("human", "BLUE", "NORMAL"));
+        try {
+            new HeadlessRunner(players, 0, MAX_TURNS);
+            fail("A human player can't play without the GUI");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
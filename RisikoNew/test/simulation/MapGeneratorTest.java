@@ -0,0 +1,107 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import risiko.map.Country;
+import risiko.map.MapTopology;
+import risiko.map.RisikoMap;
+import risiko.players.Player;
+import services.FileManager;
+import services.MapPack;
+
+public class MapGeneratorTest {
+
+    private final int N_COUNTRIES = 500;
+    private final int N_CONTINENTS = 60;
+    private final double DEGREE = 4.5;
+    private final int N_PLAYERS = 6;
+
+    public MapGeneratorTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of toMapPack method, of class MapGenerator.
+     */
+    @Test
+    public void testToMapPack() {
+        System.out.println("toMapPack");
+        MapPack pack = new MapGenerator(N_COUNTRIES, N_CONTINENTS, DEGREE, N_PLAYERS, 42).toMapPack(FileManager.getInstance());
+        assertEquals(N_COUNTRIES, pack.getCountriesCount());
+        assertEquals(N_CONTINENTS, pack.getContinentsCount());
+        assertTrue(pack.getMissionsCount() >= N_PLAYERS);
+        double degree = (double) pack.getNeighbors().length / N_COUNTRIES;
+        assertTrue(Math.abs(degree - DEGREE) < 0.1);
+    }
+
+    /**
+     * Test of the validity of the maps built by MapGenerator: the adjacency is
+     * symmetric and the map is connected.
+     */
+    @Test
+    public void testValidMap() {
+        System.out.println("validMap");
+        RisikoMap map = new RisikoMap(new MapTopology(new MapGenerator(N_COUNTRIES, N_CONTINENTS, DEGREE, N_PLAYERS, 7).toMapPack(FileManager.getInstance())));
+        for (Country country : map.getCountriesList()) {
+            for (Country neighbor : country.getNeighbors()) {
+                assertTrue(neighbor.isNeighbor(country));
+            }
+        }
+        boolean[] visited = new boolean[N_COUNTRIES];
+        List<Country> queue = new ArrayList<>();
+        queue.add(map.getCountryById(0));
+        visited[0] = true;
+        for (int i = 0; i < queue.size(); i++) {
+            for (Country neighbor : queue.get(i).getNeighbors()) {
+                if (!visited[neighbor.getId()]) {
+                    visited[neighbor.getId()] = true;
+                    queue.add(neighbor);
+                }
+            }
+        }
+        assertEquals(N_COUNTRIES, queue.size());
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < N_PLAYERS; i++) {
+            players.add(new Player("player" + i, "RED"));
+        }
+        map.initGame(players);
+        for (Player player : players) {
+            assertNotNull(player.getMission());
+            assertTrue(map.countCountries(player) > 0);
+        }
+    }
+
+    /**
+     * Test of the seed of class MapGenerator.
+     */
+    @Test
+    public void testSeed() {
+        System.out.println("seed");
+        MapGenerator generator = new MapGenerator(N_COUNTRIES, N_CONTINENTS, DEGREE, N_PLAYERS, 1);
+        MapGenerator sameGenerator = new MapGenerator(N_COUNTRIES, N_CONTINENTS, DEGREE, N_PLAYERS, 1);
+        assertEquals(generator.getCountriesFile(), sameGenerator.getCountriesFile());
+        assertEquals(generator.getMissionsFile(), sameGenerator.getMissionsFile());
+    }
+}
@@ -0,0 +1,72 @@
+package simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SimulationHarnessTest {
+
+    private final int N_PLAYERS = 3;
+    private final int N_GAMES = 8;
+    private final int MAX_TURNS = 60;
+
+    public SimulationHarnessTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of run method, of class SimulationHarness.
+     */
+    @Test
+    public void testRun() {
+        System.out.println("run");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        SimulationStats stats = new SimulationHarness(N_PLAYERS, MAX_TURNS, 10).run(N_GAMES, pool, 0, null);
+        pool.shutdown();
+        assertEquals(N_GAMES, stats.getGames());
+        assertEquals(0, stats.getTimedOut());
+        double wins = 0;
+        for (int seat = 0; seat < N_PLAYERS; seat++) {
+            assertEquals(N_GAMES, stats.getSeatGames(seat));
+            wins += stats.getSeatWinRate(seat) * N_GAMES;
+        }
+        assertEquals(stats.getWins(), wins, 1e-9);
+        assertTrue(stats.getAverageTurns() > 0 && stats.getAverageTurns() <= MAX_TURNS);
+        assertTrue(stats.getAverageAttacks() > 0);
+        assertTrue(stats.getMissions().length > 0);
+    }
+
+    /**
+     * Test of the seeds of class SimulationHarness: the statistics don't
+     * depend on the number of games played at the same time.
+     */
+    @Test
+    public void testSeed() {
+        System.out.println("seed");
+        ForkJoinPool pool = new ForkJoinPool(4), singlePool = new ForkJoinPool(1);
+        SimulationStats stats = new SimulationHarness(N_PLAYERS, MAX_TURNS, 20).run(N_GAMES, pool, 0, null);
+        SimulationStats sameStats = new SimulationHarness(N_PLAYERS, MAX_TURNS, 20).run(N_GAMES, singlePool, 0, null);
+        pool.shutdown();
+        singlePool.shutdown();
+        assertEquals(stats.toReport(), sameStats.toReport());
+    }
+}
@@ -0,0 +1,269 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import risiko.game.Game;
+import risiko.game.GameSnapshot;
+import risiko.game.TestGames;
+import risiko.map.MapTopology;
+import risiko.players.ArtificialPlayerSettings;
+import shared.PlayerInfo;
+import shared.StateDelta;
+import simulation.HeadlessRunner;
+import simulation.RecordingObserver;
+import simulation.RecordingObserver.Event;
+
+public class ObservableTest {
+
+    private ArrayDeque<Runnable> tasks; // The tasks of the observer's executor, run by the test.
+    private List<StateDelta> deltas;
+    private RecordingObserver observer;
+
+    public ObservableTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        tasks = new ArrayDeque<>();
+        deltas = new ArrayList<>();
+        observer = new RecordingObserver(0) {
+            @Override
+            public void updateOnStateDelta(StateDelta delta) {
+                super.updateOnStateDelta(delta);
+                deltas.add(delta);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+
+    /**
+     * Test of notifyStateDelta method, of class Observable: the deltas queued
+     * to an observer with its own executor are merged, even when other
+     * notifications have been queued between them.
+     */
+    @Test
+    public void testNotifyStateDelta() {
+        System.out.println("notifyStateDelta");
+        String[] countries = {"Alaska", "Alberta", "Argentina"};
+        String[] names = {"player1", "player2"}, colors = {"RED", "BLUE"};
+        Observable observable = new Observable();
+        observable.addObserver(observer, tasks::add);
+        observable.notifyStateDelta(new StateDelta(countries, names, colors, new int[]{0, 1}, new int[]{3, 1}, new int[]{0, 1},
+                new int[0], new int[0], new boolean[0]));
+        observable.notifyPlayedTris();
+        observable.notifyStateDelta(new StateDelta(countries, names, colors, new int[]{1, 2}, new int[]{2, 5}, new int[]{0, 0},
+                new int[]{1}, new int[]{0}, new boolean[]{true}));
+        runTasks();
+        assertEquals(1, deltas.size());
+        assertEquals(1, observer.getCount(Event.PLAYED_TRIS));
+        StateDelta delta = deltas.get(0);
+        assertEquals(3, delta.getCountriesCount());
+        assertEquals("Alaska", delta.getCountryName(0));
+        assertEquals(3, delta.getArmies(0));
+        assertEquals("Alberta", delta.getCountryName(1));
+        assertEquals(2, delta.getArmies(1));
+        assertEquals("player1", delta.getOwnerName(1));
+        assertEquals("Argentina", delta.getCountryName(2));
+        assertEquals("RED", delta.getOwnerColor(2));
+        assertEquals(1, delta.getPlayersCount());
+        assertEquals("player2", delta.getPlayerName(0));
+        assertTrue(delta.isEliminated(0));
+    }
+
+    /**
+     * Test of notifyStateDelta method, of class Observable: an attack is
+     * notified by a single delta, with the state of both countries.
+     */
+    @Test
+    public void testAttackDelta() {
+        System.out.println("attackDelta");
+        Game game = new Game(TestGames.buildPlayers(), observer, 11);
+        String attacker = TestGames.reinforceAttacker(game);
+        String defender = game.getSnapshot().getAllDefenders(attacker)[0];
+        deltas.clear();
+        game.blitzAttack(attacker, defender, 1, 0);
+        assertEquals(1, deltas.size());
+        StateDelta delta = deltas.get(0);
+        assertEquals(2, delta.getCountriesCount());
+        GameSnapshot snapshot = game.getSnapshot();
+        for (int i = 0; i < delta.getCountriesCount(); i++) {
+            String country = delta.getCountryName(i);
+            assertTrue(country.equals(attacker) || country.equals(defender));
+            assertEquals(snapshot.getArmies(country), delta.getArmies(i));
+            assertEquals(snapshot.getOwner(country), delta.getOwnerName(i));
+        }
+        assertEquals(0, observer.getCount(Event.ARMIES_CHANGE));
+        game.endGame();
+    }
+
+    /**
+     * Test of notifyStateDelta method, of class Observable: the last
+     * reinforcement, which changes the phase, is sent as a single
+     * notification (each one runs a task of the observer's executor), which
+     * delivers the delta, the reinforcement and the phase
+     * change in this order.
+     */
+    @Test
+    public void testFoldedNotifications() {
+        System.out.println("foldedNotifications");
+        List<String> delivered = new ArrayList<>();
+        int[] notifications = new int[1];
+        Game game = new Game(TestGames.buildPlayers(), new RecordingObserver(0), 11);
+        game.addObserver(new RecordingObserver(0) {
+            @Override
+            public void updateOnStateDelta(StateDelta delta) {
+                delivered.add("delta");
+            }
+
+            @Override
+            public void updateOnReinforce(int bonusArmies) {
+                delivered.add("reinforce " + bonusArmies);
+            }
+
+            @Override
+            public synchronized void updateOnPhaseChange(PlayerInfo player, String phase) {
+                delivered.add(phase);
+            }
+        }, task -> {
+            notifications[0]++;
+            task.run();
+        });
+        String country = game.getSnapshot().getMyCountries(game.getSnapshot().getActivePlayer()).get(0);
+        while (game.getSnapshot().getActivePlayerBonusArmies() > 1) {
+            game.reinforce(country);
+        }
+        notifications[0] = 0;
+        delivered.clear();
+        game.reinforce(country);
+        assertEquals(1, notifications[0]);
+        assertEquals("[delta, reinforce 0, FIGHT]", delivered.toString());
+        game.endGame();
+    }
+
+    /**
+     * Test of addObserver method, of class BasicObservable: an observer that
+     * falls too far behind is resynchronized instead of receiving the pending
+     * notifications.
+     */
+    @Test
+    public void testAddObserver() {
+        System.out.println("addObserver");
+        List<BasicGameObserver> resynchronized = new ArrayList<>();
+        Observable observable = new Observable() {
+            @Override
+            protected void resynchronize(BasicGameObserver ob) {
+                resynchronized.add(ob);
+            }
+        };
+        observable.addObserver(observer, tasks::add);
+        for (int i = 0; i < 5000; i++) {
+            observable.notifyReinforce(i);
+        }
+        runTasks();
+        assertEquals(1, resynchronized.size());
+        assertSame(observer, resynchronized.get(0));
+        assertEquals(0, observer.getCount(Event.REINFORCE));
+
+        observable.notifyReinforce(0);
+        runTasks();
+        assertEquals(1, resynchronized.size());
+        assertEquals(1, observer.getCount(Event.REINFORCE));
+    }
+
+    /**
+     * Test of addObserver method, of class BasicObservable: the victory, the
+     * eliminations and the end of the game are delivered to an observer that
+     * has fallen too far behind, after its resynchronization.
+     */
+    @Test
+    public void testEssentialNotifications() {
+        System.out.println("essentialNotifications");
+        List<String> delivered = new ArrayList<>();
+        Observable observable = new Observable() {
+            @Override
+            protected void resynchronize(BasicGameObserver ob) {
+                delivered.add("resynchronize");
+            }
+        };
+        observable.addObserver(new RecordingObserver(0) {
+            @Override
+            public void updateOnElimination(String defenderName, boolean artificialAttack) {
+                delivered.add("elimination " + defenderName);
+            }
+
+            @Override
+            public void updateOnVictory(String winMessage) {
+                delivered.add("victory");
+            }
+
+            @Override
+            public void updateOnEndGame() {
+                delivered.add("endGame");
+            }
+        }, tasks::add);
+        observable.notifyElimination("player2", true);
+        for (int i = 0; i < 5000; i++) {
+            observable.notifyReinforce(i);
+        }
+        observable.notifyVictory("player1");
+        observable.notifyReinforce(0);
+        observable.notifyEndGame();
+        runTasks();
+        assertEquals(4, delivered.size());
+        assertEquals("resynchronize", delivered.get(0));
+        assertEquals("elimination player2", delivered.get(1));
+        assertEquals("victory", delivered.get(2));
+        assertEquals("endGame", delivered.get(3));
+    }
+
+    /**
+     * Test of addObserver method, of class BasicObservable: a game between
+     * artificial players isn't held back by an observer that doesn't run its
+     * notifications, which then catches up with the game: most of the
+     * notifications are merged into the pending delta, so it isn't even
+     * resynchronized.
+     */
+    @Test
+    public void testSlowObserver() throws InterruptedException {
+        System.out.println("slowObserver");
+        RecordingObserver playing = new RecordingObserver(200);
+        Game game = new Game(HeadlessRunner.buildArtificialPlayers(3), playing, 4,
+                new ArtificialPlayerSettings(5, 0, 0, 0, 0), MapTopology.getDefault());
+        game.addObserver(observer, tasks::add);
+        assertTrue(playing.getOverLatch().await(60, TimeUnit.SECONDS));
+        game.endGame();
+        assertTrue(game.awaitArtificialPlayers(60000));
+        assertEquals(0, observer.getCount(Event.PHASE_CHANGE));
+
+        runTasks();
+        assertEquals(0, observer.getCount(Event.COUNTRIES_ASSIGNMENT));
+        assertTrue(observer.getCount(Event.PHASE_CHANGE) > 0);
+        assertTrue(observer.getCount(Event.PHASE_CHANGE) < playing.getCount(Event.PHASE_CHANGE));
+        assertEquals(playing.getCount(Event.ATTACK_RESULT), observer.getCount(Event.ATTACK_RESULT));
+    }
+}